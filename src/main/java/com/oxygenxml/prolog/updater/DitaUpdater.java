@@ -1,10 +1,15 @@
 package com.oxygenxml.prolog.updater;
 
+import java.net.URL;
+
 import com.oxygenxml.prolog.updater.dita.editor.DitaEditor;
 import com.oxygenxml.prolog.updater.dita.editor.DitaTopicAuthorEditor;
 import com.oxygenxml.prolog.updater.dita.editor.DitaTopicTextEditor;
+import com.oxygenxml.prolog.updater.dita.editor.PrologEditPlan;
 import com.oxygenxml.prolog.updater.prolog.content.PrologContentCreator;
-import com.oxygenxml.prolog.updater.tags.OptionKeys;
+import com.oxygenxml.prolog.updater.prolog.content.PrologFragmentCache;
+import com.oxygenxml.prolog.updater.prolog.content.PrologOptions;
+import com.oxygenxml.prolog.updater.prolog.content.WorkspacePrologOptions;
 import com.oxygenxml.prolog.updater.tags.Tags;
 import com.oxygenxml.prolog.updater.utils.AWTUtil;
 
@@ -15,7 +20,6 @@ import ro.sync.exml.workspace.api.editor.page.WSEditorPage;
 import ro.sync.exml.workspace.api.editor.page.author.WSAuthorEditorPage;
 import ro.sync.exml.workspace.api.editor.page.ditamap.WSDITAMapEditorPage;
 import ro.sync.exml.workspace.api.editor.page.text.xml.WSXMLTextEditorPage;
-import ro.sync.exml.workspace.api.options.WSOptionsStorage;
 import ro.sync.exml.workspace.api.standalone.StandalonePluginWorkspace;
 
 /**
@@ -33,46 +37,160 @@ public class DitaUpdater {
    */
   private static final String USER_NAME_PROPERTY = "user.name";
   
+  /**
+   * The prologs updated by the previous saves.
+   */
+  private final PrologUpdateMemo memo = new PrologUpdateMemo();
+  
+  /**
+   * An analyzed document, with the edits that must be applied to its prolog.
+   */
+  private static class PendingUpdate {
+    /**
+     * The location of the editor or <code>null</code>.
+     */
+    private final URL editorLocation;
+    /**
+     * The editor of the current page.
+     */
+    private final DitaEditor editor;
+    /**
+     * The edits or <code>null</code> if the document could not be analyzed.
+     */
+    private final PrologEditPlan plan;
+    /**
+     * The prolog fragment that would be inserted in a document without prolog.
+     */
+    private final String prologFragment;
+    /**
+     * <code>true</code> if the prolog was updated.
+     */
+    private boolean wasUpdated;
+
+    /**
+     * Constructor.
+     * 
+     * @param editorLocation The location of the editor or <code>null</code>.
+     * @param editor The editor of the current page.
+     * @param plan The edits or <code>null</code> if the document could not be analyzed.
+     * @param prologFragment The prolog fragment that would be inserted in a document without prolog.
+     */
+    PendingUpdate(URL editorLocation, DitaEditor editor, PrologEditPlan plan, String prologFragment) {
+      this.editorLocation = editorLocation;
+      this.editor = editor;
+      this.plan = plan;
+      this.prologFragment = prologFragment;
+      this.wasUpdated = plan != null;
+    }
+  }
+  
   /**
    * Update the prolog of the current page from given wsEditor.
+   * The page is read and changed on the AWT thread. The document is analyzed before any change is made,
+   * so the edits are applied in a short compound edit and the analysis is skipped when the prolog is up to date.
+   * The way of updating is chosen by the size of the document, see {@link UpdateStrategy}.
    * 
    * @param wsEditor Workspace editor.
+   * @param isNewDocument <code>true</code> if the document is new.
    */
-  public void updateProlog(WSEditor wsEditor , final boolean isNewDocument) {
+  public void updateProlog(final WSEditor wsEditor, final boolean isNewDocument) {
+    AWTUtil.invokeSynchronously(new Runnable() {
+      public void run() {
+        PendingUpdate update = analyze(wsEditor, isNewDocument);
+        if (update != null) {
+          apply(update);
+        }
+      }
+    });
+  }
+
+  /**
+   * Analyze the document of the current page from given wsEditor. Must be called on the AWT thread.
+   * 
+   * @param wsEditor Workspace editor.
+   * @param isNewDocument <code>true</code> if the document is new.
+   * @return The update of the prolog or <code>null</code> if the page is not supported or the prolog is up to date.
+   */
+  private PendingUpdate analyze(WSEditor wsEditor, boolean isNewDocument) {
+    PendingUpdate toReturn = null;
     //get the currentPage
     WSEditorPage currentPage = wsEditor.getCurrentPage();
 
-    //create a PrologContentCreator
-    PrologContentCreator prologContentCreater = new PrologContentCreator(getAuthorName());
+    //get the PrologContentCreator of the author, shared while the date and the options are the same
+    PrologOptions options = WorkspacePrologOptions.getCurrent();
+    PrologContentCreator prologContentCreater = PrologFragmentCache.getContentCreator(getAuthorName(), options);
     
-    final DitaEditor[] ditaEditor = new DitaEditor[1];
+    DitaEditor ditaEditor = null;
+    DitaTopicAuthorEditor authorEditor = null;
+    int documentSize = 0;
     if (currentPage instanceof WSAuthorEditorPage) {
       //Author page
       WSAuthorEditorPage authorPage = (WSAuthorEditorPage)currentPage;
-      ditaEditor[0] = new DitaTopicAuthorEditor(authorPage, prologContentCreater);
+      authorEditor = new DitaTopicAuthorEditor(authorPage, prologContentCreater);
+      documentSize = authorEditor.getDocumentSize();
+      ditaEditor = authorEditor;
     
     } else if (currentPage instanceof WSXMLTextEditorPage) {
       //Text page
       WSXMLTextEditorPage textPage = (WSXMLTextEditorPage)currentPage;
-      ditaEditor[0] = new DitaTopicTextEditor(textPage, prologContentCreater);
+      DitaTopicTextEditor textEditor = new DitaTopicTextEditor(textPage, prologContentCreater);
+      documentSize = textEditor.getDocumentSize();
+      ditaEditor = textEditor;
       
     } else if (currentPage instanceof WSDITAMapEditorPage) {
       //DMM
       WSDITAMapEditorPage mapEditorPage = (WSDITAMapEditorPage)currentPage;
-      ditaEditor[0] = new DitaTopicAuthorEditor(mapEditorPage, prologContentCreater);
+      authorEditor = new DitaTopicAuthorEditor(mapEditorPage, prologContentCreater);
+      documentSize = authorEditor.getDocumentSize();
+      ditaEditor = authorEditor;
     }
     
-    // Update prolog.
-    AWTUtil.invokeSynchronously(new Runnable() {
-			public void run() {
-				if (ditaEditor[0] != null) {
-					boolean wasUpdated = ditaEditor[0].updateProlog(isNewDocument);
-					if (!wasUpdated) {
-						showErrorMessage();
-					}
-				}
-			}
-		});
+    if (ditaEditor != null) {
+      URL editorLocation = wsEditor.getEditorLocation();
+      String prologFragment = prologContentCreater.getPrologFragment(isNewDocument, ditaEditor.getDocumentType());
+      // Skip the documents where nothing changed in the prolog since the last update.
+      if (editorLocation == null || prologFragment == null 
+          || !memo.isUpToDate(editorLocation, ditaEditor, prologFragment)) {
+        if (authorEditor != null) {
+          authorEditor.setSchemaAware(UpdateStrategy.select(documentSize, options) == UpdateStrategy.SCHEMA_AWARE);
+        }
+        toReturn = new PendingUpdate(editorLocation, ditaEditor, ditaEditor.createEditPlan(isNewDocument), prologFragment);
+      }
+    }
+    return toReturn;
+  }
+
+  /**
+   * Apply the edits of an analyzed document. Must be called on the AWT thread.
+   * 
+   * @param update The analyzed document.
+   */
+  private void apply(PendingUpdate update) {
+    if (update.plan != null && !update.plan.isEmpty()) {
+      // Update prolog.
+      update.wasUpdated = update.editor.applyEditPlan(update.plan);
+    }
+    
+    if (update.editorLocation != null) {
+      if (update.wasUpdated && update.prologFragment != null) {
+        memo.updated(update.editorLocation, update.editor, update.prologFragment);
+      } else {
+        memo.forget(update.editorLocation);
+      }
+    }
+    
+    if (!update.wasUpdated) {
+      showErrorMessage();
+    }
+  }
+
+  /**
+   * Forget the state kept for a closed editor.
+   * 
+   * @param editorLocation The location of the editor.
+   */
+  public void editorClosed(URL editorLocation) {
+    memo.forget(editorLocation);
   }
 
   /**
@@ -86,9 +204,9 @@ public class DitaUpdater {
     	toReturn = name;
     }
     
-    WSOptionsStorage optionsStorage = PluginWorkspaceProvider.getPluginWorkspace().getOptionsStorage();
-    if(optionsStorage != null) {
-      toReturn = optionsStorage.getOption(OptionKeys.AUTHOR_NAME, toReturn);
+    String optionName = WorkspacePrologOptions.getCurrent().getAuthorName();
+    if(optionName != null) {
+      toReturn = optionName;
     }
     
     return toReturn;
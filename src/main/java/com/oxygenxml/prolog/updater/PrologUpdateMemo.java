@@ -0,0 +1,111 @@
+package com.oxygenxml.prolog.updater;
+
+import java.net.URL;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.oxygenxml.prolog.updater.dita.editor.DitaEditor;
+import com.oxygenxml.prolog.updater.dita.editor.PrologMarker;
+
+/**
+ * Remembers, for each editor, the prolog that was brought up to date by the last save.
+ * <br/>
+ * A later save can skip the prolog analysis when it would insert the same fragment (same author,
+ * local date and options) and the prolog was not changed since then. The least recently used
+ * editors are forgotten. Thread safe.
+ */
+public class PrologUpdateMemo {
+
+  /**
+   * The maximum number of remembered editors.
+   */
+  private static final int MAX_ENTRIES = 256;
+
+  /**
+   * The state of the prolog after an update.
+   */
+  private static class Entry {
+
+    /**
+     * The prolog fragment that would be inserted in a document without prolog. It contains the
+     * author name, the local date and the enabled elements.
+     */
+    private final String prologFragment;
+
+    /**
+     * The location and the content of the updated prolog.
+     */
+    private final PrologMarker marker;
+
+    /**
+     * Constructor.
+     *
+     * @param prologFragment The prolog fragment that would be inserted in a document without prolog.
+     * @param marker The location and the content of the updated prolog.
+     */
+    Entry(String prologFragment, PrologMarker marker) {
+      this.prologFragment = prologFragment;
+      this.marker = marker;
+    }
+  }
+
+  /**
+   * The entries, mapped by editor location, in access order.
+   */
+  private final Map<String, Entry> entries = Collections.synchronizedMap(new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+      return size() > MAX_ENTRIES;
+    }
+  });
+
+  /**
+   * Check if the prolog of an editor is still up to date after the last update.
+   *
+   * @param editorLocation The location of the editor.
+   * @param ditaEditor The editor of the current page.
+   * @param prologFragment The prolog fragment that would be inserted in a document without prolog.
+   * @return <code>true</code> if the prolog doesn't need to be updated.
+   */
+  public boolean isUpToDate(URL editorLocation, DitaEditor ditaEditor, String prologFragment) {
+    Entry entry = entries.get(editorLocation.toExternalForm());
+    return entry != null
+        && entry.prologFragment.equals(prologFragment)
+        && ditaEditor.isPrologUnchanged(entry.marker);
+  }
+
+  /**
+   * Remember that the prolog of an editor was updated.
+   *
+   * @param editorLocation The location of the editor.
+   * @param ditaEditor The editor of the current page.
+   * @param prologFragment The prolog fragment that would be inserted in a document without prolog.
+   */
+  public void updated(URL editorLocation, DitaEditor ditaEditor, String prologFragment) {
+    PrologMarker marker = ditaEditor.markProlog();
+    if (marker != null) {
+      entries.put(editorLocation.toExternalForm(), new Entry(prologFragment, marker));
+    } else {
+      forget(editorLocation);
+    }
+  }
+
+  /**
+   * Forget the state of an editor.
+   *
+   * @param editorLocation The location of the editor.
+   */
+  public void forget(URL editorLocation) {
+    entries.remove(editorLocation.toExternalForm());
+  }
+
+  /**
+   * @return The number of remembered editors.
+   */
+  public int size() {
+    return entries.size();
+  }
+}
@@ -0,0 +1,37 @@
+package com.oxygenxml.prolog.updater;
+
+import com.oxygenxml.prolog.updater.prolog.content.PrologOptions;
+
+/**
+ * The ways of updating the prolog of a document, chosen by the size of the document.
+ */
+public enum UpdateStrategy {
+  /**
+   * The fragments are inserted with the help of the schema, before the save. Used for the usual documents.
+   */
+  SCHEMA_AWARE,
+  /**
+   * The fragments are inserted directly at the offsets found by the analysis, before the save.
+   */
+  RAW_OFFSETS;
+
+  /**
+   * The number of characters in a kilobyte.
+   */
+  private static final long KILOBYTE = 1024;
+
+  /**
+   * Choose the strategy for a document.
+   *
+   * @param documentSize The number of characters of the document.
+   * @param options The options that give the size limits.
+   * @return The strategy.
+   */
+  public static UpdateStrategy select(long documentSize, PrologOptions options) {
+    UpdateStrategy toReturn = SCHEMA_AWARE;
+    if (documentSize > options.getSchemaAwareSizeLimit() * KILOBYTE) {
+      toReturn = RAW_OFFSETS;
+    }
+    return toReturn;
+  }
+}
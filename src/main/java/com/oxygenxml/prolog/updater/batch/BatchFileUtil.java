@@ -0,0 +1,117 @@
+package com.oxygenxml.prolog.updater.batch;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * A collection of utility methods used to write the updated files.
+ */
+class BatchFileUtil {
+
+  /**
+   * Private constructor. Avoid instantiation.
+   */
+  private BatchFileUtil() {
+    // Nothing
+  }
+
+  /**
+   * Create a temporary file next to the given file, so that it can replace it atomically.
+   *
+   * @param file The file that will be replaced.
+   * @return The temporary file.
+   * @throws IOException If the file could not be created.
+   */
+  static File createTempFile(File file) throws IOException {
+    return File.createTempFile(file.getName(), ".tmp", file.getAbsoluteFile().getParentFile());
+  }
+
+  /**
+   * Replace the given file with the temporary file.
+   *
+   * @param tempFile The temporary file with the new content.
+   * @param file The file to replace.
+   * @throws IOException If the file could not be replaced.
+   */
+  static void replace(File tempFile, File file) throws IOException {
+    Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /**
+   * Delete the temporary file if it still exists.
+   *
+   * @param tempFile The temporary file or <code>null</code>.
+   */
+  static void deleteQuietly(File tempFile) {
+    if (tempFile != null && tempFile.exists() && !tempFile.delete()) {
+      tempFile.deleteOnExit();
+    }
+  }
+
+  /**
+   * Compute the hash of a file content: the first 8 bytes of its SHA-1 digest.
+   *
+   * @param file The file.
+   * @return The hash.
+   * @throws IOException If the file could not be read.
+   */
+  static long hash(File file) throws IOException {
+    MessageDigest digest = createDigest();
+    byte[] buffer = new byte[64 * 1024];
+    InputStream in = new FileInputStream(file);
+    try {
+      int read;
+      while ((read = in.read(buffer)) != -1) {
+        digest.update(buffer, 0, read);
+      }
+    } finally {
+      in.close();
+    }
+    return toHash(digest);
+  }
+
+  /**
+   * Compute the hash of some bytes: the first 8 bytes of their SHA-1 digest.
+   *
+   * @param bytes The bytes.
+   * @return The hash.
+   */
+  static long hash(byte[] bytes) {
+    MessageDigest digest = createDigest();
+    digest.update(bytes);
+    return toHash(digest);
+  }
+
+  /**
+   * @return A SHA-1 digest.
+   */
+  private static MessageDigest createDigest() {
+    try {
+      return MessageDigest.getInstance("SHA-1");
+    } catch (NoSuchAlgorithmException e) {
+      // Every Java platform supports SHA-1.
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Get the hash from a digest.
+   *
+   * @param digest The digest of the hashed bytes.
+   * @return The first 8 bytes of the digest.
+   */
+  private static long toHash(MessageDigest digest) {
+    byte[] bytes = digest.digest();
+    long hash = 0;
+    for (int i = 0; i < 8; i++) {
+      hash = (hash << 8) | (bytes[i] & 0xFF);
+    }
+    return hash;
+  }
+}
@@ -0,0 +1,311 @@
+package com.oxygenxml.prolog.updater.batch;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The state of the files after the last batch run: size, modification time and content hash. Thread safe.
+ * <br/>
+ * The manifest also stores a fingerprint of the run parameters (author, new documents, options). The entries
+ * written by a run with other parameters are ignored, because the files would get other prolog content.
+ * Only the files stored during the current run are saved, so the deleted files are dropped from the manifest.
+ * <br/>
+ * The paths are stored relative to the directory of the manifest file, so the manifest can be
+ * reused when the files are checked out in another location. The manifest is saved in a compact
+ * binary format that is read in a single pass: the paths are sorted and each one is stored as the number
+ * of UTF-8 bytes shared with the previous path followed by the rest of its bytes.
+ */
+public class BatchManifest {
+
+  /**
+   * The first bytes of a manifest file.
+   */
+  private static final int MAGIC = 0x50524c4d;
+
+  /**
+   * The version of the manifest format.
+   */
+  private static final int VERSION = 2;
+
+  /**
+   * The encoding of the paths.
+   */
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  /**
+   * The state of a file, as stored in the manifest.
+   */
+  public static class Entry {
+
+    /**
+     * The size of the file.
+     */
+    private final long size;
+
+    /**
+     * The modification time of the file.
+     */
+    private final long lastModified;
+
+    /**
+     * The hash of the file content.
+     */
+    private final long hash;
+
+    /**
+     * Constructor.
+     *
+     * @param size The size of the file.
+     * @param lastModified The modification time of the file.
+     * @param hash The hash of the file content.
+     */
+    public Entry(long size, long lastModified, long hash) {
+      this.size = size;
+      this.lastModified = lastModified;
+      this.hash = hash;
+    }
+
+    /**
+     * @return The size of the file.
+     */
+    public long getSize() {
+      return size;
+    }
+
+    /**
+     * @return The modification time of the file.
+     */
+    public long getLastModified() {
+      return lastModified;
+    }
+
+    /**
+     * @return The hash of the file content.
+     */
+    public long getHash() {
+      return hash;
+    }
+  }
+
+  /**
+   * The manifest file.
+   */
+  private final File manifestFile;
+
+  /**
+   * The directory of the manifest file, the base of the stored paths.
+   */
+  private final String baseDirectory;
+
+  /**
+   * The fingerprint of the run parameters.
+   */
+  private final long fingerprint;
+
+  /**
+   * The entries read from the manifest file, mapped by path.
+   */
+  private volatile Map<String, Entry> loadedEntries = new ConcurrentHashMap<String, Entry>();
+
+  /**
+   * The entries stored during this run, mapped by path.
+   */
+  private final Map<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+
+  /**
+   * Constructor. The entries are read from the manifest file, if it exists and it was written
+   * with the same run parameters.
+   *
+   * @param manifestFile The manifest file.
+   * @param fingerprint The fingerprint of the run parameters, see {@link #createFingerprint(String, boolean, Map)}.
+   * @throws IOException If the manifest file could not be read.
+   */
+  public BatchManifest(File manifestFile, long fingerprint) throws IOException {
+    this.manifestFile = manifestFile.getAbsoluteFile();
+    this.fingerprint = fingerprint;
+    String base = this.manifestFile.getParentFile().getPath();
+    this.baseDirectory = base.endsWith(File.separator) ? base : base + File.separator;
+    if (manifestFile.isFile()) {
+      load();
+    }
+  }
+
+  /**
+   * Compute the fingerprint of the run parameters that change the prolog content.
+   *
+   * @param author The author name.
+   * @param isNewDocument <code>true</code> if the files are updated as new documents.
+   * @param options The plugin options.
+   * @return The fingerprint.
+   */
+  public static long createFingerprint(String author, boolean isNewDocument, Map<String, String> options) {
+    StringBuilder parameters = new StringBuilder();
+    parameters.append(author).append('\0').append(isNewDocument);
+    // Sorted, so the fingerprint doesn't depend on the order of the options.
+    for (Map.Entry<String, String> option : new TreeMap<String, String>(options).entrySet()) {
+      parameters.append('\0').append(option.getKey()).append('=').append(option.getValue());
+    }
+    return BatchFileUtil.hash(parameters.toString().getBytes(UTF_8));
+  }
+
+  /**
+   * Get the stored state of a file, from this run or from the manifest file.
+   *
+   * @param file The file.
+   * @return The state or <code>null</code> if the file is not in the manifest.
+   */
+  public Entry get(File file) {
+    String path = getPath(file);
+    Entry entry = entries.get(path);
+    return entry != null ? entry : loadedEntries.get(path);
+  }
+
+  /**
+   * Store the state of a file. Only the stored files are saved in the manifest file.
+   *
+   * @param file The file.
+   * @param entry The state.
+   */
+  public void put(File file, Entry entry) {
+    entries.put(getPath(file), entry);
+  }
+
+  /**
+   * Remove a file from the manifest.
+   *
+   * @param file The file.
+   */
+  public void remove(File file) {
+    String path = getPath(file);
+    entries.remove(path);
+    loadedEntries.remove(path);
+  }
+
+  /**
+   * @return The number of files read from the manifest file.
+   */
+  public int getLoadedSize() {
+    return loadedEntries.size();
+  }
+
+  /**
+   * Get the path stored for a file.
+   *
+   * @param file The file.
+   * @return The path relative to the manifest directory, with '/' separators, or the absolute path
+   * if the file is not in that directory.
+   */
+  private String getPath(File file) {
+    String path = file.getAbsolutePath();
+    if (path.startsWith(baseDirectory)) {
+      path = path.substring(baseDirectory.length());
+    }
+    return path.replace(File.separatorChar, '/');
+  }
+
+  /**
+   * Read the entries from the manifest file.
+   *
+   * @throws IOException If the manifest file could not be read.
+   */
+  private void load() throws IOException {
+    ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(manifestFile.toPath()));
+    try {
+      if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+        throw new IOException("Unsupported manifest file: " + manifestFile);
+      }
+      if (buffer.getLong() != fingerprint) {
+        // Written by a run with other parameters.
+        return;
+      }
+      int count = buffer.getInt();
+      Map<String, Entry> loaded = new ConcurrentHashMap<String, Entry>(Math.max(16, count * 4 / 3 + 1));
+      byte[] path = new byte[256];
+      for (int i = 0; i < count; i++) {
+        int prefixLength = buffer.getShort() & 0xFFFF;
+        int suffixLength = buffer.getShort() & 0xFFFF;
+        int length = prefixLength + suffixLength;
+        if (length > path.length) {
+          path = Arrays.copyOf(path, Math.max(length, path.length * 2));
+        }
+        buffer.get(path, prefixLength, suffixLength);
+        loaded.put(new String(path, 0, length, UTF_8), new Entry(buffer.getLong(), buffer.getLong(), buffer.getLong()));
+      }
+      loadedEntries = loaded;
+    } catch (BufferUnderflowException e) {
+      throw new IOException("Truncated manifest file: " + manifestFile, e);
+    }
+  }
+
+  /**
+   * Write the entries stored during this run in the manifest file.
+   *
+   * @throws IOException If the manifest file could not be written.
+   */
+  public void save() throws IOException {
+    List<String> paths = new ArrayList<String>(entries.keySet());
+    Collections.sort(paths);
+
+    File tempFile = BatchFileUtil.createTempFile(manifestFile);
+    try {
+      DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile), 64 * 1024));
+      try {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(fingerprint);
+        out.writeInt(paths.size());
+        byte[] previous = new byte[0];
+        for (String path : paths) {
+          Entry entry = entries.get(path);
+          byte[] bytes = path.getBytes(UTF_8);
+          if (bytes.length > 0xFFFF) {
+            throw new IOException("Path too long: " + path);
+          }
+          int prefixLength = getCommonPrefixLength(previous, bytes);
+          out.writeShort(prefixLength);
+          out.writeShort(bytes.length - prefixLength);
+          out.write(bytes, prefixLength, bytes.length - prefixLength);
+          out.writeLong(entry.getSize());
+          out.writeLong(entry.getLastModified());
+          out.writeLong(entry.getHash());
+          previous = bytes;
+        }
+      } finally {
+        out.close();
+      }
+      BatchFileUtil.replace(tempFile, manifestFile);
+    } finally {
+      BatchFileUtil.deleteQuietly(tempFile);
+    }
+  }
+
+  /**
+   * Get the length of the prefix shared by two encoded paths.
+   *
+   * @param first The first path.
+   * @param second The second path.
+   * @return The length of the common prefix.
+   */
+  private static int getCommonPrefixLength(byte[] first, byte[] second) {
+    int max = Math.min(first.length, second.length);
+    int length = 0;
+    while (length < max && first[length] == second[length]) {
+      length++;
+    }
+    return length;
+  }
+}
@@ -0,0 +1,176 @@
+package com.oxygenxml.prolog.updater.batch;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Updates the prolog of many DITA files from disk, without the Oxygen workspace.
+ * The files are processed in parallel on a fixed thread pool.
+ */
+public class BatchPrologUpdater {
+
+  /**
+   * The extensions of the processed files.
+   */
+  private static final String[] DITA_EXTENSIONS = new String[] {".dita", ".ditamap"};
+
+  /**
+   * Accepts the DITA files and the directories.
+   */
+  private static final FileFilter DITA_FILE_FILTER = new FileFilter() {
+    public boolean accept(File file) {
+      return file.isDirectory() || isDitaFile(file);
+    }
+  };
+
+  /**
+   * Updates each file.
+   */
+  private final FilePrologUpdater fileUpdater;
+
+  /**
+   * The number of threads used to update the files.
+   */
+  private final int threadCount;
+
+  /**
+   * Constructor.
+   *
+   * @param fileUpdater Updates each file.
+   * @param threadCount The number of threads used to update the files.
+   */
+  public BatchPrologUpdater(FilePrologUpdater fileUpdater, int threadCount) {
+    this.fileUpdater = fileUpdater;
+    this.threadCount = Math.max(1, threadCount);
+  }
+
+  /**
+   * Update all the DITA files from the given directory and its subdirectories.
+   *
+   * @param directory The directory.
+   * @return The result of the update.
+   * @throws InterruptedException If the update was interrupted.
+   */
+  public BatchResult updateDirectory(File directory) throws InterruptedException {
+    List<File> files = new ArrayList<File>();
+    collectDitaFiles(directory, files);
+    return updateFiles(files);
+  }
+
+  /**
+   * Update the given maps and all the topics and maps referenced from them.
+   * The files that are not referenced are not updated.
+   *
+   * @param maps The root maps.
+   * @return The result of the update.
+   * @throws InterruptedException If the update was interrupted.
+   */
+  public BatchResult updateMaps(Collection<File> maps) throws InterruptedException {
+    BatchResult result = new BatchResult();
+    List<File> files = new DitaMapTraversal(threadCount).collectFiles(maps, result);
+    updateFiles(files, result);
+    return result;
+  }
+
+  /**
+   * Update the given files.
+   *
+   * @param files The DITA files.
+   * @return The result of the update.
+   * @throws InterruptedException If the update was interrupted.
+   */
+  public BatchResult updateFiles(Collection<File> files) throws InterruptedException {
+    BatchResult result = new BatchResult();
+    updateFiles(files, result);
+    return result;
+  }
+
+  /**
+   * Update the given files.
+   *
+   * @param files The DITA files.
+   * @param result Receives the result of the update.
+   * @throws InterruptedException If the update was interrupted.
+   */
+  private void updateFiles(Collection<File> files, final BatchResult result) throws InterruptedException {
+    ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+    try {
+      for (final File file : files) {
+        executor.execute(new Runnable() {
+          public void run() {
+            updateFile(file, result);
+          }
+        });
+      }
+      executor.shutdown();
+      executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Update a file and record the result.
+   *
+   * @param file The file.
+   * @param result The batch result.
+   */
+  protected void updateFile(File file, BatchResult result) {
+    try {
+      if (fileUpdater.updateFile(file)) {
+        result.fileUpdated();
+      } else {
+        result.fileUnchanged();
+      }
+    } catch (IOException e) {
+      result.fileFailed(file, e);
+    } catch (RuntimeException e) {
+      result.fileFailed(file, e);
+    }
+  }
+
+  /**
+   * Collect the DITA files from the given directory and its subdirectories.
+   *
+   * @param directory The directory.
+   * @param files Receives the files.
+   */
+  private static void collectDitaFiles(File directory, List<File> files) {
+    File[] children = directory.listFiles(DITA_FILE_FILTER);
+    if (children != null) {
+      for (File child : children) {
+        if (child.isDirectory()) {
+          collectDitaFiles(child, files);
+        } else {
+          files.add(child);
+        }
+      }
+    }
+  }
+
+  /**
+   * Check the extension of the given file.
+   *
+   * @param file The file.
+   * @return <code>true</code> if the file is a DITA topic or map.
+   */
+  static boolean isDitaFile(File file) {
+    String name = file.getName().toLowerCase(Locale.ENGLISH);
+    boolean toReturn = false;
+    for (String extension : DITA_EXTENSIONS) {
+      if (name.endsWith(extension)) {
+        toReturn = true;
+        break;
+      }
+    }
+    return toReturn;
+  }
+}
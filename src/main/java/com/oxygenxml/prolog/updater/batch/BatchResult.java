@@ -0,0 +1,77 @@
+package com.oxygenxml.prolog.updater.batch;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The result of a batch prolog update. Thread safe.
+ */
+public class BatchResult {
+
+  /**
+   * The number of updated files.
+   */
+  private int updatedCount;
+
+  /**
+   * The number of files that were already up to date or were not DITA documents.
+   */
+  private int unchangedCount;
+
+  /**
+   * The files that could not be updated, mapped to the cause.
+   */
+  private final Map<File, Exception> failures = new LinkedHashMap<File, Exception>();
+
+  /**
+   * Record a file that was updated.
+   */
+  synchronized void fileUpdated() {
+    updatedCount++;
+  }
+
+  /**
+   * Record a file that was not changed.
+   */
+  synchronized void fileUnchanged() {
+    unchangedCount++;
+  }
+
+  /**
+   * Record a file that could not be updated.
+   *
+   * @param file The file.
+   * @param cause The cause.
+   */
+  synchronized void fileFailed(File file, Exception cause) {
+    failures.put(file, cause);
+  }
+
+  /**
+   * @return The number of updated files.
+   */
+  public synchronized int getUpdatedCount() {
+    return updatedCount;
+  }
+
+  /**
+   * @return The number of files that were already up to date or were not DITA documents.
+   */
+  public synchronized int getUnchangedCount() {
+    return unchangedCount;
+  }
+
+  /**
+   * @return The files that could not be updated, mapped to the cause.
+   */
+  public synchronized Map<File, Exception> getFailures() {
+    return Collections.unmodifiableMap(new LinkedHashMap<File, Exception>(failures));
+  }
+
+  @Override
+  public synchronized String toString() {
+    return "Updated: " + updatedCount + ", unchanged: " + unchangedCount + ", failed: " + failures.size();
+  }
+}
@@ -0,0 +1,328 @@
+package com.oxygenxml.prolog.updater.batch;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import com.oxygenxml.prolog.updater.dita.editor.DocumentType;
+import com.oxygenxml.prolog.updater.utils.XmlElementsConstants;
+import com.oxygenxml.prolog.updater.utils.XmlElementsUtils;
+
+/**
+ * Collects the DITA files referenced from maps and bookmaps: the maps themselves, the topics referenced
+ * with href attributes and the nested maps, which are parsed in parallel.
+ * <br/>
+ * The references with an external or peer scope and the references to other formats are ignored.
+ * Each file is collected once, even if it's referenced from many maps.
+ */
+public class DitaMapTraversal {
+
+  /**
+   * The href attribute.
+   */
+  private static final String HREF_ATTRIBUTE = "href";
+
+  /**
+   * The scope attribute.
+   */
+  private static final String SCOPE_ATTRIBUTE = "scope";
+
+  /**
+   * The format attribute.
+   */
+  private static final String FORMAT_ATTRIBUTE = "format";
+
+  /**
+   * The format of the DITA topics.
+   */
+  private static final String DITA_FORMAT = "dita";
+
+  /**
+   * The format of the DITA maps.
+   */
+  private static final String DITAMAP_FORMAT = "ditamap";
+
+  /**
+   * The extension of the DITA maps.
+   */
+  private static final String DITAMAP_EXTENSION = ".ditamap";
+
+  /**
+   * The number of threads used to parse the maps.
+   */
+  private final int threadCount;
+
+  /**
+   * Constructor.
+   *
+   * @param threadCount The number of threads used to parse the maps.
+   */
+  public DitaMapTraversal(int threadCount) {
+    this.threadCount = Math.max(1, threadCount);
+  }
+
+  /**
+   * Collect the files referenced from the given maps.
+   *
+   * @param maps The root maps.
+   * @param result Receives the maps that could not be parsed.
+   * @return The referenced files and the maps, sorted by path. The files are not checked for existence.
+   */
+  public List<File> collectFiles(Collection<File> maps, BatchResult result) {
+    ConcurrentMap<String, File> collected = new ConcurrentHashMap<String, File>();
+    List<MapTask> tasks = new ArrayList<MapTask>();
+    for (File map : maps) {
+      File canonicalMap = getCanonicalFile(map);
+      if (collected.putIfAbsent(canonicalMap.getPath(), canonicalMap) == null) {
+        tasks.add(new MapTask(canonicalMap, true, collected, result));
+      }
+    }
+
+    ForkJoinPool pool = new ForkJoinPool(threadCount);
+    try {
+      for (MapTask task : tasks) {
+        pool.execute(task);
+      }
+      for (MapTask task : tasks) {
+        task.join();
+      }
+    } finally {
+      pool.shutdown();
+    }
+
+    List<File> files = new ArrayList<File>(collected.values());
+    Collections.sort(files);
+    return files;
+  }
+
+  /**
+   * Parses a map and forks the parsing of the nested maps.
+   */
+  private static class MapTask extends RecursiveAction {
+
+    /**
+     * Serial version UID.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The canonical map file.
+     */
+    private final File map;
+
+    /**
+     * <code>true</code> for a map given by the user, which is parsed even if its root is not recognized.
+     */
+    private final boolean isRootMap;
+
+    /**
+     * The collected files, mapped by their canonical path.
+     */
+    private final ConcurrentMap<String, File> collected;
+
+    /**
+     * Receives the maps that could not be parsed.
+     */
+    private final BatchResult result;
+
+    /**
+     * Constructor.
+     *
+     * @param map The canonical map file.
+     * @param isRootMap <code>true</code> for a map given by the user.
+     * @param collected The collected files, mapped by their canonical path.
+     * @param result Receives the maps that could not be parsed.
+     */
+    MapTask(File map, boolean isRootMap, ConcurrentMap<String, File> collected, BatchResult result) {
+      this.map = map;
+      this.isRootMap = isRootMap;
+      this.collected = collected;
+      this.result = result;
+    }
+
+    @Override
+    protected void compute() {
+      List<File> nestedMaps = new ArrayList<File>();
+      try {
+        for (File reference : readReferences(map, isRootMap, nestedMaps)) {
+          collected.putIfAbsent(reference.getPath(), reference);
+        }
+      } catch (IOException e) {
+        result.fileFailed(map, e);
+      }
+
+      List<MapTask> subtasks = new ArrayList<MapTask>();
+      for (File nestedMap : nestedMaps) {
+        if (collected.putIfAbsent(nestedMap.getPath(), nestedMap) == null) {
+          subtasks.add(new MapTask(nestedMap, false, collected, result));
+        }
+      }
+      invokeAll(subtasks);
+    }
+  }
+
+  /**
+   * Read the references from a map.
+   *
+   * @param map The map file.
+   * @param isRootMap <code>true</code> to parse the map even if its root is not recognized.
+   * @param nestedMaps Receives the referenced maps.
+   * @return The referenced topics, as canonical files.
+   * @throws IOException If the map could not be parsed.
+   */
+  static List<File> readReferences(File map, boolean isRootMap, List<File> nestedMaps) throws IOException {
+    List<File> topics = new ArrayList<File>();
+    File directory = map.getParentFile();
+    InputStream in = new BufferedInputStream(new FileInputStream(map));
+    try {
+      XMLStreamReader reader = StaxPrologUpdater.INPUT_FACTORY.get().createXMLStreamReader(in);
+      boolean isRoot = true;
+      while (reader.hasNext()) {
+        if (reader.next() == XMLStreamConstants.START_ELEMENT) {
+          if (isRoot) {
+            isRoot = false;
+            if (!isRootMap && !isMapRoot(reader)) {
+              // Not a DITA map.
+              break;
+            }
+          }
+          String href = reader.getAttributeValue(null, HREF_ATTRIBUTE);
+          if (href != null && isLocalDitaReference(reader)) {
+            File target = resolve(directory, href);
+            if (target != null) {
+              if (isMapReference(reader, href)) {
+                nestedMaps.add(target);
+              } else if (isTopicReference(reader, href)) {
+                topics.add(target);
+              }
+            }
+          }
+        }
+      }
+      reader.close();
+    } catch (XMLStreamException e) {
+      throw new IOException(map + ": " + e.getMessage(), e);
+    } finally {
+      in.close();
+    }
+    return topics;
+  }
+
+  /**
+   * Check if the current element is the root of a map or a bookmap, by its class attribute or by its name.
+   *
+   * @param reader The reader, on the start of the root element.
+   * @return <code>true</code> for maps and bookmaps.
+   */
+  private static boolean isMapRoot(XMLStreamReader reader) {
+    String classValue = reader.getAttributeValue(null, XmlElementsConstants.CLASS);
+    return !DocumentType.TOPIC.equals(XmlElementsUtils.getDocumentType(reader.getLocalName(), classValue));
+  }
+
+  /**
+   * Check if the reference from the current element must be followed, according to its scope.
+   *
+   * @param reader The reader, on the start of an element.
+   * @return <code>false</code> for the external and peer references.
+   */
+  private static boolean isLocalDitaReference(XMLStreamReader reader) {
+    String scope = reader.getAttributeValue(null, SCOPE_ATTRIBUTE);
+    return scope == null || "local".equals(scope);
+  }
+
+  /**
+   * Check if the current element references a map.
+   *
+   * @param reader The reader, on the start of an element.
+   * @param href The reference.
+   * @return <code>true</code> for the ditamap format or, when the format is missing, for the ditamap extension.
+   */
+  private static boolean isMapReference(XMLStreamReader reader, String href) {
+    String format = reader.getAttributeValue(null, FORMAT_ATTRIBUTE);
+    return format != null ? DITAMAP_FORMAT.equals(format) : getPath(href).toLowerCase(Locale.ENGLISH).endsWith(DITAMAP_EXTENSION);
+  }
+
+  /**
+   * Check if the current element references a topic.
+   *
+   * @param reader The reader, on the start of an element.
+   * @param href The reference.
+   * @return <code>true</code> for the dita format or, when the format is missing, for the dita and xml extensions.
+   */
+  private static boolean isTopicReference(XMLStreamReader reader, String href) {
+    String format = reader.getAttributeValue(null, FORMAT_ATTRIBUTE);
+    boolean toReturn;
+    if (format != null) {
+      toReturn = DITA_FORMAT.equals(format);
+    } else {
+      String path = getPath(href).toLowerCase(Locale.ENGLISH);
+      toReturn = path.endsWith(".dita") || path.endsWith(".xml");
+    }
+    return toReturn;
+  }
+
+  /**
+   * Resolve a reference.
+   *
+   * @param directory The directory of the map.
+   * @param href The reference.
+   * @return The canonical referenced file or <code>null</code> if the reference is not a relative path.
+   */
+  private static File resolve(File directory, String href) {
+    File toReturn = null;
+    String path = getPath(href);
+    if (!path.isEmpty() && path.indexOf(':') == -1) {
+      try {
+        path = URLDecoder.decode(path.replace("+", "%2B"), "UTF-8");
+        toReturn = getCanonicalFile(new File(directory, path));
+      } catch (UnsupportedEncodingException e) {
+        // UTF-8 is always supported.
+      } catch (IllegalArgumentException e) {
+        // Malformed escape. Ignore the reference.
+      }
+    }
+    return toReturn;
+  }
+
+  /**
+   * Get the path of a reference, without the fragment identifier.
+   *
+   * @param href The reference.
+   * @return The path.
+   */
+  private static String getPath(String href) {
+    int hash = href.indexOf('#');
+    return hash != -1 ? href.substring(0, hash) : href;
+  }
+
+  /**
+   * Get the canonical form of a file, or the absolute one if the canonical form can't be computed.
+   *
+   * @param file The file.
+   * @return The canonical file.
+   */
+  private static File getCanonicalFile(File file) {
+    try {
+      return file.getCanonicalFile();
+    } catch (IOException e) {
+      return file.getAbsoluteFile();
+    }
+  }
+}
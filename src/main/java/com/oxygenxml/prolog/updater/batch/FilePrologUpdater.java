@@ -0,0 +1,22 @@
+package com.oxygenxml.prolog.updater.batch;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Updates the prolog of a DITA file from disk.
+ */
+public interface FilePrologUpdater {
+
+  /**
+   * Update the prolog of the given file.
+   * <br/>
+   * Implementations must be thread safe; the same instance is used to update many files in parallel.
+   *
+   * @param file The DITA file.
+   * @return <code>true</code> if the file was modified, <code>false</code> if the prolog was already up to date
+   * or the file is not a DITA topic or map.
+   * @throws IOException If the file could not be read, parsed or written.
+   */
+  boolean updateFile(File file) throws IOException;
+}
@@ -0,0 +1,175 @@
+package com.oxygenxml.prolog.updater.batch;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Selects the DITA files changed in the working tree or in the index of a local git repository,
+ * by running <code>git status</code>. No remote is contacted.
+ * <br/>
+ * The modified, added, renamed, copied and untracked files are selected. The deleted files are ignored.
+ */
+public class GitChangeSelector {
+
+  /**
+   * The encoding of the paths printed by git.
+   */
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  /**
+   * The git executable.
+   */
+  private final String gitCommand;
+
+  /**
+   * Constructor that uses the git executable from the path.
+   */
+  public GitChangeSelector() {
+    this("git");
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param gitCommand The git executable.
+   */
+  public GitChangeSelector(String gitCommand) {
+    this.gitCommand = gitCommand;
+  }
+
+  /**
+   * Get the changed DITA files from the given directory of a git working tree.
+   *
+   * @param directory A directory of the working tree. Only the changes from this directory and its
+   * subdirectories are selected.
+   * @return The changed DITA topics and maps.
+   * @throws IOException If git could not be run or it failed.
+   * @throws InterruptedException If the thread was interrupted while waiting for git.
+   */
+  public List<File> getChangedFiles(File directory) throws IOException, InterruptedException {
+    String topLevel = new String(runGit(directory, "rev-parse", "--show-toplevel"), UTF_8).trim();
+    byte[] status = runGit(directory, "status", "--porcelain", "-z", "--untracked-files=all", "--", ".");
+
+    List<File> files = new ArrayList<File>();
+    for (String path : parseStatus(status)) {
+      File file = new File(topLevel, path);
+      if (BatchPrologUpdater.isDitaFile(file) && file.isFile()) {
+        files.add(file);
+      }
+    }
+    return files;
+  }
+
+  /**
+   * Parse the output of <code>git status --porcelain -z</code>.
+   *
+   * @param status The output.
+   * @return The paths of the changed files that were not deleted, relative to the top level directory
+   * of the working tree. For renamed and copied files, the new path.
+   */
+  static List<String> parseStatus(byte[] status) {
+    List<String> paths = new ArrayList<String>();
+    int pos = 0;
+    while (pos < status.length) {
+      int end = indexOfNul(status, pos);
+      // Each entry is "XY PATH". Renames and copies are followed by the original path.
+      if (end - pos > 3) {
+        char indexStatus = (char) status[pos];
+        char workTreeStatus = (char) status[pos + 1];
+        String path = new String(status, pos + 3, end - pos - 3, UTF_8);
+        if (indexStatus == 'R' || indexStatus == 'C') {
+          end = indexOfNul(status, end + 1);
+        }
+        if (indexStatus != 'D' && workTreeStatus != 'D' && indexStatus != '!') {
+          paths.add(path);
+        }
+      }
+      pos = end + 1;
+    }
+    return paths;
+  }
+
+  /**
+   * Search for the NUL separator.
+   *
+   * @param bytes The output of git.
+   * @param from The start offset.
+   * @return The offset of the separator or the length of the output.
+   */
+  private static int indexOfNul(byte[] bytes, int from) {
+    int pos = from;
+    while (pos < bytes.length && bytes[pos] != 0) {
+      pos++;
+    }
+    return pos;
+  }
+
+  /**
+   * Run a git command and read its output. The error output is read separately, so the warnings
+   * printed by git don't corrupt the output, and it's reported only if the command fails.
+   *
+   * @param directory The working directory.
+   * @param arguments The arguments of the command.
+   * @return The output of the command.
+   * @throws IOException If git could not be run or it failed.
+   * @throws InterruptedException If the thread was interrupted while waiting for git.
+   */
+  private byte[] runGit(File directory, String... arguments) throws IOException, InterruptedException {
+    List<String> command = new ArrayList<String>();
+    command.add(gitCommand);
+    command.addAll(Arrays.asList(arguments));
+    ProcessBuilder processBuilder = new ProcessBuilder(command);
+    processBuilder.directory(directory);
+    Process process = processBuilder.start();
+
+    // Drain the error output in parallel, so git doesn't block when its buffer is full.
+    final InputStream errorStream = process.getErrorStream();
+    final ByteArrayOutputStream errors = new ByteArrayOutputStream();
+    Thread errorReader = new Thread(new Runnable() {
+      public void run() {
+        try {
+          readFully(errorStream, errors);
+        } catch (IOException e) {
+          // The error output is only informative.
+        }
+      }
+    }, "git error reader");
+    errorReader.setDaemon(true);
+    errorReader.start();
+
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    readFully(process.getInputStream(), output);
+    int exitCode = process.waitFor();
+    errorReader.join();
+    if (exitCode != 0) {
+      throw new IOException(command + " failed in " + directory + " with exit code " + exitCode + ": "
+          + new String(errors.toByteArray(), UTF_8).trim());
+    }
+    return output.toByteArray();
+  }
+
+  /**
+   * Read a stream until its end and close it.
+   *
+   * @param in The stream.
+   * @param output Receives the bytes.
+   * @throws IOException If the stream could not be read.
+   */
+  private static void readFully(InputStream in, ByteArrayOutputStream output) throws IOException {
+    try {
+      byte[] buffer = new byte[8 * 1024];
+      int read;
+      while ((read = in.read(buffer)) != -1) {
+        output.write(buffer, 0, read);
+      }
+    } finally {
+      in.close();
+    }
+  }
+}
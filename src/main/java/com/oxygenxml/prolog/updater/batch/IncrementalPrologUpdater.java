@@ -0,0 +1,65 @@
+package com.oxygenxml.prolog.updater.batch;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Skips the files that didn't change since the last batch run, according to a {@link BatchManifest},
+ * and updates the other files with a delegate.
+ * <br/>
+ * A file is skipped when its size and modification time are the ones from the manifest, or when only the
+ * modification time changed but the content hash is the same (for example after a new checkout). The skipped
+ * files are stored again in the manifest, so they are kept when it's saved.
+ */
+public class IncrementalPrologUpdater implements FilePrologUpdater {
+
+  /**
+   * Updates the changed files.
+   */
+  private final FilePrologUpdater delegate;
+
+  /**
+   * The state of the files after the last run.
+   */
+  private final BatchManifest manifest;
+
+  /**
+   * Constructor.
+   *
+   * @param delegate Updates the changed files.
+   * @param manifest The state of the files after the last run. It's updated with the new state of the files.
+   */
+  public IncrementalPrologUpdater(FilePrologUpdater delegate, BatchManifest manifest) {
+    this.delegate = delegate;
+    this.manifest = manifest;
+  }
+
+  /**
+   * @see com.oxygenxml.prolog.updater.batch.FilePrologUpdater#updateFile(java.io.File)
+   */
+  public boolean updateFile(File file) throws IOException {
+    BatchManifest.Entry entry = manifest.get(file);
+    if (entry != null && entry.getSize() == file.length()) {
+      long lastModified = file.lastModified();
+      if (entry.getLastModified() == lastModified) {
+        manifest.put(file, entry);
+        return false;
+      }
+      long hash = BatchFileUtil.hash(file);
+      if (entry.getHash() == hash) {
+        manifest.put(file, new BatchManifest.Entry(entry.getSize(), lastModified, hash));
+        return false;
+      }
+    }
+
+    boolean updated;
+    try {
+      updated = delegate.updateFile(file);
+    } catch (IOException e) {
+      manifest.remove(file);
+      throw e;
+    }
+    manifest.put(file, new BatchManifest.Entry(file.length(), file.lastModified(), BatchFileUtil.hash(file)));
+    return updated;
+  }
+}
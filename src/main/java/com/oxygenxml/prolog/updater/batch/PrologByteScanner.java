@@ -0,0 +1,72 @@
+package com.oxygenxml.prolog.updater.batch;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+import com.oxygenxml.prolog.updater.prolog.edit.PrologMarkupScanner;
+import com.oxygenxml.prolog.updater.prolog.edit.PrologStructureBuilder;
+
+/**
+ * Tokenizes the bytes of a document until the end of the prolog and reports the markup to a
+ * {@link PrologStructureBuilder}. The offsets from the built structure are byte offsets.
+ * <br/>
+ * The scanner works for the encodings where the markup characters are encoded as in ASCII (UTF-8,
+ * ISO-8859-*, windows-125*). The bytes are read with absolute gets, so the position of the buffer
+ * is not changed and only the bytes before the end of the prolog are touched.
+ */
+class PrologByteScanner extends PrologMarkupScanner {
+
+  /**
+   * The scanned bytes, from 0 to the limit.
+   */
+  private final ByteBuffer buffer;
+
+  /**
+   * The encoding of the document.
+   */
+  private final Charset charset;
+
+  /**
+   * Constructor.
+   *
+   * @param buffer The scanned bytes, from 0 to the limit.
+   * @param charset The encoding of the document.
+   * @param endOfInput <code>true</code> if the buffer contains the whole document.
+   */
+  PrologByteScanner(ByteBuffer buffer, Charset charset, boolean endOfInput) {
+    super(endOfInput);
+    this.buffer = buffer;
+    this.charset = charset;
+  }
+
+  /**
+   * @see com.oxygenxml.prolog.updater.prolog.edit.PrologMarkupScanner#get(int)
+   */
+  @Override
+  protected int get(int pos) {
+    return buffer.get(pos) & 0xFF;
+  }
+
+  /**
+   * @see com.oxygenxml.prolog.updater.prolog.edit.PrologMarkupScanner#limit()
+   */
+  @Override
+  protected int limit() {
+    return buffer.limit();
+  }
+
+  /**
+   * Decode a range of bytes.
+   *
+   * @param start The start offset, inclusive.
+   * @param end The end offset, exclusive.
+   * @return The decoded text.
+   */
+  @Override
+  protected String decode(int start, int end) {
+    ByteBuffer range = buffer.duplicate();
+    range.limit(end);
+    range.position(start);
+    return charset.decode(range).toString();
+  }
+}
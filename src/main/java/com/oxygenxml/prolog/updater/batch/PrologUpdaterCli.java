@@ -0,0 +1,198 @@
+package com.oxygenxml.prolog.updater.batch;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import com.oxygenxml.prolog.updater.prolog.content.PrologContentCreator;
+import com.oxygenxml.prolog.updater.tags.OptionKeys;
+
+/**
+ * Command line entry point that updates the prolog of the DITA files from disk.
+ * It doesn't need the Oxygen SDK on the class path.
+ */
+public class PrologUpdaterCli {
+
+  /**
+   * The usage message.
+   */
+  private static final String USAGE = "Usage: PrologUpdaterCli [options] <directory or map>...\n"
+      + "  The DITA files from a directory and its subdirectories are updated. For a map, the map and the topics\n"
+      + "  and maps referenced from it are updated.\n"
+      + "  -author <name>         The author name. Default: the author from the options file or the system user name.\n"
+      + "  -threads <count>       The number of parallel threads. Default: the number of processors.\n"
+      + "  -new                   Set the creator and the created date instead of the contributor and the revised date.\n"
+      + "  -options <file>        Properties file with the plugin options (prolog.updater.* keys).\n"
+      + "  -manifest <file>       Skip the files that didn't change since the run that wrote this manifest,\n"
+      + "                         then save the new state of the files in it.\n"
+      + "  -git                   Update only the DITA files changed in the working tree or in the index\n"
+      + "                         of the git repositories that contain the given directories (default: the current\n"
+      + "                         directory), with the contributor and the revised date.\n"
+      + "  -stax                  Rewrite the files with a StAX writer instead of splicing the fragments into the original bytes.";
+
+  /**
+   * Private constructor. Avoid instantiation.
+   */
+  private PrologUpdaterCli() {
+    // Nothing
+  }
+
+  /**
+   * Update the prolog of the DITA files from the given directories.
+   *
+   * @param args The command line arguments.
+   * @throws Exception If the update failed.
+   */
+  public static void main(String[] args) throws Exception {
+    int exitCode = run(args, System.out, System.err);
+    if (exitCode != 0) {
+      System.exit(exitCode);
+    }
+  }
+
+  /**
+   * Run the update with the given arguments.
+   *
+   * @param args The command line arguments.
+   * @param out Receives the progress messages.
+   * @param err Receives the error messages.
+   * @return The exit code. <code>0</code> when all the files were processed.
+   * @throws IOException If the options file could not be read.
+   * @throws InterruptedException If the update was interrupted.
+   */
+  static int run(String[] args, PrintStream out, PrintStream err) throws IOException, InterruptedException {
+    String author = null;
+    int threads = Runtime.getRuntime().availableProcessors();
+    boolean isNewDocument = false;
+    boolean useStax = false;
+    File manifestFile = null;
+    boolean useGit = false;
+    Map<String, String> options = new HashMap<String, String>();
+    List<File> inputs = new ArrayList<File>();
+
+    for (int i = 0; i < args.length; i++) {
+      String arg = args[i];
+      if ("-author".equals(arg) && i + 1 < args.length) {
+        author = args[++i];
+      } else if ("-threads".equals(arg) && i + 1 < args.length) {
+        threads = parseThreads(args[++i]);
+        if (threads == -1) {
+          err.println(USAGE);
+          return 2;
+        }
+      } else if ("-new".equals(arg)) {
+        isNewDocument = true;
+      } else if ("-manifest".equals(arg) && i + 1 < args.length) {
+        manifestFile = new File(args[++i]);
+      } else if ("-git".equals(arg)) {
+        useGit = true;
+      } else if ("-stax".equals(arg)) {
+        useStax = true;
+      } else if ("-options".equals(arg) && i + 1 < args.length) {
+        options = loadOptions(new File(args[++i]));
+      } else if (arg.startsWith("-")) {
+        err.println(USAGE);
+        return 2;
+      } else {
+        inputs.add(new File(arg));
+      }
+    }
+    if (useGit && inputs.isEmpty()) {
+      inputs.add(new File("."));
+    }
+    if (inputs.isEmpty() || (useGit && isNewDocument)) {
+      err.println(USAGE);
+      return 2;
+    }
+
+    if (author == null) {
+      author = options.get(OptionKeys.AUTHOR_NAME);
+      if (author == null) {
+        author = System.getProperty("user.name", "unknown");
+      }
+    }
+
+    PrologContentCreator prologCreator = new PrologContentCreator(author, options);
+    FilePrologUpdater fileUpdater = useStax ? new StaxPrologUpdater(prologCreator, isNewDocument)
+        : new SplicePrologUpdater(prologCreator, isNewDocument);
+    BatchManifest manifest = null;
+    if (manifestFile != null) {
+      manifest = new BatchManifest(manifestFile, BatchManifest.createFingerprint(author, isNewDocument, options));
+      fileUpdater = new IncrementalPrologUpdater(fileUpdater, manifest);
+    }
+    BatchPrologUpdater updater = new BatchPrologUpdater(fileUpdater, threads);
+
+    int exitCode = 0;
+    for (File input : inputs) {
+      long start = System.currentTimeMillis();
+      BatchResult result;
+      if (useGit) {
+        result = updater.updateFiles(new GitChangeSelector().getChangedFiles(input));
+      } else if (input.isDirectory()) {
+        result = updater.updateDirectory(input);
+      } else {
+        result = updater.updateMaps(Collections.singletonList(input));
+      }
+      out.println(input + ": " + result + " (" + (System.currentTimeMillis() - start) + " ms)");
+      for (Map.Entry<File, Exception> failure : result.getFailures().entrySet()) {
+        err.println(failure.getKey() + ": " + failure.getValue().getMessage());
+      }
+      if (!result.getFailures().isEmpty()) {
+        exitCode = 1;
+      }
+    }
+    if (manifest != null) {
+      manifest.save();
+    }
+    return exitCode;
+  }
+
+  /**
+   * Parse the number of threads.
+   *
+   * @param value The value of the -threads option.
+   * @return The number of threads or <code>-1</code> if the value is not a positive number.
+   */
+  private static int parseThreads(String value) {
+    int toReturn = -1;
+    try {
+      int threads = Integer.parseInt(value.trim());
+      if (threads > 0) {
+        toReturn = threads;
+      }
+    } catch (NumberFormatException e) {
+      // Not a number.
+    }
+    return toReturn;
+  }
+
+  /**
+   * Load the plugin options from a properties file.
+   *
+   * @param file The properties file.
+   * @return The options.
+   * @throws IOException If the file could not be read.
+   */
+  private static Map<String, String> loadOptions(File file) throws IOException {
+    Properties properties = new Properties();
+    InputStream in = new FileInputStream(file);
+    try {
+      properties.load(in);
+    } finally {
+      in.close();
+    }
+    Map<String, String> options = new HashMap<String, String>();
+    for (String key : properties.stringPropertyNames()) {
+      options.put(key, properties.getProperty(key));
+    }
+    return options;
+  }
+}
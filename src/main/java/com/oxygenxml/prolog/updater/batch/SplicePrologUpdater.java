@@ -0,0 +1,360 @@
+package com.oxygenxml.prolog.updater.batch;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.UnsupportedCharsetException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.oxygenxml.prolog.updater.prolog.content.PrologContentCreator;
+import com.oxygenxml.prolog.updater.prolog.edit.PrologEditPlanner;
+import com.oxygenxml.prolog.updater.prolog.edit.PrologInsertion;
+import com.oxygenxml.prolog.updater.prolog.edit.PrologStructure;
+import com.oxygenxml.prolog.updater.prolog.edit.PrologStructureBuilder;
+
+/**
+ * Updates the prolog of DITA files by splicing the fragments into the original bytes.
+ * <br/>
+ * Only the bytes until the end of the prolog are tokenized. The rest of the file is copied
+ * as it is, so the whitespaces, the entity references and the document type declaration
+ * are preserved and the cost depends on the size of the header, not on the size of the file.
+ * <br/>
+ * An empty-element tag of the root, prolog or critdates element (<code>&lt;prolog/&gt;</code>) is spliced too: it's
+ * replaced by a start tag, the inserted fragments and an end tag. The characters of the fragments that can't be
+ * encoded are written as character references. Only the files with an encoding that is not compatible with ASCII
+ * are updated by a {@link StaxPrologUpdater}.
+ * <br/>
+ * The header is read through the file channel in heap buffers that grow until the end of the prolog is found,
+ * so the memory used by a thread depends on the size of the headers, not on the size of the files. The files
+ * are not mapped in memory: a mapped region is released only when its buffer is garbage collected and, on Windows,
+ * a file with a mapped region can't be replaced.
+ */
+public class SplicePrologUpdater implements FilePrologUpdater {
+
+  /**
+   * The number of bytes read first. The buffer is doubled until the end of the prolog is found.
+   */
+  private static final int INITIAL_READ_SIZE = 8 * 1024;
+
+  /**
+   * The end of a start tag, in ASCII.
+   */
+  private static final byte[] TAG_END = new byte[] {'>'};
+
+  /**
+   * The UTF-8 byte order mark.
+   */
+  private static final byte[] UTF8_BOM = new byte[] {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+
+  /**
+   * The bytes of "&lt;?xml" in ASCII.
+   */
+  private static final byte[] XML_DECLARATION_START = "<?xml".getBytes(Charset.forName("US-ASCII"));
+
+  /**
+   * Matches the encoding from the XML declaration.
+   */
+  private static final Pattern ENCODING_PATTERN = Pattern.compile("^<\\?xml[^>]*?encoding\\s*=\\s*[\"']([^\"']+)[\"']");
+
+  /**
+   * The default encoding of the XML documents.
+   */
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  /**
+   * Contains all elements from prolog.
+   */
+  private final PrologContentCreator prologCreator;
+
+  /**
+   * <code>true</code> to update the files as new documents (creator and created date).
+   */
+  private final boolean isNewDocument;
+
+  /**
+   * Updates the files that can't be spliced.
+   */
+  private final StaxPrologUpdater fallbackUpdater;
+
+  /**
+   * Constructor.
+   *
+   * @param prologCreator Contains all elements from prolog.
+   * @param isNewDocument <code>true</code> to update the files as new documents (creator and created date),
+   * <code>false</code> to add the contributor and the revised date.
+   */
+  public SplicePrologUpdater(PrologContentCreator prologCreator, boolean isNewDocument) {
+    this.prologCreator = prologCreator;
+    this.isNewDocument = isNewDocument;
+    this.fallbackUpdater = new StaxPrologUpdater(prologCreator, isNewDocument);
+  }
+
+  /**
+   * @see com.oxygenxml.prolog.updater.batch.FilePrologUpdater#updateFile(java.io.File)
+   */
+  public boolean updateFile(File file) throws IOException {
+    boolean updated = false;
+    boolean fallback = false;
+    File tempFile = null;
+    FileInputStream in = new FileInputStream(file);
+    try {
+      FileChannel channel = in.getChannel();
+      long fileSize = channel.size();
+      ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(INITIAL_READ_SIZE, fileSize));
+      PrologStructureBuilder builder = null;
+      Charset charset = null;
+      int start = 0;
+      while (builder == null) {
+        readFully(channel, buffer);
+        if (charset == null) {
+          start = startsWith(buffer, UTF8_BOM) ? UTF8_BOM.length : 0;
+          charset = detectCharset(buffer, start);
+          if (charset == null) {
+            fallback = true;
+            break;
+          }
+        }
+        boolean endOfInput = buffer.limit() == fileSize;
+        PrologByteScanner scanner = new PrologByteScanner(buffer, charset, endOfInput);
+        builder = new PrologStructureBuilder();
+        scanner.scan(start, builder);
+        if (scanner.isIncomplete()) {
+          if (buffer.capacity() == Integer.MAX_VALUE) {
+            throw new IOException("The prolog was not found in the first " + buffer.limit() + " bytes.");
+          }
+          builder = null;
+          buffer = grow(buffer, fileSize);
+        }
+      }
+
+      if (builder != null && builder.getStructure() != null) {
+        PrologStructure structure = builder.getStructure();
+        List<PrologInsertion> insertions = PrologEditPlanner.createInsertions(structure, prologCreator, isNewDocument);
+        if (!insertions.isEmpty()) {
+          byte[][] fragments = encodeFragments(insertions, charset);
+          byte[] emptyContainerEndTag = builder.hasEmptyContainer()
+              ? ("</" + builder.getEmptyContainerName() + ">").getBytes(charset) : null;
+          tempFile = BatchFileUtil.createTempFile(file);
+          splice(channel, fileSize, insertions, fragments, builder.getEmptyContainerEndOffset(), emptyContainerEndTag,
+              tempFile);
+          updated = true;
+        }
+      }
+    } finally {
+      in.close();
+      if (updated) {
+        BatchFileUtil.replace(tempFile, file);
+      }
+      BatchFileUtil.deleteQuietly(tempFile);
+    }
+
+    if (fallback) {
+      updated = fallbackUpdater.updateFile(file);
+    }
+    return updated;
+  }
+
+  /**
+   * Copy the original bytes to the output file, with the fragments inserted at their offsets.
+   *
+   * @param channel The channel of the original file.
+   * @param fileSize The size of the original file.
+   * @param insertions The insertions, in document order.
+   * @param fragments The encoded fragments of the insertions.
+   * @param emptyContainerEnd The position after the empty-element tag of a container or <code>-1</code>.
+   * The fragments inserted at this position are moved inside the container.
+   * @param emptyContainerEndTag The encoded end tag of the empty container or <code>null</code>.
+   * @param outputFile The output file.
+   * @throws IOException If the file could not be written.
+   */
+  private static void splice(FileChannel channel, long fileSize, List<PrologInsertion> insertions, byte[][] fragments,
+      int emptyContainerEnd, byte[] emptyContainerEndTag, File outputFile) throws IOException {
+    FileOutputStream out = new FileOutputStream(outputFile);
+    try {
+      FileChannel outChannel = out.getChannel();
+      long position = 0;
+      for (int i = 0; i < insertions.size(); i++) {
+        int offset = insertions.get(i).getOffset();
+        boolean inEmptyContainer = offset == emptyContainerEnd;
+        if (inEmptyContainer && position < offset) {
+          // "<name/>" becomes "<name>", the fragments are inserted and the end tag is added after them.
+          transferFully(channel, position, offset - 2 - position, outChannel);
+          write(outChannel, TAG_END);
+        } else {
+          transferFully(channel, position, offset - position, outChannel);
+        }
+        position = offset;
+        write(outChannel, fragments[i]);
+        if (inEmptyContainer && (i + 1 == insertions.size() || insertions.get(i + 1).getOffset() != offset)) {
+          write(outChannel, emptyContainerEndTag);
+        }
+      }
+      transferFully(channel, position, fileSize - position, outChannel);
+    } finally {
+      out.close();
+    }
+  }
+
+  /**
+   * Write all the given bytes in a channel.
+   *
+   * @param channel The channel.
+   * @param bytes The bytes.
+   * @throws IOException If the bytes could not be written.
+   */
+  private static void write(FileChannel channel, byte[] bytes) throws IOException {
+    ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+  }
+
+  /**
+   * Encode the fragments of the insertions.
+   *
+   * @param insertions The insertions.
+   * @param charset The encoding of the document.
+   * @return The encoded fragments. The characters that can't be encoded are written as character references.
+   */
+  private static byte[][] encodeFragments(List<PrologInsertion> insertions, Charset charset) {
+    CharsetEncoder encoder = charset.newEncoder();
+    byte[][] fragments = new byte[insertions.size()][];
+    for (int i = 0; i < fragments.length; i++) {
+      String fragment = insertions.get(i).getFragment();
+      if (!encoder.canEncode(fragment)) {
+        StringBuilder escaped = new StringBuilder(fragment.length() + 16);
+        for (int j = 0; j < fragment.length(); j = fragment.offsetByCodePoints(j, 1)) {
+          int codePoint = fragment.codePointAt(j);
+          String character = new String(Character.toChars(codePoint));
+          if (encoder.canEncode(character)) {
+            escaped.append(character);
+          } else {
+            escaped.append("&#x").append(Integer.toHexString(codePoint).toUpperCase()).append(';');
+          }
+        }
+        fragment = escaped.toString();
+      }
+      fragments[i] = fragment.getBytes(charset);
+    }
+    return fragments;
+  }
+
+  /**
+   * Detect the encoding of the document from the XML declaration.
+   *
+   * @param buffer The first bytes of the document.
+   * @param start The offset after the byte order mark.
+   * @return The encoding or <code>null</code> if the encoding is not supported or it's not compatible with ASCII.
+   */
+  static Charset detectCharset(ByteBuffer buffer, int start) {
+    Charset charset = UTF_8;
+    if (buffer.limit() >= start + 2 && (buffer.get(start) == 0 || buffer.get(start + 1) == 0
+        || (buffer.get(start) & 0xFF) == 0xFE || (buffer.get(start) & 0xFF) == 0xFF)) {
+      // UTF-16 or UTF-32.
+      charset = null;
+    } else if (startsWith(buffer, start, XML_DECLARATION_START)) {
+      int end = start;
+      while (end < buffer.limit() && buffer.get(end) != '>') {
+        end++;
+      }
+      byte[] declaration = new byte[end - start];
+      for (int i = 0; i < declaration.length; i++) {
+        declaration[i] = buffer.get(start + i);
+      }
+      Matcher matcher = ENCODING_PATTERN.matcher(new String(declaration, UTF_8));
+      if (matcher.find()) {
+        try {
+          charset = Charset.forName(matcher.group(1));
+        } catch (IllegalCharsetNameException e) {
+          charset = null;
+        } catch (UnsupportedCharsetException e) {
+          charset = null;
+        }
+        if (charset != null && !Arrays.equals(XML_DECLARATION_START, "<?xml".getBytes(charset))) {
+          charset = null;
+        }
+      }
+    }
+    return charset;
+  }
+
+  /**
+   * Read bytes from the channel until the buffer is full.
+   *
+   * @param channel The channel.
+   * @param buffer The buffer. It's flipped after reading, so it can be read from 0 to its limit.
+   * @throws IOException If the bytes could not be read.
+   */
+  private static void readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining() && channel.read(buffer, buffer.position()) != -1) {
+      // The position of the buffer is updated by the channel.
+    }
+    buffer.flip();
+  }
+
+  /**
+   * Create a bigger buffer that starts with the content of the given one.
+   *
+   * @param buffer The read buffer.
+   * @param fileSize The size of the file.
+   * @return The new buffer, positioned after the copied bytes.
+   */
+  private static ByteBuffer grow(ByteBuffer buffer, long fileSize) {
+    ByteBuffer bigger = ByteBuffer.allocate((int) Math.min(Math.min((long) buffer.capacity() * 2, fileSize), Integer.MAX_VALUE));
+    buffer.rewind();
+    bigger.put(buffer);
+    return bigger;
+  }
+
+  /**
+   * Copy a range of bytes between channels.
+   *
+   * @param source The source channel.
+   * @param position The position of the range.
+   * @param count The length of the range.
+   * @param target The target channel.
+   * @throws IOException If the bytes could not be copied.
+   */
+  private static void transferFully(FileChannel source, long position, long count, FileChannel target) throws IOException {
+    long transferred = 0;
+    while (transferred < count) {
+      transferred += source.transferTo(position + transferred, count - transferred, target);
+    }
+  }
+
+  /**
+   * Check if the buffer starts with the given bytes.
+   *
+   * @param buffer The buffer.
+   * @param bytes The bytes.
+   * @return <code>true</code> if the buffer starts with the bytes.
+   */
+  private static boolean startsWith(ByteBuffer buffer, byte[] bytes) {
+    return startsWith(buffer, 0, bytes);
+  }
+
+  /**
+   * Check if the given bytes are found at an offset of the buffer.
+   *
+   * @param buffer The buffer.
+   * @param offset The offset.
+   * @param bytes The bytes.
+   * @return <code>true</code> if the bytes are found at the offset.
+   */
+  private static boolean startsWith(ByteBuffer buffer, int offset, byte[] bytes) {
+    boolean toReturn = buffer.limit() >= offset + bytes.length;
+    for (int i = 0; toReturn && i < bytes.length; i++) {
+      toReturn = buffer.get(offset + i) == bytes[i];
+    }
+    return toReturn;
+  }
+}
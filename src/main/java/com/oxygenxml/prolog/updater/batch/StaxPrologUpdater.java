@@ -0,0 +1,286 @@
+package com.oxygenxml.prolog.updater.batch;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.xml.stream.XMLEventFactory;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLEventWriter;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.events.Attribute;
+import javax.xml.stream.events.Comment;
+import javax.xml.stream.events.EntityReference;
+import javax.xml.stream.events.StartDocument;
+import javax.xml.stream.events.StartElement;
+import javax.xml.stream.events.XMLEvent;
+
+import com.oxygenxml.prolog.updater.prolog.content.PrologContentCreator;
+import com.oxygenxml.prolog.updater.prolog.edit.PrologEditPlanner;
+import com.oxygenxml.prolog.updater.prolog.edit.PrologInsertion;
+import com.oxygenxml.prolog.updater.prolog.edit.PrologStructure;
+import com.oxygenxml.prolog.updater.prolog.edit.PrologStructureBuilder;
+
+/**
+ * Updates the prolog of DITA files using a streaming StAX parser.
+ * <br/>
+ * Only the events until the end of the prolog are kept in memory, the rest of the document is
+ * streamed to the output. The DTD is not loaded, so the elements are identified by their class
+ * attribute when it's present in the file and by their name otherwise.
+ */
+public class StaxPrologUpdater implements FilePrologUpdater {
+
+  /**
+   * Name of the element that wraps the inserted fragments while they are parsed.
+   */
+  private static final String FRAGMENT_WRAPPER = "wrapper";
+
+  /**
+   * StAX property that reports the CDATA sections as they are.
+   */
+  private static final String REPORT_CDATA_PROPERTY = "http://java.sun.com/xml/stream/properties/report-cdata-event";
+
+  /**
+   * New line written after the XML declaration and the document type declaration.
+   */
+  private static final XMLEvent NEW_LINE = XMLEventFactory.newInstance().createCharacters("\n");
+
+  /**
+   * The input factory of each thread. StAX factories are not thread safe.
+   */
+  static final ThreadLocal<XMLInputFactory> INPUT_FACTORY = new ThreadLocal<XMLInputFactory>() {
+    @Override
+    protected XMLInputFactory initialValue() {
+      XMLInputFactory factory = XMLInputFactory.newInstance();
+      factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+      factory.setProperty(XMLInputFactory.IS_REPLACING_ENTITY_REFERENCES, false);
+      factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
+      if (factory.isPropertySupported(REPORT_CDATA_PROPERTY)) {
+        factory.setProperty(REPORT_CDATA_PROPERTY, true);
+      }
+      return factory;
+    }
+  };
+
+  /**
+   * The output factory of each thread.
+   */
+  private static final ThreadLocal<XMLOutputFactory> OUTPUT_FACTORY = new ThreadLocal<XMLOutputFactory>() {
+    @Override
+    protected XMLOutputFactory initialValue() {
+      return XMLOutputFactory.newInstance();
+    }
+  };
+
+  /**
+   * Contains all elements from prolog.
+   */
+  private final PrologContentCreator prologCreator;
+
+  /**
+   * <code>true</code> to update the files as new documents (creator and created date).
+   */
+  private final boolean isNewDocument;
+
+  /**
+   * The parsed fragments, mapped by their XML content.
+   */
+  private final Map<String, List<XMLEvent>> fragmentsEvents = new ConcurrentHashMap<String, List<XMLEvent>>();
+
+  /**
+   * Constructor.
+   *
+   * @param prologCreator Contains all elements from prolog.
+   * @param isNewDocument <code>true</code> to update the files as new documents (creator and created date),
+   * <code>false</code> to add the contributor and the revised date.
+   */
+  public StaxPrologUpdater(PrologContentCreator prologCreator, boolean isNewDocument) {
+    this.prologCreator = prologCreator;
+    this.isNewDocument = isNewDocument;
+  }
+
+  /**
+   * @see com.oxygenxml.prolog.updater.batch.FilePrologUpdater#updateFile(java.io.File)
+   */
+  public boolean updateFile(File file) throws IOException {
+    boolean updated = false;
+    File tempFile = null;
+    InputStream in = new BufferedInputStream(new FileInputStream(file));
+    try {
+      XMLEventReader reader = INPUT_FACTORY.get().createXMLEventReader(in);
+      List<XMLEvent> header = new ArrayList<XMLEvent>();
+      PrologStructure structure = readHeader(reader, header);
+      if (structure != null) {
+        List<PrologInsertion> insertions = PrologEditPlanner.createInsertions(structure, prologCreator, isNewDocument);
+        if (!insertions.isEmpty()) {
+          tempFile = BatchFileUtil.createTempFile(file);
+          OutputStream out = new BufferedOutputStream(new FileOutputStream(tempFile));
+          try {
+            write(reader, header, insertions, out);
+          } finally {
+            out.close();
+          }
+          updated = true;
+        }
+      }
+      reader.close();
+    } catch (XMLStreamException e) {
+      throw new IOException(file + ": " + e.getMessage(), e);
+    } finally {
+      in.close();
+      if (updated) {
+        BatchFileUtil.replace(tempFile, file);
+      }
+      BatchFileUtil.deleteQuietly(tempFile);
+    }
+    return updated;
+  }
+
+  /**
+   * Read the events until the end of the prolog and collect the structure of the prolog.
+   * The offsets from the structure are indexes in the list of events.
+   *
+   * @param reader The events reader.
+   * @param header Receives the read events.
+   * @return The prolog structure or <code>null</code> if the document is not a DITA topic or map.
+   * @throws XMLStreamException If the document could not be parsed.
+   */
+  private PrologStructure readHeader(XMLEventReader reader, List<XMLEvent> header) throws XMLStreamException {
+    PrologStructureBuilder builder = new PrologStructureBuilder();
+    while (!builder.isFinished() && reader.hasNext()) {
+      XMLEvent event = reader.nextEvent();
+      header.add(event);
+      int index = header.size();
+
+      switch (event.getEventType()) {
+        case XMLEvent.START_ELEMENT:
+          StartElement startElement = event.asStartElement();
+          builder.startElement(startElement.getName().getLocalPart(), getAttributes(startElement), index, false);
+          break;
+        case XMLEvent.END_ELEMENT:
+          builder.endElement(index - 1, index, event.asEndElement().getName().getLocalPart());
+          break;
+        case XMLEvent.CHARACTERS:
+        case XMLEvent.CDATA:
+          builder.characters(event.asCharacters().getData());
+          break;
+        case XMLEvent.ENTITY_REFERENCE:
+          builder.characters("&" + ((EntityReference) event).getName() + ";");
+          break;
+        case XMLEvent.COMMENT:
+          builder.comment(((Comment) event).getText());
+          break;
+        default:
+          break;
+      }
+    }
+    return builder.getStructure();
+  }
+
+  /**
+   * Write the read events with the inserted fragments, then the rest of the document.
+   *
+   * @param reader The events reader.
+   * @param header The events read until the end of the prolog.
+   * @param insertions The fragments to insert, in document order.
+   * @param out The output stream.
+   * @throws XMLStreamException If the document could not be written.
+   */
+  private void write(XMLEventReader reader, List<XMLEvent> header, List<PrologInsertion> insertions, OutputStream out)
+      throws XMLStreamException {
+    String encoding = "UTF-8";
+    if (!header.isEmpty() && header.get(0).isStartDocument()) {
+      StartDocument startDocument = (StartDocument) header.get(0);
+      if (startDocument.encodingSet()) {
+        encoding = startDocument.getCharacterEncodingScheme();
+      }
+    }
+
+    XMLEventWriter writer = OUTPUT_FACTORY.get().createXMLEventWriter(out, encoding);
+    int next = 0;
+    int size = header.size();
+    for (int i = 0; i <= size; i++) {
+      while (next < insertions.size() && insertions.get(next).getOffset() == i) {
+        for (XMLEvent fragmentEvent : getFragmentEvents(insertions.get(next).getFragment())) {
+          writer.add(fragmentEvent);
+        }
+        next++;
+      }
+      if (i < size) {
+        XMLEvent event = header.get(i);
+        writer.add(event);
+        if (event.isStartDocument() || event.getEventType() == XMLEvent.DTD) {
+          // The whitespaces outside the root element are not reported by the parser.
+          writer.add(NEW_LINE);
+        }
+      }
+    }
+
+    while (reader.hasNext()) {
+      writer.add(reader.nextEvent());
+    }
+    writer.close();
+  }
+
+  /**
+   * Get the events of the given fragment.
+   *
+   * @param fragment The XML fragment.
+   * @return The events of the fragment.
+   * @throws XMLStreamException If the fragment could not be parsed.
+   */
+  private List<XMLEvent> getFragmentEvents(String fragment) throws XMLStreamException {
+    List<XMLEvent> events = fragmentsEvents.get(fragment);
+    if (events == null) {
+      events = new ArrayList<XMLEvent>();
+      String wrapped = "<" + FRAGMENT_WRAPPER + ">" + fragment + "</" + FRAGMENT_WRAPPER + ">";
+      XMLEventReader reader = INPUT_FACTORY.get().createXMLEventReader(new StringReader(wrapped));
+      int depth = 0;
+      while (reader.hasNext()) {
+        XMLEvent event = reader.nextEvent();
+        if (event.isStartElement()) {
+          depth++;
+        } else if (event.isEndElement()) {
+          depth--;
+        }
+        boolean isWrapper = (event.isStartElement() && depth == 1) || (event.isEndElement() && depth == 0);
+        if (!isWrapper && !event.isStartDocument() && !event.isEndDocument()) {
+          events.add(event);
+        }
+      }
+      reader.close();
+      fragmentsEvents.put(fragment, events);
+    }
+    return events;
+  }
+
+  /**
+   * Get the attributes of an element.
+   *
+   * @param element The element.
+   * @return The values of the attributes, mapped by their local name.
+   */
+  private static Map<String, String> getAttributes(StartElement element) {
+    Map<String, String> attributes = new HashMap<String, String>();
+    Iterator<?> iterator = element.getAttributes();
+    while (iterator.hasNext()) {
+      Attribute attribute = (Attribute) iterator.next();
+      attributes.put(attribute.getName().getLocalPart(), attribute.getValue());
+    }
+    return attributes;
+  }
+}
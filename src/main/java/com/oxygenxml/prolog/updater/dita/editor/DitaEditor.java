@@ -15,4 +15,41 @@ public interface DitaEditor {
 	 */
 	boolean updateProlog( boolean isNewDocument);
 	
+	/**
+	 * Analyze the document and compute the edits that update its prolog. The document is not changed.
+	 * Must be called on the AWT thread.
+	 * @param isNewDocument <code>true</code> if document is new, <code>false</code> otherwise
+	 * 
+	 * @return The edits or <code>null</code> if the document could not be analyzed.
+	 */
+	PrologEditPlan createEditPlan(boolean isNewDocument);
+	
+	/**
+	 * Apply the edits computed by {@link #createEditPlan(boolean)}. Must be called on the AWT thread.
+	 * @param plan The edits.
+	 * 
+	 * @return <code>true</code> if prolog was update, <code>false</code> otherwise.
+	 */
+	boolean applyEditPlan(PrologEditPlan plan);
+	
+	/**
+	 * @return The document type( {@link DocumentType#TOPIC}, {@link DocumentType#MAP} or {@link DocumentType#BOOKMAP}  ).
+	 */
+	DocumentType getDocumentType();
+	
+	/**
+	 * Record the location and the content of the prolog element.
+	 * 
+	 * @return The marker or <code>null</code> if the document doesn't have a prolog element.
+	 */
+	PrologMarker markProlog();
+	
+	/**
+	 * Check if the prolog element is still the one recorded by {@link #markProlog()}.
+	 * @param marker The marker of the prolog.
+	 * 
+	 * @return <code>true</code> if the prolog element was not changed since it was marked.
+	 */
+	boolean isPrologUnchanged(PrologMarker marker);
+	
 }
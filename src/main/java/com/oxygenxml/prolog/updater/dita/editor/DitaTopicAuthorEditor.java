@@ -1,19 +1,27 @@
 package com.oxygenxml.prolog.updater.dita.editor;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
 
 import javax.swing.text.BadLocationException;
+import javax.swing.text.Position;
 
 import org.apache.log4j.Logger;
 
 import com.oxygenxml.prolog.updater.prolog.content.PrologContentCreator;
+import com.oxygenxml.prolog.updater.prolog.edit.PrologAuthor;
+import com.oxygenxml.prolog.updater.prolog.edit.PrologEditPlanner;
+import com.oxygenxml.prolog.updater.prolog.edit.PrologInsertion;
+import com.oxygenxml.prolog.updater.prolog.edit.PrologRevised;
+import com.oxygenxml.prolog.updater.prolog.edit.PrologStructure;
+import com.oxygenxml.prolog.updater.utils.AuthorClassIndex;
 import com.oxygenxml.prolog.updater.utils.AuthorPageDocumentUtil;
-import com.oxygenxml.prolog.updater.utils.ElementXPathUtils;
-import com.oxygenxml.prolog.updater.utils.XMLFragmentUtils;
 import com.oxygenxml.prolog.updater.utils.XmlElementsConstants;
 import com.oxygenxml.prolog.updater.utils.XmlElementsUtils;
 
-import ro.sync.ecss.extensions.api.AuthorConstants;
 import ro.sync.ecss.extensions.api.AuthorDocumentController;
 import ro.sync.ecss.extensions.api.AuthorOperationException;
 import ro.sync.ecss.extensions.api.node.AttrValue;
@@ -34,6 +42,13 @@ public class DitaTopicAuthorEditor implements DitaEditor{
 	 * Logger
 	 */
 	private static final Logger logger = Logger.getLogger(DitaTopicAuthorEditor.class);
+	
+	/**
+	 * The types of the opened documents, mapped by their root element. A document that is reloaded
+	 * or whose root is replaced gets a new root element, so its type is detected again.
+	 */
+	private static final Map<AuthorElement, DocumentType> DOCUMENT_TYPES =
+	    Collections.synchronizedMap(new WeakHashMap<AuthorElement, DocumentType>());
 	 
 	/**
 	 * Contains all elements(tags) from prolog.
@@ -54,6 +69,16 @@ public class DitaTopicAuthorEditor implements DitaEditor{
 	 * The page from WsEditor.
 	 */
   private WSEditorPage page;
+
+	/**
+	 * The class tokens of the elements searched during this update.
+	 */
+	private final AuthorClassIndex classIndex = new AuthorClassIndex();
+	
+	/**
+	 * <code>true</code> if the fragments are inserted with the help of the schema.
+	 */
+	private boolean schemaAware = true;
 	
 	/**
 	 * Constructor
@@ -71,12 +96,18 @@ public class DitaTopicAuthorEditor implements DitaEditor{
 		
     if(documentController != null) {
     	AuthorElement rootElement = documentController.getAuthorDocumentNode().getRootElement();
-    	AttrValue classValue = rootElement.getAttribute(XmlElementsConstants.CLASS);
-    	if (classValue != null && classValue.getValue().contains(" map/map ")) {
-    		documentType = DocumentType.MAP;
-    	}
-    	if (classValue != null && classValue.getValue().contains(" bookmap/bookmap ")) {
-    		documentType = DocumentType.BOOKMAP;
+    	DocumentType knownType = DOCUMENT_TYPES.get(rootElement);
+    	if (knownType != null) {
+    	  documentType = knownType;
+    	} else {
+    	  AttrValue classValue = rootElement.getAttribute(XmlElementsConstants.CLASS);
+    	  if (classValue != null && classValue.getValue().contains(" map/map ")) {
+    	    documentType = DocumentType.MAP;
+    	  }
+    	  if (classValue != null && classValue.getValue().contains(" bookmap/bookmap ")) {
+    	    documentType = DocumentType.BOOKMAP;
+    	  }
+    	  DOCUMENT_TYPES.put(rootElement, documentType);
     	}
     	
     	prologCreator = prologContentCreator;
@@ -91,209 +122,323 @@ public class DitaTopicAuthorEditor implements DitaEditor{
 	 * @return <code>true</code> if prolog was update, <code>false</code> otherwise.
 	 */
 	public boolean updateProlog(boolean isNewDocument) {
-		boolean toReturn = true;
+		PrologEditPlan plan = createEditPlan(isNewDocument);
+		return plan != null && applyEditPlan(plan);
+	}
+
+	
+	/**
+	 * Analyze the document(author mode) and compute the edits that update its prolog.
+	 * The rules are the ones of {@link PrologEditPlanner}.
+	 * @param isNewDocument <code>true</code> if document is new, <code>false</code> otherwise
+	 * 
+	 * @return The edits or <code>null</code> if the document could not be analyzed.
+	 */
+	public PrologEditPlan createEditPlan(boolean isNewDocument) {
+		PrologEditPlan toReturn = null;
 		if(documentController != null) {
+			List<PrologEdit> edits = new ArrayList<PrologEdit>();
 			// Get the root element.
 			AuthorElement rootElement = documentController.getAuthorDocumentNode().getRootElement();
 			
-			if (rootElement != null) {
-				// Get the prolog element.
-				AuthorElement prolog = AuthorPageDocumentUtil.findElementByClass(rootElement, XmlElementsUtils.getPrologClass(documentType));
+			if (rootElement != null && prologCreator.getPrologFragment(isNewDocument, documentType) != null) {
+				PrologStructure structure = createPrologStructure(rootElement);
 				try {
-					if (prolog != null) {
-						// Prolog element exists; edit this element.
-						editProlog(prolog, isNewDocument);
+					for (PrologInsertion insertion : PrologEditPlanner.createInsertions(structure, prologCreator, isNewDocument)) {
+						// The position follows the changes made before the plan is applied.
+						edits.add(new PrologEdit(insertion.getFragment(), documentController.createPositionInContent(insertion.getOffset())));
+					}
+					toReturn = new PrologEditPlan(edits);
+				} catch (BadLocationException e) {
+					logger.debug(e.getMessage(), e);
+				}
+			} else {
+				toReturn = new PrologEditPlan(edits);
+			}
+		}
+		return toReturn;
+	}
+
+	
+	/**
+	 * Choose how the fragments are inserted. The schema is not needed when the offsets are already computed,
+	 * but it's used by default to adjust the fragments to the context.
+	 * @param schemaAware <code>true</code> to insert the fragments with the help of the schema.
+	 */
+	public void setSchemaAware(boolean schemaAware) {
+		this.schemaAware = schemaAware;
+	}
+	
+	/**
+	 * @return The number of characters of the document or <code>0</code> if the page is not supported.
+	 */
+	public int getDocumentSize() {
+		return documentController != null ? documentController.getAuthorDocumentNode().getEndOffset() + 1 : 0;
+	}
+
+	
+	/**
+	 * Insert the fragments from the given plan, as a single undoable edit. The layout is updated
+	 * once, after all the fragments were inserted.
+	 * @param plan The edits computed by {@link #createEditPlan(boolean)}.
+	 * 
+	 * @return <code>true</code> if prolog was update, <code>false</code> otherwise.
+	 */
+	public boolean applyEditPlan(PrologEditPlan plan) {
+		boolean toReturn = true;
+		List<PrologEdit> edits = plan.getEdits();
+		int size = edits.size();
+		if (size > 0) {
+			// Read all the offsets before changing the document.
+			int[] offsets = new int[size];
+			for (int i = 0; i < size; i++) {
+				offsets[i] = edits.get(i).getPosition().getOffset();
+			}
+			Position caretPosition = createCaretPosition();
+			AuthorNode changedNode = findChangedNode(offsets[0], offsets[size - 1]);
+
+			documentController.beginCompoundEdit();
+			documentController.disableLayoutUpdate();
+			boolean inserted = false;
+			try {
+				// Insert from the end of the document, so the offsets of the remaining edits stay valid.
+				// The edits with the same offset are inserted in reverse order, so they end up in the plan order.
+				for (int i = size - 1; i >= 0; i--) {
+					if (schemaAware) {
+						documentController.insertXMLFragmentSchemaAware(edits.get(i).getFragment(), offsets[i]);
 					} else {
-						// Add the prolog element.
-						addProlog(isNewDocument);
+						documentController.insertXMLFragment(edits.get(i).getFragment(), offsets[i]);
 					}
-				} catch (AuthorOperationException e) {
-					toReturn = false;
+				}
+				inserted = true;
+			} catch (AuthorOperationException e) {
+				logger.debug(e.getMessage(), e);
+				toReturn = false;
+			} finally {
+				// The changed elements must be indexed again.
+				if (changedNode != null) {
+					classIndex.forget(changedNode);
+				} else {
+					classIndex.forget(documentController.getAuthorDocumentNode());
+				}
+				documentController.enableLayoutUpdate(changedNode);
+				if (inserted) {
+					documentController.endCompoundEdit();
+				} else {
+					// Undo the fragments that were inserted.
+					documentController.cancelCompoundEdit();
 				}
 			}
-		} else {
-			toReturn = false;
+
+			// Restore the caret position.
+			if (caretPosition != null) {
+				((WSAuthorEditorPage) page).setCaretPosition(caretPosition.getOffset());
+			}
 		}
-		
 		return toReturn;
 	}
 
 	
-	 /**
-   * Add the prolog element.
-   * @param isNewDocument <code>true</code> if document is new, <code>false</code>otherwise.
-	 * @throws AuthorOperationException If the prolog could not be added.
-   */
-	private void addProlog(boolean isNewDocument) throws AuthorOperationException {
-		String prologFragment = prologCreator.getPrologFragment(isNewDocument, documentType);
-		String prologXpath = AuthorPageDocumentUtil.findPrologXPath(documentController, documentType);
-		
-		if(prologXpath != null) {
-				AuthorPageDocumentUtil.insertFragmentSchemaAware(page, documentController, prologFragment, prologXpath, AuthorConstants.POSITION_AFTER);
-		}	else {
-			AuthorPageDocumentUtil.insertFragmentSchemaAware(page, documentController, prologFragment, ElementXPathUtils.getRootXpath(documentType),
-					AuthorConstants.POSITION_INSIDE_FIRST);
+	/**
+	 * @return A position that follows the caret or <code>null</code> if the page has no caret.
+	 */
+	private Position createCaretPosition() {
+		Position toReturn = null;
+		if (page instanceof WSAuthorEditorPage) {
+			int caretOffset = ((WSAuthorEditorPage) page).getCaretOffset();
+			if (caretOffset != -1) {
+				try {
+					toReturn = documentController.createPositionInContent(caretOffset);
+				} catch (BadLocationException e) {
+					logger.debug(e.getMessage(), e);
+				}
+			}
 		}
+		return toReturn;
 	}
 
 	
 	/**
-	 * Edit the given prolog element.
-	 * @param critdates The element to be edited. <code>Not null</code>
-	 * @param isNewDocument  <code>true</code> if document is new, <code>false</code>otherwise.
-	 * @throws AuthorOperationException If the prolog could not be edited.
+	 * Find the node that contains all the insert offsets, so only this node is laid out again.
+	 * @param firstOffset The first insert offset.
+	 * @param lastOffset The last insert offset.
+	 * 
+	 * @return The node or <code>null</code> to lay out the whole document.
 	 */
-	private void editProlog(AuthorElement prolog, boolean isNewDocument) throws AuthorOperationException {
-			// Updates the creators and/or contributors of document
-			updateAuthorElements(prolog, isNewDocument);
-			
-			// Update the critdates element .
-			updateCritdates(prolog, isNewDocument);
+	private AuthorNode findChangedNode(int firstOffset, int lastOffset) {
+		AuthorNode toReturn = null;
+		try {
+			AuthorNode first = documentController.getNodeAtOffset(firstOffset);
+			AuthorNode last = documentController.getNodeAtOffset(lastOffset);
+			// Search the common ancestor.
+			for (AuthorNode node = first; node != null && toReturn == null; node = node.getParent()) {
+				if (node.getStartOffset() <= last.getStartOffset() && last.getEndOffset() <= node.getEndOffset()) {
+					toReturn = node;
+				}
+			}
+		} catch (BadLocationException e) {
+			logger.debug(e.getMessage(), e);
+		}
+		return toReturn;
 	}
 
 	
-  /**
-   * Update the critdates element.
-   * 
-   * @param prolog The prolog author element. Not <code>null</code>.
-   * @param isNewDocument <code>true</code> if document is new, <code>false</code>otherwise.
-   * @throws AuthorOperationException If the element could not be update.
-   */
-  private void updateCritdates(AuthorElement prolog, boolean isNewDocument) throws AuthorOperationException {
-    // Where to insert
-    AuthorElement cridates = AuthorPageDocumentUtil.findElementByClass(prolog, XmlElementsConstants.TOPIC_CRITDATES_CLASS);
-    if (cridates != null) {
-    	// The critdates element exists, edit the content of this element.
-    	editCritdates(cridates, isNewDocument);
-    } else {
-    	// The critdates element doesn't exist, add this element.
-    	addCritdates(prolog, isNewDocument);
-    }
-  }
+	/**
+	 * @see com.oxygenxml.prolog.updater.dita.editor.DitaEditor#getDocumentType()
+	 */
+	public DocumentType getDocumentType() {
+		return documentType;
+	}
 
-  
-  /**
-   * Add the critdates element into the given prolog element.
-   * @param prolog The prolog element where the critdates is add. <code>Not null</code>  
-   * @param isNewDocument <code>true</code> if document is new, <code>false</code>otherwise.
-   * @throws AuthorOperationException If the element could not be added.
-   */
-	private void addCritdates(AuthorElement prolog, boolean isNewDocument) throws AuthorOperationException {
-		int offset = -1;
-		String fragment = null;
-		List<AuthorElement> authors = AuthorPageDocumentUtil.findElementsByClass(prolog, XmlElementsConstants.PROLOG_AUTHOR_ELEMENT_CLASS);
-		// Create an element here.
-		fragment = XMLFragmentUtils.createCritdateTag(prologCreator.getDateFragment(isNewDocument, documentType));
-		if(authors.isEmpty()) {
-		  offset = prolog.getEndOffset();
-		} else {
-		  AuthorElement lastAuthorElement = authors.get(authors.size()-1);
-		  offset = lastAuthorElement.getEndOffset() + 1;
+	
+	/**
+	 * Record the offsets and the serialized content of the prolog element.
+	 * 
+	 * @return The marker or <code>null</code> if the document doesn't have a prolog element.
+	 */
+	public PrologMarker markProlog() {
+		PrologMarker toReturn = null;
+		AuthorElement prolog = findProlog();
+		if (prolog != null) {
+			try {
+				toReturn = new PrologMarker(
+						documentController.createPositionInContent(prolog.getStartOffset()),
+						documentController.createPositionInContent(prolog.getEndOffset()),
+						serialize(prolog));
+			} catch (BadLocationException e) {
+				logger.debug(e.getMessage(), e);
+			}
 		}
-		AuthorPageDocumentUtil.insertFragmentSchemaAware(page, documentController, fragment, offset);
+		return toReturn;
 	}
-  
+
 	
 	/**
-	 * Edit the given critdate element.
-	 * @param critdates The element to be edited. <code>Not null</code>
-	 * @param isNewDocument  <code>true</code> if document is new, <code>false</code>otherwise.
-	 * @throws AuthorOperationException If the element could not be edited.
+	 * Check if the prolog element has the marked offsets and content.
+	 * @param marker The marker of the prolog.
+	 * 
+	 * @return <code>true</code> if the prolog element was not changed since it was marked.
 	 */
-  private void editCritdates(AuthorElement critdates, boolean isNewDocument) throws AuthorOperationException {
-    if (isNewDocument) {
-      AuthorElement createdElement = AuthorPageDocumentUtil.findElementByClass(critdates, XmlElementsConstants.CREATED_DATE_ELEMENT_CLASS);
-      // Was not added yet. 
-      if (createdElement == null) {
-        // Add it.
-      	AuthorPageDocumentUtil.insertFragmentSchemaAware(page, 
-      			documentController,
-      			prologCreator.getCreatedDateFragment(documentType),
-      			critdates.getStartOffset() + 1);
-      }
-    } else {
-      // it's not a new document
-      // add revised element
-			addRevisedElement(critdates);
-    }
-  
-  }
-  
-  
+	public boolean isPrologUnchanged(PrologMarker marker) {
+		boolean toReturn = false;
+		AuthorElement prolog = findProlog();
+		if (prolog != null 
+				&& prolog.getStartOffset() == marker.getStart().getOffset() 
+				&& prolog.getEndOffset() == marker.getEnd().getOffset()) {
+			try {
+				toReturn = marker.getContent().equals(serialize(prolog));
+			} catch (BadLocationException e) {
+				logger.debug(e.getMessage(), e);
+			}
+		}
+		return toReturn;
+	}
+
+	
 	/**
-	 * Add the revised element if it doesn't exits.
-	 * @param critdatesElement critdates element(element that has revised child). <code>Not null</code>
-	 * @throws AuthorOperationException If the element could not be added.
+	 * @return The prolog element or <code>null</code>.
 	 */
-	private void addRevisedElement(AuthorElement critdatesElement) throws AuthorOperationException{
-		boolean localDateWithAuthorCommentExist = false;
+	private AuthorElement findProlog() {
+		AuthorElement toReturn = null;
+		if (documentController != null) {
+			AuthorElement rootElement = documentController.getAuthorDocumentNode().getRootElement();
+			if (rootElement != null) {
+				toReturn = classIndex.getElement(rootElement, XmlElementsUtils.getPrologClass(documentType));
+			}
+		}
+		return toReturn;
+	}
 
-		// get revised elements
-		List<AuthorElement> revisedElements = AuthorPageDocumentUtil.findElementsByClass(critdatesElement, XmlElementsConstants.REVISED_DATE_ELEMENT_CLASS);
-		int revisedElementSize = revisedElements.size();
+	
+	/**
+	 * Serialize the given element, with its attributes, comments and content.
+	 * @param element The element.
+	 * 
+	 * @return The XML content.
+	 * @throws BadLocationException If the element could not be serialized.
+	 */
+	private String serialize(AuthorElement element) throws BadLocationException {
+		return documentController.serializeFragmentToXML(documentController.createDocumentFragment(element, true));
+	}
+	
+	/**
+	 * Collect the prolog elements and the positions where fragments can be inserted.
+	 * @param rootElement The root element. <code>Not null</code>
+	 * 
+	 * @return The structure of the prolog.
+	 */
+	private PrologStructure createPrologStructure(AuthorElement rootElement) {
+		PrologStructure structure = new PrologStructure();
+		structure.setDocumentType(documentType);
+		structure.setRootFirstChildOffset(rootElement.getStartOffset() + 1);
 
-		// Iterate over revised elements
-		for (AuthorElement current : revisedElements) {
-		  // check the modified value.
-		  AttrValue modifiedDate = current.getAttribute(XmlElementsConstants.MODIFIED_ATTRIBUTE);
-		  if (modifiedDate != null && prologCreator.getLocalDate().equals(modifiedDate.getRawValue())) {
-				try {
-					// Get the previous node
-					AuthorNode previousSibling = documentController.getNodeAtOffset(current.getStartOffset() - 1);
-					// and check if it's a comment.
-					if (previousSibling.getType() == AuthorNode.NODE_TYPE_COMMENT
-							&& prologCreator.getAuthor().equals(previousSibling.getTextContent())) {
-						localDateWithAuthorCommentExist = true;
-						break;
-					}
-				} catch (BadLocationException e) {
-					logger.debug(e.getMessage(), e);
+		// Get the prolog element.
+		AuthorElement prolog = classIndex.getElement(rootElement, XmlElementsUtils.getPrologClass(documentType));
+		if (prolog == null) {
+			// The schema is queried only when the prolog must be added.
+			structure.setPrologPredecessorEndOffset(AuthorPageDocumentUtil.findPrologPredecessorEndOffset(documentController, documentType));
+		} else {
+			structure.setPrologFirstChildOffset(prolog.getStartOffset() + 1);
+			structure.setPrologLastChildOffset(prolog.getEndOffset());
+
+			for (AuthorElement author : classIndex.getElements(prolog, XmlElementsConstants.PROLOG_AUTHOR_ELEMENT_CLASS)) {
+				AttrValue type = author.getAttribute(XmlElementsConstants.TYPE_ATTRIBUTE);
+				structure.addAuthor(new PrologAuthor(type != null ? type.getValue() : null, getTextContent(author),
+						author.getEndOffset() + 1));
+			}
+
+			AuthorElement critdates = classIndex.getElement(prolog, XmlElementsConstants.TOPIC_CRITDATES_CLASS);
+			if (critdates != null) {
+				structure.setCritdatesFirstChildOffset(critdates.getStartOffset() + 1);
+				structure.setCritdatesLastChildOffset(critdates.getEndOffset());
+				structure.setHasCreated(
+						classIndex.getElement(critdates, XmlElementsConstants.CREATED_DATE_ELEMENT_CLASS) != null);
+				for (AuthorElement revised : classIndex.getElements(critdates, XmlElementsConstants.REVISED_DATE_ELEMENT_CLASS)) {
+					AttrValue modified = revised.getAttribute(XmlElementsConstants.MODIFIED_ATTRIBUTE);
+					structure.addRevised(new PrologRevised(modified != null ? modified.getRawValue() : null,
+							getPreviousComment(revised), revised.getEndOffset() + 1));
 				}
-		  }
+			}
 		}
-		if (!localDateWithAuthorCommentExist) {
-		  int offset = critdatesElement.getEndOffset();
-		  String fragment = prologCreator.getRevisedDateFragment(documentType);
-			if (revisedElementSize != 0) {
-        offset = revisedElements.get(revisedElementSize -1).getEndOffset()+1;
+		return structure;
+	}
+
+	
+	/**
+	 * Get the text of the comment that precedes the given node.
+	 * @param node The node.
+	 * 
+	 * @return The text of the comment or <code>null</code> if the previous sibling is not a comment.
+	 */
+	private String getPreviousComment(AuthorNode node) {
+		String toReturn = null;
+		try {
+			// Get the previous node
+			AuthorNode previousSibling = documentController.getNodeAtOffset(node.getStartOffset() - 1);
+			// and check if it's a comment.
+			if (previousSibling.getType() == AuthorNode.NODE_TYPE_COMMENT) {
+				toReturn = previousSibling.getTextContent();
 			}
-			// Now insert it.
-			AuthorPageDocumentUtil.insertFragmentSchemaAware(page, documentController, fragment, offset);
+		} catch (BadLocationException e) {
+			logger.debug(e.getMessage(), e);
 		}
+		return toReturn;
 	}
 
 	
 	/**
-   * Update the document adding the names of the authors.
-   * 
-   * @param prolog The prolog element. Never <code>null</code>.
-   * @param isNewDocument <code>true</code> if document is new, <code>false</code>otherwise.
-   * 
-	 * @throws AuthorOperationException If the element could not be update.
-   */
-  private void updateAuthorElements(AuthorElement prolog, boolean isNewDocument) throws AuthorOperationException {
-		String type = isNewDocument ? XmlElementsConstants.CREATOR_TYPE : XmlElementsConstants.CONTRIBUTOR_TYPE;
-  	
-  	List<AuthorElement> authors = AuthorPageDocumentUtil.findElementsByClass(prolog, XmlElementsConstants.PROLOG_AUTHOR_ELEMENT_CLASS);
-    final int length = authors.size();
-    
-    // Search for author with given type.
-    boolean hasAuthor = AuthorPageDocumentUtil.hasAuthor(authors, type, prologCreator.getAuthor());
-    
-    String fragment = null;
-    int offset = prolog.getStartOffset() + 1;
-    
-    if (!hasAuthor && XmlElementsConstants.CONTRIBUTOR_TYPE.equals(type)) {
-      // if wasn't found this contributor
-      fragment = prologCreator.getContributorFragment(documentType);
-      if(length > 0){
-        AuthorElement lastAuthor = authors.get(length - 1);
-        offset = lastAuthor.getEndOffset() + 1;
-      }
-    } else if (!hasAuthor && XmlElementsConstants.CREATOR_TYPE.equals(type)) {
-      fragment = prologCreator.getCreatorFragment(documentType);
-    }
-    
-    AuthorPageDocumentUtil.insertFragmentSchemaAware(page, documentController, fragment, offset);
-  }
+	 * Get the text content of the given node.
+	 * @param node The node.
+	 * 
+	 * @return The text content or <code>null</code> if it could not be read.
+	 */
+	private static String getTextContent(AuthorNode node) {
+		String toReturn = null;
+		try {
+			toReturn = node.getTextContent();
+		} catch (BadLocationException e) {
+			logger.debug(e.getMessage(), e);
+		}
+		return toReturn;
+	}
 }
@@ -1,12 +1,26 @@
 package com.oxygenxml.prolog.updater.dita.editor;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+
 import org.apache.log4j.Logger;
 
 import com.oxygenxml.prolog.updater.prolog.content.PrologContentCreator;
+import com.oxygenxml.prolog.updater.prolog.edit.PrologAuthor;
+import com.oxygenxml.prolog.updater.prolog.edit.PrologEditPlanner;
+import com.oxygenxml.prolog.updater.prolog.edit.PrologInsertion;
+import com.oxygenxml.prolog.updater.prolog.edit.PrologRevised;
+import com.oxygenxml.prolog.updater.prolog.edit.PrologStructure;
+import com.oxygenxml.prolog.updater.prolog.edit.PrologStructureBuilder;
+import com.oxygenxml.prolog.updater.utils.TextFragmentFormatter;
 import com.oxygenxml.prolog.updater.utils.TextPageDocumentUtil;
-import com.oxygenxml.prolog.updater.utils.XMLFragmentUtils;
+import com.oxygenxml.prolog.updater.utils.XmlElementsConstants;
 import com.oxygenxml.prolog.updater.utils.ElementXPathConstants;
 import com.oxygenxml.prolog.updater.utils.ElementXPathUtils;
+import com.oxygenxml.prolog.updater.utils.PrologRegionTracker;
 
 import ro.sync.exml.editor.xmleditor.operations.context.RelativeInsertPosition;
 import ro.sync.exml.workspace.api.editor.page.text.xml.TextDocumentController;
@@ -57,22 +71,44 @@ public class DitaTopicTextEditor implements DitaEditor {
 		this.wsTextEditorPage = wsEditorPage;
 		this.documentController = wsTextEditorPage.getDocumentController();
 		
-		try {
-      WSXMLTextNodeRange[] mapRoot = wsTextEditorPage.findElementsByXPath(ElementXPathConstants.ROOT_MAP_XPATH);
-      if (mapRoot.length != 0) {
-        documentType = DocumentType.MAP;
-      }
-      WSXMLTextNodeRange[] bookmapRoot = wsTextEditorPage.findElementsByXPath(ElementXPathConstants.ROOT_BOOKMAP_XPATH);
-      if (bookmapRoot.length != 0) {
-        documentType = DocumentType.BOOKMAP;
-      }
-		} catch (XPathException e) {
-      logger.debug(e, e.getCause());
-    }
+		// The type detected by a previous update is kept until the start tag of the root is changed.
+		Document document = wsTextEditorPage.getDocument();
+		PrologRegionTracker tracker = document != null ? PrologRegionTracker.getTracker(document) : null;
+		DocumentType knownType = tracker != null ? tracker.getDocumentType() : null;
+		if (knownType != null) {
+		  documentType = knownType;
+		} else {
+		  documentType = detectDocumentType();
+		  if (tracker != null) {
+		    tracker.setDocumentType(documentType);
+		  }
+		}
 		
 		this.prologCreator = prologCreator;
 	}
 	
+	/**
+	 * Detect the type of the document from the class of the root element.
+	 * 
+	 * @return The type of the document( {@link DocumentType#TOPIC}, {@link DocumentType#MAP} or {@link DocumentType#BOOKMAP}  ).
+	 */
+	private DocumentType detectDocumentType() {
+	  DocumentType toReturn = DocumentType.TOPIC;
+	  try {
+	    WSXMLTextNodeRange[] mapRoot = wsTextEditorPage.findElementsByXPath(ElementXPathConstants.ROOT_MAP_XPATH);
+	    if (mapRoot.length != 0) {
+	      toReturn = DocumentType.MAP;
+	    }
+	    WSXMLTextNodeRange[] bookmapRoot = wsTextEditorPage.findElementsByXPath(ElementXPathConstants.ROOT_BOOKMAP_XPATH);
+	    if (bookmapRoot.length != 0) {
+	      toReturn = DocumentType.BOOKMAP;
+	    }
+	  } catch (XPathException e) {
+	    logger.debug(e, e.getCause());
+	  }
+	  return toReturn;
+	}
+	
 	/**
 	 * Update the prolog element in text page.
 	 * @param isNewDocument <code>true</code> if document is new
@@ -80,179 +116,350 @@ public class DitaTopicTextEditor implements DitaEditor {
 	 * @return <code>true</code> if prolog was update, <code>false</code> otherwise.
 	 */
 	public boolean updateProlog(boolean isNewDocument) {
-		boolean toReturn = true;
-		// get the prolog element
-		WSXMLTextNodeRange[] prologs;
-		try {
-			prologs = wsTextEditorPage.findElementsByXPath(ElementXPathUtils.getPrologXpath(documentType));
+		PrologEditPlan plan = createEditPlan(isNewDocument);
+		return plan != null && applyEditPlan(plan);
+	}
+
+	/**
+	 * Analyze the text page and compute the edits that update the prolog element.
+	 * When the prolog exists, the edits are offsets in the document, computed from a single scan. 
+	 * Otherwise the prolog is added relative to a node found with the schema.
+	 * <br/>
+	 * If the scan doesn't recognize the root element (a specialization without class attributes in the text),
+	 * the prolog is found with XPath, using the classes defaulted by the grammar.
+	 * @param isNewDocument <code>true</code> if document is new
+	 * 
+	 * @return The edits or <code>null</code> if the document could not be analyzed.
+	 */
+	public PrologEditPlan createEditPlan(boolean isNewDocument) {
+		PrologEditPlan toReturn = null;
+		List<PrologEdit> edits = new ArrayList<PrologEdit>();
+		// Scan the document once.
+		PrologStructureBuilder scan = TextPageDocumentUtil.scanProlog(wsTextEditorPage);
+		PrologStructure structure = scan != null ? scan.getStructure() : null;
+		if (scan != null && structure == null) {
+			structure = findPrologStructure();
+		}
+		if (structure != null) {
 			// The document doesn't have a prolog element
-			if (prologs.length == 0) {
+			if (!structure.hasProlog()) {
 				// the prolog element doesn't exist
-				addProlog(isNewDocument);
+				addProlog(edits, isNewDocument);
 			} else {
-				// the prolog element exists.
-				// update the author element.
-				updateAuthor(isNewDocument);
-
-				// update the critdates element
-				updateCritdates(isNewDocument);
+				// the prolog element exists. Insert at the offsets from the structure.
+				try {
+					addInsertions(edits, structure, isNewDocument);
+				} catch (BadLocationException e) {
+					logger.debug(e.getMessage(), e);
+					edits = null;
+				}
+			}
+			if (edits != null) {
+				toReturn = new PrologEditPlan(edits);
 			}
-		} catch (XPathException e) {
-			toReturn = false;
-		} catch (TextOperationException e) {
-			toReturn = false;
 		}
 		
 		return toReturn;
 	}
 
 	/**
-	 * Add the prolog element.
-	 * @param isNewDocument <code>true</code> if document is new
-	 * @throws TextOperationException  If the element could not be added.
-	 *
+	 * Find the prolog element with XPath and collect its authors and dates, with their offsets
+	 * computed from the ranges of the nodes.
+	 * 
+	 * @return The structure of the prolog or <code>null</code> if it could not be found.
 	 */
-	private void addProlog(boolean isNewDocument) throws TextOperationException {
-		// Search for a possible prolog xpath.
-		String xp = TextPageDocumentUtil.findPrologXPath(wsTextEditorPage, documentType);
-		if (xp != null) {
-		  TextPageDocumentUtil.insertXmlFragment(
-		  		wsTextEditorPage, 
-		      prologCreator.getPrologFragment(isNewDocument, documentType), 
-		      xp,
-		      RelativeInsertPosition.INSERT_LOCATION_AFTER);
-		}else {
-		  TextPageDocumentUtil.insertXmlFragment(
-		      wsTextEditorPage, 
-		      prologCreator.getPrologFragment(isNewDocument, documentType), 
-		      ElementXPathUtils.getRootXpath(documentType),
-		      RelativeInsertPosition.INSERT_LOCATION_AS_FIRST_CHILD);
+	private PrologStructure findPrologStructure() {
+		PrologStructure toReturn = null;
+		try {
+			PrologStructure structure = new PrologStructure();
+			structure.setDocumentType(documentType);
+			WSXMLTextNodeRange[] prolog = wsTextEditorPage.findElementsByXPath(ElementXPathUtils.getPrologXpath(documentType));
+			if (prolog.length != 0) {
+				int[] prologContent = getContentOffsets(prolog[0]);
+				structure.setPrologFirstChildOffset(prologContent[0]);
+				structure.setPrologLastChildOffset(prologContent[1]);
+				String authorXpath = ElementXPathUtils.getAuthorXpath(documentType);
+				WSXMLTextNodeRange[] authors = wsTextEditorPage.findElementsByXPath(authorXpath);
+				Object[] types = wsTextEditorPage.evaluateXPath(authorXpath + "/string(@" + XmlElementsConstants.TYPE_ATTRIBUTE + ")");
+				Object[] names = wsTextEditorPage.evaluateXPath(authorXpath + "/string(.)");
+				for (int i = 0; i < authors.length && i < types.length && i < names.length; i++) {
+					int endOffset = TextPageDocumentUtil.getEndOffset(wsTextEditorPage, authors[i]);
+					structure.addAuthor(new PrologAuthor(String.valueOf(types[i]), String.valueOf(names[i]), endOffset));
+				}
+				String critdatesXpath = ElementXPathUtils.getCritdatesXpath(documentType);
+				WSXMLTextNodeRange[] critdates = wsTextEditorPage.findElementsByXPath(critdatesXpath);
+				if (critdates.length != 0) {
+					int[] critdatesContent = getContentOffsets(critdates[0]);
+					structure.setCritdatesFirstChildOffset(critdatesContent[0]);
+					structure.setCritdatesLastChildOffset(critdatesContent[1]);
+					structure.setHasCreated(wsTextEditorPage.evaluateXPath(ElementXPathUtils.getCreatedXpath(documentType)).length != 0);
+					String revisedXpath = critdatesXpath + "/" + XmlElementsConstants.REVISED_NAME;
+					WSXMLTextNodeRange[] revisedElements = wsTextEditorPage.findElementsByXPath(revisedXpath);
+					Object[] modified = wsTextEditorPage.evaluateXPath(revisedXpath + "/string(@" + XmlElementsConstants.MODIFIED_ATTRIBUTE + ")");
+					// The comment that precedes the revised element, ignoring the whitespaces.
+					Object[] comments = wsTextEditorPage.evaluateXPath(revisedXpath
+							+ "/string(preceding-sibling::node()[not(self::text()[normalize-space() = ''])][1][self::comment()])");
+					for (int i = 0; i < revisedElements.length && i < modified.length && i < comments.length; i++) {
+						int endOffset = TextPageDocumentUtil.getEndOffset(wsTextEditorPage, revisedElements[i]);
+						structure.addRevised(new PrologRevised(String.valueOf(modified[i]), String.valueOf(comments[i]), endOffset));
+					}
+				}
+			}
+			toReturn = structure;
+		} catch (XPathException e) {
+			logger.debug(e, e.getCause());
+		} catch (BadLocationException e) {
+			logger.debug(e.getMessage(), e);
 		}
+		return toReturn;
 	}
-	
-	 /**
-	 * Update the critdates element of prolog.
+
+	/**
+	 * Find the content of an element from its range.
+	 * @param range The range of the element.
 	 * 
-	 * @param isNewDocument <code>true</code> if document is new, <code>false</code> otherwise
-	 * @throws XPathException If the element could not be update
-	 * @throws TextOperationException  If the element could not be update.
+	 * @return The offset after the start tag and the offset before the end tag. For an empty-element tag
+	 * both are the offset after the tag.
+	 * @throws BadLocationException If the range is not in the document.
 	 */
-	private void updateCritdates(boolean isNewDocument) throws XPathException, TextOperationException {
-		
-	  // get the critdates element
-		WSXMLTextNodeRange[] critdateElements = wsTextEditorPage.findElementsByXPath(ElementXPathUtils.getCritdatesXpath(documentType));
-
-		if (critdateElements.length == 0) {
-			// The critdates doesn't exist.
-	    // Add the cridates xml fragment
-	    String dateFragment = prologCreator.getDateFragment(isNewDocument, documentType);
-	    String toAdd = XMLFragmentUtils.createCritdateTag(dateFragment);
-	    TextPageDocumentUtil.insertXmlFragment(wsTextEditorPage, toAdd, ElementXPathUtils.getLastAuthorXpath(documentType),
-	        RelativeInsertPosition.INSERT_LOCATION_AFTER);
+	private int[] getContentOffsets(WSXMLTextNodeRange range) throws BadLocationException {
+		int start = TextPageDocumentUtil.getStartOffset(wsTextEditorPage, range);
+		int end = TextPageDocumentUtil.getEndOffset(wsTextEditorPage, range);
+		String text = wsTextEditorPage.getDocument().getText(start, end - start);
+		// The end of the start tag, outside the attribute values.
+		int startTagEnd = -1;
+		char quote = 0;
+		for (int i = 0; i < text.length() && startTagEnd == -1; i++) {
+			char ch = text.charAt(i);
+			if (quote != 0) {
+				if (ch == quote) {
+					quote = 0;
+				}
+			} else if (ch == '"' || ch == '\'') {
+				quote = ch;
+			} else if (ch == '>') {
+				startTagEnd = i + 1;
+			}
+		}
+		if (startTagEnd == -1) {
+			throw new BadLocationException("The range is not an element", start);
+		}
+		int endTagStart = startTagEnd == text.length() ? startTagEnd : text.lastIndexOf("</");
+		return new int[] {start + startTagEnd, start + Math.max(startTagEnd, endTagStart)};
+	}
 
-	  } else {
-	  	// The critdates element exists.
-	  	// Edit the element.
-	    editCritdates(isNewDocument);
-	  }
+	/**
+	 * Insert the fragments from the given plan. The fragments with a position are inserted directly in
+	 * the document. Otherwise they are inserted in the plan order and each XPath is evaluated after 
+	 * the previous fragments were inserted.
+	 * @param plan The edits computed by {@link #createEditPlan(boolean)}.
+	 * 
+	 * @return <code>true</code> if prolog was update, <code>false</code> otherwise.
+	 */
+	public boolean applyEditPlan(PrologEditPlan plan) {
+		boolean toReturn = true;
+		List<PrologEdit> edits = plan.getEdits();
+		if (!edits.isEmpty() && edits.get(0).getPosition() != null) {
+			// Read all the offsets before changing the document.
+			int size = edits.size();
+			String[] fragments = new String[size];
+			int[] offsets = new int[size];
+			int[] replacedLengths = new int[size];
+			for (int i = 0; i < size; i++) {
+				fragments[i] = edits.get(i).getFragment();
+				offsets[i] = edits.get(i).getPosition().getOffset();
+				replacedLengths[i] = edits.get(i).getReplacedLength();
+			}
+			try {
+				TextPageDocumentUtil.insertXmlFragments(wsTextEditorPage, fragments, offsets, replacedLengths);
+			} catch (BadLocationException e) {
+				logger.debug(e.getMessage(), e);
+				toReturn = false;
+			}
+		} else {
+			try {
+				for (PrologEdit edit : edits) {
+					TextPageDocumentUtil.insertXmlFragment(wsTextEditorPage, edit.getFragment(), edit.getXPath(), edit.getRelativePosition());
+				}
+			} catch (TextOperationException e) {
+				logger.debug(e, e.getCause());
+				toReturn = false;
+			}
+		}
+		return toReturn;
 	}
 
 	/**
-	 * Edit the existing critdates element.
+	 * Add the edits that update an existing prolog, at the offsets from the given structure.
+	 * The fragments are formatted now, so only the insertions remain for the apply phase.
+	 * <br/>
+	 * An empty-element prolog or critdates tag is opened: its "/&gt;" is replaced with "&gt;" and the end tag
+	 * is added after the fragments inserted in it. These fragments are not formatted.
+	 * @param edits The list where the edits are added.
+	 * @param structure The structure of the prolog.
 	 * @param isNewDocument <code>true</code> if document is new, <code>false</code> otherwise
-	 * @throws XPathException If the element could not be update
-	 * @throws TextOperationException  If the element could not be edited.
+	 * @throws BadLocationException If an offset is not in the document.
 	 */
-	private void editCritdates(boolean isNewDocument) throws XPathException, TextOperationException {
-		// the critdates element exists
-		if (isNewDocument) {
-		  // document is new
-		  // search for created element.
-		  Object[] createdElements = wsTextEditorPage
-		      .evaluateXPath(ElementXPathUtils.getCreatedXpath(documentType));
-
-		  // created element doesn't exist
-		  if (createdElements.length == 0) {
-		    // add the created xml fragment
-		    TextPageDocumentUtil.insertXmlFragment(wsTextEditorPage, prologCreator.getPrologAuthorElement(isNewDocument, documentType),
-		        ElementXPathUtils.getCritdatesXpath(documentType),
-		        RelativeInsertPosition.INSERT_LOCATION_AS_FIRST_CHILD);
-		  } 
-		} else {
-		  //it's not a new document
-		  //search for revised elements that have local date as modified and have contributor as comment
-		  Object[] revisedElements = wsTextEditorPage
-		      .findElementsByXPath(ElementXPathUtils.getCritdatesXpath(documentType) + "/revised[@modified = '"
-		          + prologCreator.getLocalDate() + "']/"
-		          + "preceding-sibling::node()[2][.='"+prologCreator.getAuthor()+"']"); 
+	private void addInsertions(List<PrologEdit> edits, PrologStructure structure, boolean isNewDocument) throws BadLocationException {
+		Document document = wsTextEditorPage.getDocument();
+		TextFragmentFormatter formatter = TextFragmentFormatter.getFormatter(document);
+		List<PrologInsertion> insertions = PrologEditPlanner.createInsertions(structure, prologCreator, isNewDocument);
+		int emptyContainerEnd = findEmptyContainerEnd(document, structure);
+		String endTag = null;
+		for (PrologInsertion insertion : insertions) {
+			int offset = insertion.getOffset();
+			if (offset == emptyContainerEnd) {
+				if (endTag == null) {
+					endTag = "</" + getStartTagName(document, offset) + ">";
+					edits.add(new PrologEdit(">", document.createPosition(offset), 2));
+				}
+				edits.add(new PrologEdit(insertion.getFragment(), document.createPosition(offset)));
+			} else {
+				if (endTag != null && offset > emptyContainerEnd) {
+					// Close the element before the insertions that follow it.
+					edits.add(new PrologEdit(endTag, document.createPosition(emptyContainerEnd)));
+					emptyContainerEnd = -1;
+				}
+				String fragment = formatter.formatAt(document, offset, insertion.getFragment());
+				edits.add(new PrologEdit(fragment, document.createPosition(offset)));
+			}
+		}
+		if (endTag != null && emptyContainerEnd != -1) {
+			edits.add(new PrologEdit(endTag, document.createPosition(emptyContainerEnd)));
+		}
+	}
 
-		  //if the element wasn't found
-		  if (revisedElements.length == 0) {
-		    //add revised xml fragament
-		    TextPageDocumentUtil.insertXmlFragment(wsTextEditorPage, prologCreator.getRevisedDateFragment(documentType),
-		        ElementXPathUtils.getCritdatesXpath(documentType), RelativeInsertPosition.INSERT_LOCATION_AS_LAST_CHILD);
-		  }
+	/**
+	 * Find the prolog or critdates element written as an empty-element tag.
+	 * @param document The document.
+	 * @param structure The structure of the prolog.
+	 * 
+	 * @return The offset after the empty-element tag or <code>-1</code>.
+	 * @throws BadLocationException If an offset is not in the document.
+	 */
+	private static int findEmptyContainerEnd(Document document, PrologStructure structure) throws BadLocationException {
+		int toReturn = -1;
+		int[] contentOffsets = {structure.getPrologFirstChildOffset(), structure.getCritdatesFirstChildOffset()};
+		for (int offset : contentOffsets) {
+			// The content starts right after the start tag.
+			if (offset >= 2 && "/>".equals(document.getText(offset - 2, 2))) {
+				toReturn = offset;
+				break;
+			}
 		}
+		return toReturn;
 	}
-	
+
 	/**
-	 * Update the author elements of prolog.
-	 * @param isNewDocument <code>true</code> if document is new, <code>false</code> otherwise
-	 * @throws XPathException If the element could not be update
-	 * @throws TextOperationException If the element could not be update
+	 * Get the name of the element whose start tag ends at the given offset.
+	 * @param document The document.
+	 * @param tagEnd The offset after the start tag.
+	 * 
+	 * @return The qualified name of the element.
+	 * @throws BadLocationException If the offset is not in the document.
 	 */
-	private void updateAuthor( boolean isNewDocument) throws XPathException, TextOperationException {
-	  // get the author elements
-		Object[] authorElements = wsTextEditorPage.findElementsByXPath(ElementXPathUtils.getAuthorXpath(documentType));
-		int authorElementSize = authorElements.length;
+	private static String getStartTagName(Document document, int tagEnd) throws BadLocationException {
+		// The attribute values can't contain '<'.
+		String text = document.getText(0, tagEnd);
+		int nameStart = text.lastIndexOf('<') + 1;
+		int nameEnd = nameStart;
+		while (nameEnd < tagEnd && !Character.isWhitespace(text.charAt(nameEnd))
+				&& text.charAt(nameEnd) != '/' && text.charAt(nameEnd) != '>') {
+			nameEnd++;
+		}
+		return text.substring(nameStart, nameEnd);
+	}
 
-		if (authorElementSize == 0) {
-	    // if the author elements doesn't exist
-	    // add author xml fragment
-	    TextPageDocumentUtil.insertXmlFragment(wsTextEditorPage, prologCreator.getPrologAuthorElement(isNewDocument, documentType), ElementXPathUtils.getPrologXpath(documentType), RelativeInsertPosition.INSERT_LOCATION_AS_FIRST_CHILD);
-	  } else {
-	  	// The author element exists.
-	  	// Edit the author element.
-	    editAuthor(isNewDocument);
-	  }
+	/**
+	 * @see com.oxygenxml.prolog.updater.dita.editor.DitaEditor#getDocumentType()
+	 */
+	public DocumentType getDocumentType() {
+		return documentType;
 	}
 
 	/**
-	 * Edit the author elements of prolog element.
-	 * @param isNewDocument <code>true</code> if document is new, <code>false</code> otherwise
-	 * @throws XPathException If the element could not be edited.
-	 * @throws TextOperationException If the element could not be edited.
+	 * @return The number of characters of the document or <code>0</code> if the page has no document.
 	 */
-	private void editAuthor(boolean isNewDocument) throws XPathException, TextOperationException {
-		// prolog contains author elements
-		if (isNewDocument) {
-		  // the document is new
-		  // search for a author with value of attribute type equal with creator
-		  Object[] creatorAuthorElements = wsTextEditorPage.evaluateXPath(ElementXPathUtils.getAuthorCreatorXpath(documentType));
-		  int creatorElementSize = creatorAuthorElements.length;
+	public int getDocumentSize() {
+		Document document = wsTextEditorPage.getDocument();
+		return document != null ? document.getLength() : 0;
+	}
 
-		  // check if creator author was found
-		  if (creatorElementSize == 0) {
-		    // there aren't creator author elements in prolog
-		    // add the creator author xml fragment
-		    TextPageDocumentUtil.insertXmlFragment(wsTextEditorPage, prologCreator.getCreatorFragment(documentType), 
-		        ElementXPathUtils.getPrologXpath(documentType), RelativeInsertPosition.INSERT_LOCATION_AS_FIRST_CHILD);
-		  }
+	/**
+	 * Record the range and the text of the prolog content.
+	 * 
+	 * @return The marker or <code>null</code> if the document doesn't have a prolog element.
+	 */
+	public PrologMarker markProlog() {
+		PrologMarker toReturn = null;
+		Document document = wsTextEditorPage.getDocument();
+		PrologStructure structure = TextPageDocumentUtil.findPrologStructure(wsTextEditorPage);
+		if (structure != null && structure.hasProlog() && structure.getPrologLastChildOffset() != -1) {
+			int start = structure.getPrologFirstChildOffset();
+			int end = structure.getPrologLastChildOffset();
+			try {
+				toReturn = new PrologMarker(document.createPosition(start), document.createPosition(end),
+						document.getText(start, end - start));
+			} catch (BadLocationException e) {
+				logger.debug(e.getMessage(), e);
+			}
+		}
+		return toReturn;
+	}
 
-		} else {
-		  // the document isn't new
-		  // search for a contributor author that has local author name as text
-		  Object[] contributorAuthorElements = wsTextEditorPage.evaluateXPath(ElementXPathUtils.getPrologXpath(documentType) + "/author[@type='contributor' and text()= '" + prologCreator.getAuthor() + "']");
-		  int contributorElementSize = contributorAuthorElements.length;
+	/**
+	 * Check if the marked range still contains the text of the prolog element. The positions of the 
+	 * range follow the changes made in the document, so the changes outside the prolog are ignored.
+	 * @param marker The marker of the prolog.
+	 * 
+	 * @return <code>true</code> if the prolog element was not changed since it was marked.
+	 */
+	public boolean isPrologUnchanged(PrologMarker marker) {
+		boolean toReturn = false;
+		Document document = wsTextEditorPage.getDocument();
+		if (document != null) {
+			int start = marker.getStart().getOffset();
+			int end = marker.getEnd().getOffset();
+			try {
+				toReturn = marker.getContent().equals(document.getText(start, end - start));
+			} catch (BadLocationException e) {
+				logger.debug(e.getMessage(), e);
+			}
+		}
+		return toReturn;
+	}
 
-		  if (contributorElementSize == 0) {
-		    // there aren't contributor author elements in prolog
-		    // add the contributor author xml content
-		    TextPageDocumentUtil.insertXmlFragment(wsTextEditorPage, prologCreator.getContributorFragment(documentType),
-		        ElementXPathUtils.getLastAuthorXpath(documentType), RelativeInsertPosition.INSERT_LOCATION_AFTER);
-		  }
+	/**
+	 * Add an edit in the given list if there is a fragment to insert.
+	 * @param edits The list of edits.
+	 * @param fragment The fragment or <code>null</code>.
+	 * @param xpath The XPath of the node relative to which the fragment is inserted.
+	 * @param position The location relative to the node.
+	 */
+	private static void addEdit(List<PrologEdit> edits, String fragment, String xpath, RelativeInsertPosition position) {
+		if (fragment != null) {
+			edits.add(new PrologEdit(fragment, xpath, position));
 		}
 	}
 
-	
+	/**
+	 * Add the prolog element.
+	 * @param edits The list where the edits are added.
+	 * @param isNewDocument <code>true</code> if document is new
+	 */
+	private void addProlog(List<PrologEdit> edits, boolean isNewDocument) {
+		// Search for a possible prolog xpath.
+		String xp = TextPageDocumentUtil.findPrologXPath(wsTextEditorPage, documentType);
+		if (xp != null) {
+		  addEdit(edits,
+		      prologCreator.getPrologFragment(isNewDocument, documentType), 
+		      xp,
+		      RelativeInsertPosition.INSERT_LOCATION_AFTER);
+		}else {
+		  addEdit(edits,
+		      prologCreator.getPrologFragment(isNewDocument, documentType), 
+		      ElementXPathUtils.getRootXpath(documentType),
+		      RelativeInsertPosition.INSERT_LOCATION_AS_FIRST_CHILD);
+		}
+	}
 }
@@ -0,0 +1,114 @@
+package com.oxygenxml.prolog.updater.dita.editor;
+
+import javax.swing.text.Position;
+
+import ro.sync.exml.editor.xmleditor.operations.context.RelativeInsertPosition;
+
+/**
+ * An XML fragment that will be inserted in the document of an editor to update its prolog.
+ * <br/>
+ * The location is either a position in the document, which follows the changes made after the
+ * analysis, or an XPath together with the location relative to the node selected by it.
+ */
+public class PrologEdit {
+
+  /**
+   * The XML fragment to insert.
+   */
+  private final String fragment;
+
+  /**
+   * The position where the fragment is inserted or <code>null</code>.
+   */
+  private final Position position;
+
+  /**
+   * The number of characters before the position that are replaced by the fragment.
+   */
+  private final int replacedLength;
+
+  /**
+   * The XPath of the node relative to which the fragment is inserted or <code>null</code>.
+   */
+  private final String xpath;
+
+  /**
+   * The location relative to the node selected by the XPath or <code>null</code>.
+   */
+  private final RelativeInsertPosition relativePosition;
+
+  /**
+   * Constructor for an insertion at a position.
+   *
+   * @param fragment The XML fragment to insert.
+   * @param position The position where the fragment is inserted.
+   */
+  public PrologEdit(String fragment, Position position) {
+    this(fragment, position, 0);
+  }
+
+  /**
+   * Constructor for a replacement of the text that ends at a position.
+   *
+   * @param fragment The XML fragment that replaces the text.
+   * @param position The position after the replaced text.
+   * @param replacedLength The number of characters before the position that are replaced by the fragment.
+   */
+  public PrologEdit(String fragment, Position position, int replacedLength) {
+    this.fragment = fragment;
+    this.position = position;
+    this.replacedLength = replacedLength;
+    this.xpath = null;
+    this.relativePosition = null;
+  }
+
+  /**
+   * Constructor for an insertion relative to a node.
+   *
+   * @param fragment The XML fragment to insert.
+   * @param xpath The XPath of the node relative to which the fragment is inserted.
+   * @param relativePosition The location relative to the node selected by the XPath.
+   */
+  public PrologEdit(String fragment, String xpath, RelativeInsertPosition relativePosition) {
+    this.fragment = fragment;
+    this.position = null;
+    this.replacedLength = 0;
+    this.xpath = xpath;
+    this.relativePosition = relativePosition;
+  }
+
+  /**
+   * @return The XML fragment to insert.
+   */
+  public String getFragment() {
+    return fragment;
+  }
+
+  /**
+   * @return The position where the fragment is inserted or <code>null</code>.
+   */
+  public Position getPosition() {
+    return position;
+  }
+
+  /**
+   * @return The number of characters before the position that are replaced by the fragment.
+   */
+  public int getReplacedLength() {
+    return replacedLength;
+  }
+
+  /**
+   * @return The XPath of the node relative to which the fragment is inserted or <code>null</code>.
+   */
+  public String getXPath() {
+    return xpath;
+  }
+
+  /**
+   * @return The location relative to the node selected by the XPath or <code>null</code>.
+   */
+  public RelativeInsertPosition getRelativePosition() {
+    return relativePosition;
+  }
+}
@@ -0,0 +1,43 @@
+package com.oxygenxml.prolog.updater.dita.editor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The insertions that update the prolog of a document, computed by a {@link DitaEditor} before any
+ * change is made. Immutable.
+ * <br/>
+ * Creating the plan reads the document and may query the schema. Applying it only inserts the fragments,
+ * so the compound edit that changes the document stays short. Both run on the AWT thread.
+ */
+public class PrologEditPlan {
+
+  /**
+   * The edits, in document order.
+   */
+  private final List<PrologEdit> edits;
+
+  /**
+   * Constructor.
+   *
+   * @param edits The edits, in document order.
+   */
+  public PrologEditPlan(List<PrologEdit> edits) {
+    this.edits = Collections.unmodifiableList(new ArrayList<PrologEdit>(edits));
+  }
+
+  /**
+   * @return The edits, in document order. Never <code>null</code>.
+   */
+  public List<PrologEdit> getEdits() {
+    return edits;
+  }
+
+  /**
+   * @return <code>true</code> if the prolog is up to date.
+   */
+  public boolean isEmpty() {
+    return edits.isEmpty();
+  }
+}
@@ -0,0 +1,59 @@
+package com.oxygenxml.prolog.updater.dita.editor;
+
+import javax.swing.text.Position;
+
+/**
+ * The location and the content of the prolog element of a document, recorded by a {@link DitaEditor}
+ * after the prolog was updated. Used to detect if the prolog was changed since then.
+ */
+public class PrologMarker {
+
+  /**
+   * The position of the prolog start.
+   */
+  private final Position start;
+
+  /**
+   * The position of the prolog end.
+   */
+  private final Position end;
+
+  /**
+   * The content of the prolog.
+   */
+  private final String content;
+
+  /**
+   * Constructor.
+   *
+   * @param start The position of the prolog start.
+   * @param end The position of the prolog end.
+   * @param content The content of the prolog.
+   */
+  public PrologMarker(Position start, Position end, String content) {
+    this.start = start;
+    this.end = end;
+    this.content = content;
+  }
+
+  /**
+   * @return The position of the prolog start.
+   */
+  public Position getStart() {
+    return start;
+  }
+
+  /**
+   * @return The position of the prolog end.
+   */
+  public Position getEnd() {
+    return end;
+  }
+
+  /**
+   * @return The content of the prolog.
+   */
+  public String getContent() {
+    return content;
+  }
+}
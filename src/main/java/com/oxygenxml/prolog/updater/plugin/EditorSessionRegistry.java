@@ -0,0 +1,162 @@
+package com.oxygenxml.prolog.updater.plugin;
+
+import java.net.URL;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import com.oxygenxml.prolog.updater.utils.DitaDocumentFilter;
+
+import ro.sync.exml.workspace.api.editor.WSEditor;
+import ro.sync.exml.workspace.api.listeners.WSEditorListener;
+
+/**
+ * Keeps the listeners installed on the opened editors, so they can be removed when the editors are closed.
+ * <br/>
+ * The editors are identified by their editing area and location. The registry also remembers
+ * if the documents are DITA documents. A document found not to be a DITA document is checked again
+ * only after the start tag of its root or its grammar is changed. Thread safe.
+ */
+public class EditorSessionRegistry {
+
+  /**
+   * An opened editor and the listener installed on it.
+   */
+  private static final class EditorSession {
+    /**
+     * The editor.
+     */
+    private final WSEditor editor;
+    /**
+     * The listener installed on the editor.
+     */
+    private final WSEditorListener listener;
+    /**
+     * <code>true</code> if the document was found to be a DITA document.
+     */
+    private volatile boolean ditaDocument;
+    /**
+     * The state of the root when the document was found not to be a DITA document or <code>null</code>.
+     * See {@link DitaDocumentFilter#getRootState(WSEditor)}.
+     */
+    private volatile Object notDitaRootState;
+
+    /**
+     * Constructor.
+     *
+     * @param editor The editor.
+     * @param listener The listener installed on the editor.
+     */
+    EditorSession(WSEditor editor, WSEditorListener listener) {
+      this.editor = editor;
+      this.listener = listener;
+    }
+  }
+
+  /**
+   * The sessions, mapped by editing area and location.
+   */
+  private final Map<String, EditorSession> sessions = new HashMap<String, EditorSession>();
+
+  /**
+   * The same sessions, mapped by editor. Guarded by {@link #sessions}.
+   */
+  private final Map<WSEditor, EditorSession> sessionsByEditor = new IdentityHashMap<WSEditor, EditorSession>();
+
+  /**
+   * Install a listener on an opened editor. A listener installed before on the same editor is removed.
+   *
+   * @param editingArea The editing area of the editor.
+   * @param editorLocation The location of the editor.
+   * @param editor The editor.
+   * @param listener The listener.
+   */
+  public void register(int editingArea, URL editorLocation, WSEditor editor, WSEditorListener listener) {
+    EditorSession previous;
+    EditorSession session = new EditorSession(editor, listener);
+    synchronized (sessions) {
+      previous = sessions.put(createKey(editingArea, editorLocation), session);
+      if (previous != null) {
+        sessionsByEditor.remove(previous.editor);
+      }
+      sessionsByEditor.put(editor, session);
+    }
+    if (previous != null) {
+      previous.editor.removeEditorListener(previous.listener);
+    }
+    editor.addEditorListener(listener);
+  }
+
+  /**
+   * Remove the listener of a closed editor.
+   *
+   * @param editingArea The editing area of the editor.
+   * @param editorLocation The location of the editor.
+   * @return <code>true</code> if the editor was registered.
+   */
+  public boolean unregister(int editingArea, URL editorLocation) {
+    EditorSession session;
+    synchronized (sessions) {
+      session = sessions.remove(createKey(editingArea, editorLocation));
+      if (session != null && sessionsByEditor.get(session.editor) == session) {
+        sessionsByEditor.remove(session.editor);
+      }
+    }
+    if (session != null) {
+      session.editor.removeEditorListener(session.listener);
+    }
+    return session != null;
+  }
+
+  /**
+   * Check if the document of an editor is a DITA document. A registered editor is not checked again
+   * once its document was found to be a DITA document, or while the root of a document found
+   * not to be a DITA document is not changed.
+   *
+   * @param editor The editor.
+   * @return <code>false</code> if the document is surely not a DITA document.
+   */
+  public boolean isDitaDocument(WSEditor editor) {
+    EditorSession session;
+    synchronized (sessions) {
+      session = sessionsByEditor.get(editor);
+    }
+    boolean toReturn;
+    if (session == null) {
+      toReturn = DitaDocumentFilter.isDitaDocument(editor);
+    } else if (session.ditaDocument) {
+      toReturn = true;
+    } else {
+      Object rootState = DitaDocumentFilter.getRootState(editor);
+      if (rootState != null && rootState == session.notDitaRootState) {
+        toReturn = false;
+      } else {
+        toReturn = DitaDocumentFilter.isDitaDocument(editor);
+        session.ditaDocument = toReturn;
+        session.notDitaRootState = toReturn ? null : rootState;
+      }
+    }
+    return toReturn;
+  }
+
+  /**
+   * @return The number of registered editors.
+   */
+  public int size() {
+    synchronized (sessions) {
+      return sessions.size();
+    }
+  }
+
+  /**
+   * Create the key of an editor.
+   *
+   * @param editingArea The editing area of the editor.
+   * @param editorLocation The location of the editor.
+   * @return The key.
+   */
+  private static String createKey(int editingArea, URL editorLocation) {
+    // The external form avoids the host name resolution done by URL.equals.
+    return editingArea + " " + editorLocation.toExternalForm();
+  }
+}
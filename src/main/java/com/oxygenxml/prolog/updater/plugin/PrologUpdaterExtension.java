@@ -27,6 +27,11 @@ public class PrologUpdaterExtension extends OptionPagePluginExtension implements
 	 */
 	private PrologOptionPage prologOptionPage = null;
 
+	/**
+	 * The listeners installed on the opened editors.
+	 */
+	private final EditorSessionRegistry sessionRegistry = new EditorSessionRegistry();
+
   /**
    * @see ro.sync.exml.plugin.workspace.WorkspaceAccessPluginExtension#applicationStarted(ro.sync.exml.workspace.api.standalone.StandalonePluginWorkspace)
    */
@@ -39,30 +44,31 @@ public class PrologUpdaterExtension extends OptionPagePluginExtension implements
 			@Override
 			public void editorOpened(URL editorLocation) {
 					final WSEditor editorAccess = workspace.getEditorAccess(editorLocation, PluginWorkspace.MAIN_EDITING_AREA);
-					// Add an WSEditorListener
-					editorAccess.addEditorListener(new WSEditorListener(){
-            private boolean wasNew = false;
-            private boolean wasSave = false;
-            @Override
-						public boolean editorAboutToBeSavedVeto(int operationType) {
-              if(editorAccess.isNewDocument() && !editorAccess.isModified()) {
-                editorAccess.setModified(true);
-              }
-              wasNew  = editorAccess.isNewDocument();
-							return true;
-						}
-						@Override
-						public void editorSaved(int operationType) {
-						  if(!wasSave) {
-						    wasSave = true;
-						    xmlUpdater.updateProlog(editorAccess, wasNew);
-                editorAccess.save();                    
-						    wasSave = false;
-						  }
-						}
-						 
-					});
-					
+					if (editorAccess != null) {
+						// Add an WSEditorListener
+						sessionRegistry.register(PluginWorkspace.MAIN_EDITING_AREA, editorLocation, editorAccess, new WSEditorListener(){
+							@Override
+							public boolean editorAboutToBeSavedVeto(int operationType) {
+								boolean isNew = editorAccess.isNewDocument();
+								if(isNew && !editorAccess.isModified()) {
+									editorAccess.setModified(true);
+								}
+								// Update the prolog before the document is written, so it's saved only once.
+								// The documents that are not DITA are skipped before any prolog work.
+								if (sessionRegistry.isDitaDocument(editorAccess)) {
+									xmlUpdater.updateProlog(editorAccess, isNew);
+								}
+								return true;
+							}
+						});
+					}
+			}
+			
+			@Override
+			public void editorClosed(URL editorLocation) {
+				// Remove the listener and the state of the editor.
+				sessionRegistry.unregister(PluginWorkspace.MAIN_EDITING_AREA, editorLocation);
+				xmlUpdater.editorClosed(editorLocation);
 			}
 		}, PluginWorkspace.MAIN_EDITING_AREA);
 		
@@ -71,30 +77,37 @@ public class PrologUpdaterExtension extends OptionPagePluginExtension implements
       @Override
       public void editorOpened(URL editorLocation) {
         final WSEditor editorAccess = workspace.getEditorAccess(editorLocation, PluginWorkspace.DITA_MAPS_EDITING_AREA);
-        // add an WSEditorListener
-        editorAccess.addEditorListener(new WSEditorListener() {
-          private boolean wasNew = false;
-          private boolean wasSave = false;
-          @Override
-          public boolean editorAboutToBeSavedVeto(int operationType) {
-            wasNew  = editorAccess.isNewDocument();
-            return true;
-          }
-          @Override
-          public void editorSaved(int operationType) {
-            if(!wasSave) {
-              wasSave = true;
-              xmlUpdater.updateProlog(editorAccess, wasNew);
-              editorAccess.save();
-              wasSave = false;
+        if (editorAccess != null) {
+          // add an WSEditorListener
+          sessionRegistry.register(PluginWorkspace.DITA_MAPS_EDITING_AREA, editorLocation, editorAccess, new WSEditorListener() {
+            @Override
+            public boolean editorAboutToBeSavedVeto(int operationType) {
+              // Update the prolog before the document is written, so it's saved only once.
+              if (sessionRegistry.isDitaDocument(editorAccess)) {
+                xmlUpdater.updateProlog(editorAccess, editorAccess.isNewDocument());
+              }
+              return true;
             }
-            super.editorSaved(operationType);
-          }
-        });
+          });
+        }
+      }
+      
+      @Override
+      public void editorClosed(URL editorLocation) {
+        // Remove the listener and the state of the editor.
+        sessionRegistry.unregister(PluginWorkspace.DITA_MAPS_EDITING_AREA, editorLocation);
+        xmlUpdater.editorClosed(editorLocation);
       }
     }, PluginWorkspace.DITA_MAPS_EDITING_AREA);
   }
 
+  /**
+   * @return The listeners installed on the opened editors.
+   */
+  public EditorSessionRegistry getSessionRegistry() {
+    return sessionRegistry;
+  }
+
 	/**
 	 * Creates the updater.
 	 * 
@@ -1,7 +1,6 @@
 package com.oxygenxml.prolog.updater.prolog.content;
 
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.util.Map;
 
 import com.oxygenxml.prolog.updater.dita.editor.DocumentType;
 import com.oxygenxml.prolog.updater.tags.OptionKeys;
@@ -9,10 +8,6 @@ import com.oxygenxml.prolog.updater.utils.XMLFragmentUtils;
 import com.oxygenxml.prolog.updater.utils.XmlElementsConstants;
 import com.oxygenxml.prolog.updater.utils.XmlElementsUtils;
 
-import ro.sync.exml.workspace.api.PluginWorkspace;
-import ro.sync.exml.workspace.api.PluginWorkspaceProvider;
-import ro.sync.exml.workspace.api.options.WSOptionsStorage;
-
 /**
  * Creates and contains all content from prolog. 
  * @author cosmin_duna
@@ -23,22 +18,22 @@ public class PrologContentCreator {
   /**
    * XML fragment for author that has type creator.
    */
-  private StringBuilder creatorFragment;
+  private String creatorFragment;
 
   /**
    * XML fragment for author that has type contributor.
    */
-  private StringBuilder contributorXML;
+  private String contributorXML;
 
   /**
    * XML fragment for create tag
    */
-  private  StringBuilder createdDateXML;
+  private  String createdDateXML;
 
   /**
    * XML fragment for revised tag.
    */
-  private  StringBuilder revisedDateFragment;
+  private  String revisedDateFragment;
 
   /**
    * The local date in format "yyyy/MM/dd".
@@ -99,42 +94,96 @@ public class PrologContentCreator {
    */
   private boolean updateMapRevisedDate = true;
 
+  /**
+   * The prolog fragments already generated, indexed by document type and state. See {@link #getPrologFragment(boolean, DocumentType)}.
+   */
+  private final String[] prologFragments = new String[DocumentType.values().length * 2];
 
   /**
-   * Constructor.
+   * <code>true</code> for the prolog fragments that were generated.
+   */
+  private final boolean[] generatedPrologFragments = new boolean[prologFragments.length];
+
+
+  /**
+   * Constructor. The options are read from the options storage of the workspace by {@link WorkspacePrologOptions}.
    * @param author The name of the author.
    */
   public PrologContentCreator(String author) {
+    this(author, WorkspacePrologOptions.load());
+  }
+
+  /**
+   * Constructor used outside the workspace, where the options storage is not available.
+   * 
+   * @param author The name of the author.
+   * @param options The values of the options, mapped by the keys from {@link OptionKeys}.
+   * Missing options are considered selected.
+   */
+  public PrologContentCreator(String author, Map<String, String> options) {
+    this(author, new PrologOptions(null, options));
+  }
+
+  /**
+   * Constructor.
+   * 
+   * @param author The name of the author.
+   * @param options The options of the plugin.
+   */
+  public PrologContentCreator(String author, PrologOptions options) {
+    createFragments(author);
+    loadOptions(options);
+  }
+
+  /**
+   * Create all the fragments for the given author.
+   * @param author The name of the author.
+   */
+  private void createFragments(String author) {
     this.authorName = author;
     if (authorName != null) {
       // Creator
-      creatorFragment = XMLFragmentUtils.createAuthorFragment(authorName, XmlElementsConstants.CREATOR_TYPE);
+      creatorFragment = XMLFragmentUtils.createAuthorFragment(authorName, XmlElementsConstants.CREATOR_TYPE).toString();
       // Contributor
-      contributorXML = XMLFragmentUtils.createAuthorFragment(authorName, XmlElementsConstants.CONTRIBUTOR_TYPE);
+      contributorXML = XMLFragmentUtils.createAuthorFragment(authorName, XmlElementsConstants.CONTRIBUTOR_TYPE).toString();
 
       // Generate current date in a specified format.
       localDate = createLocalDate();
       // Generate the created date element.
-      createdDateXML = XMLFragmentUtils.createGeneralXmlFragment("created", "date", localDate);
+      createdDateXML = XMLFragmentUtils.createGeneralXmlFragment("created", "date", localDate).toString();
 
       // Generate the revised date element.
       // Add the author name as comment.
-      revisedDateFragment = XMLFragmentUtils.createGeneralXmlFragment(null, null, authorName);
-      StringBuilder revised = XMLFragmentUtils.createGeneralXmlFragment("revised", "modified", localDate);
-      revisedDateFragment = (revisedDateFragment == null) ? revised : revisedDateFragment.append(revised);
+      StringBuilder revised = XMLFragmentUtils.createGeneralXmlFragment(null, null, authorName);
+      revisedDateFragment = revised.append(XMLFragmentUtils.createGeneralXmlFragment("revised", "modified", localDate)).toString();
     }
-
-    //Get the setting from option storage.
-    loadOptions();
   }
 
   /**
    * Get all XML fragment for prolog tag, according to given state of document.
+   * The fragment is generated only once for each document type and state.
    * @param isNewDocument <code>true</code> if document is new.
    * @param documentType The document type( {@link DocumentType#TOPIC}, {@link DocumentType#MAP}, {@link DocumentType#BOOKMAP}  ).
    * @return The XML fragment in string format.
    */
   public String getPrologFragment( boolean isNewDocument, DocumentType documentType) { 
+    int index = documentType.ordinal() * 2 + (isNewDocument ? 1 : 0);
+    synchronized (prologFragments) {
+      if (!generatedPrologFragments[index]) {
+        prologFragments[index] = createPrologFragment(isNewDocument, documentType);
+        generatedPrologFragments[index] = true;
+      }
+      return prologFragments[index];
+    }
+  }
+
+  /**
+   * Generate the XML fragment for prolog tag, according to given state of document.
+   * @param isNewDocument <code>true</code> if document is new.
+   * @param documentType The document type( {@link DocumentType#TOPIC}, {@link DocumentType#MAP}, {@link DocumentType#BOOKMAP}  ).
+   * @return The XML fragment in string format or <code>null</code> if the settings doesn't accept any element.
+   */
+  private String createPrologFragment(boolean isNewDocument, DocumentType documentType) {
     StringBuilder fragment = new StringBuilder();
     StringBuilder aux = new StringBuilder();
 
@@ -167,7 +216,7 @@ public class PrologContentCreator {
       }
 
       // Avoid adding empty prolog element
-      if(aux.toString().isEmpty()) {
+      if(aux.length() == 0) {
         return null;
       }
 
@@ -178,7 +227,7 @@ public class PrologContentCreator {
     }
 
     // The generated fragment to be added
-    return fragment.toString().isEmpty() ? null : fragment.toString();
+    return fragment.length() == 0 ? null : fragment.toString();
   }
   
 
@@ -190,7 +239,7 @@ public class PrologContentCreator {
     String fragment = null;
     if ( (setTopicCreator && documentType.equals(DocumentType.TOPIC)) || 
         (setMapCreator && !documentType.equals(DocumentType.TOPIC))) {
-      fragment =  creatorFragment.toString();
+      fragment =  creatorFragment;
     }
     return fragment; 
   }
@@ -203,7 +252,7 @@ public class PrologContentCreator {
     String fragment = null;
     if ( (updateTopicContributor && documentType.equals(DocumentType.TOPIC)) || 
         (updateMapContributor && !documentType.equals(DocumentType.TOPIC))) {
-      fragment = contributorXML.toString();
+      fragment = contributorXML;
     }
     return fragment;
   }
@@ -216,7 +265,7 @@ public class PrologContentCreator {
     String fragment = null;
     if ((setTopicCreatedDate && documentType.equals(DocumentType.TOPIC)) || 
         (setMapCreatedDate && !documentType.equals(DocumentType.TOPIC))) {
-      fragment =  createdDateXML.toString();
+      fragment =  createdDateXML;
     }
     return fragment;
   }
@@ -229,7 +278,7 @@ public class PrologContentCreator {
     String fragment = null;
     if ((updateTopicRevisedDate && documentType.equals(DocumentType.TOPIC)) || 
         (updateMapRevisedDate && !documentType.equals(DocumentType.TOPIC)) )  {
-      fragment = revisedDateFragment.toString();
+      fragment = revisedDateFragment;
     }
     return fragment;
   }
@@ -275,39 +324,25 @@ public class PrologContentCreator {
    * @return The local date in String format.
    */
   protected String createLocalDate() {
-    return new SimpleDateFormat(XMLFragmentUtils.DATE_PATTERN).format(new Date());
+    return PrologFragmentCache.getLocalDate();
   }
 
   /**
-   * Get the options from WSOptionsStorage.
-   */
-  private void loadOptions() {
-    PluginWorkspace pluginWorkspace = PluginWorkspaceProvider.getPluginWorkspace();
-    if(pluginWorkspace != null) {
-      WSOptionsStorage optionsStorage = pluginWorkspace.getOptionsStorage();
-
-      String value = optionsStorage.getOption(OptionKeys.TOPIC_ENABLE_UPDATE_ON_SAVE, String.valueOf(true));
-      updateTopicProlog = Boolean.parseBoolean(value);
-      value = optionsStorage.getOption(OptionKeys.MAP_ENABLE_UPDATE_ON_SAVE, String.valueOf(true));
-      updateMapProlog = Boolean.parseBoolean(value);
-
-      value = optionsStorage.getOption(OptionKeys.TOPIC_SET_CREATOR, String.valueOf(true));
-      setTopicCreator = Boolean.parseBoolean(value);
-      value = optionsStorage.getOption(OptionKeys.MAP_SET_CREATOR, String.valueOf(true));
-      setMapCreator = Boolean.parseBoolean(value);
-      value = optionsStorage.getOption(OptionKeys.TOPIC_UPDATE_CONTRIBUTOR, String.valueOf(true));
-      updateTopicContributor = Boolean.parseBoolean(value);
-      value = optionsStorage.getOption(OptionKeys.MAP_UPDATE_CONTRIBUTOR, String.valueOf(true));
-      updateMapContributor = Boolean.parseBoolean(value);
-
-      value = optionsStorage.getOption(OptionKeys.TOPIC_SET_CREATED_DATE, String.valueOf(true));
-      setTopicCreatedDate = Boolean.parseBoolean(value);
-      value = optionsStorage.getOption(OptionKeys.MAP_SET_CREATED_DATE, String.valueOf(true));
-      setMapCreatedDate = Boolean.parseBoolean(value);
-      value = optionsStorage.getOption(OptionKeys.TOPIC_UPDATE_REVISED_DATES, String.valueOf(true));
-      updateTopicRevisedDate = Boolean.parseBoolean(value);
-      value = optionsStorage.getOption(OptionKeys.MAP_UPDATE_REVISED_DATES, String.valueOf(true));
-      updateMapRevisedDate = Boolean.parseBoolean(value);
-    }
+   * Get the settings from the given options.
+   * @param options The options of the plugin.
+   */
+  private void loadOptions(PrologOptions options) {
+    updateTopicProlog = options.isSelected(OptionKeys.TOPIC_ENABLE_UPDATE_ON_SAVE);
+    updateMapProlog = options.isSelected(OptionKeys.MAP_ENABLE_UPDATE_ON_SAVE);
+
+    setTopicCreator = options.isSelected(OptionKeys.TOPIC_SET_CREATOR);
+    setMapCreator = options.isSelected(OptionKeys.MAP_SET_CREATOR);
+    updateTopicContributor = options.isSelected(OptionKeys.TOPIC_UPDATE_CONTRIBUTOR);
+    updateMapContributor = options.isSelected(OptionKeys.MAP_UPDATE_CONTRIBUTOR);
+
+    setTopicCreatedDate = options.isSelected(OptionKeys.TOPIC_SET_CREATED_DATE);
+    setMapCreatedDate = options.isSelected(OptionKeys.MAP_SET_CREATED_DATE);
+    updateTopicRevisedDate = options.isSelected(OptionKeys.TOPIC_UPDATE_REVISED_DATES);
+    updateMapRevisedDate = options.isSelected(OptionKeys.MAP_UPDATE_REVISED_DATES);
   }
 }
@@ -0,0 +1,143 @@
+package com.oxygenxml.prolog.updater.prolog.content;
+
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.oxygenxml.prolog.updater.utils.XMLFragmentUtils;
+
+/**
+ * Shares the content creators, with their generated prolog fragments, between the updates.
+ * <br/>
+ * A content creator is reused for the same author while the local date and the options snapshot are the same,
+ * so the saves of a day don't format dates or build fragments again. Thread safe.
+ */
+public class PrologFragmentCache {
+
+  /**
+   * The maximum number of remembered authors.
+   */
+  private static final int MAX_ENTRIES = 16;
+
+  /**
+   * The content creators, mapped by the name of the author.
+   */
+  private static final Map<String, Entry> entries = new HashMap<String, Entry>();
+
+  /**
+   * The current local date, formatted.
+   */
+  private static volatile LocalDate localDate;
+
+  /**
+   * A content creator and the options it was created with.
+   */
+  private static final class Entry {
+    /**
+     * The options snapshot.
+     */
+    private final PrologOptions options;
+    /**
+     * The content creator.
+     */
+    private final PrologContentCreator contentCreator;
+
+    /**
+     * Constructor.
+     *
+     * @param options The options snapshot.
+     * @param contentCreator The content creator.
+     */
+    Entry(PrologOptions options, PrologContentCreator contentCreator) {
+      this.options = options;
+      this.contentCreator = contentCreator;
+    }
+  }
+
+  /**
+   * A formatted local date and the moment when it ends.
+   */
+  private static final class LocalDate {
+    /**
+     * The date in the {@link XMLFragmentUtils#DATE_PATTERN} format.
+     */
+    private final String formatted;
+    /**
+     * The start of the next day, in milliseconds.
+     */
+    private final long end;
+
+    /**
+     * Constructor.
+     *
+     * @param formatted The formatted date.
+     * @param end The start of the next day, in milliseconds.
+     */
+    LocalDate(String formatted, long end) {
+      this.formatted = formatted;
+      this.end = end;
+    }
+  }
+
+  /**
+   * Private constructor. Avoid instantiation.
+   */
+  private PrologFragmentCache() {
+    // Nothing
+  }
+
+  /**
+   * Get the local date. The date is formatted again only after the day ends.
+   *
+   * @return The local date in the {@link XMLFragmentUtils#DATE_PATTERN} format.
+   */
+  public static String getLocalDate() {
+    long now = System.currentTimeMillis();
+    LocalDate date = localDate;
+    if (date == null || now >= date.end) {
+      Calendar calendar = Calendar.getInstance();
+      calendar.setTimeInMillis(now);
+      String formatted = new SimpleDateFormat(XMLFragmentUtils.DATE_PATTERN).format(calendar.getTime());
+      calendar.set(Calendar.HOUR_OF_DAY, 0);
+      calendar.set(Calendar.MINUTE, 0);
+      calendar.set(Calendar.SECOND, 0);
+      calendar.set(Calendar.MILLISECOND, 0);
+      calendar.add(Calendar.DAY_OF_MONTH, 1);
+      date = new LocalDate(formatted, calendar.getTimeInMillis());
+      localDate = date;
+    }
+    return date.formatted;
+  }
+
+  /**
+   * Get a content creator for the given author and options.
+   *
+   * @param author The name of the author.
+   * @param options The options snapshot.
+   * @return A content creator for the current local date.
+   */
+  public static PrologContentCreator getContentCreator(String author, PrologOptions options) {
+    String date = getLocalDate();
+    synchronized (entries) {
+      Entry entry = entries.get(author);
+      if (entry == null || entry.options != options || !date.equals(entry.contentCreator.getLocalDate())) {
+        if (entry == null && entries.size() >= MAX_ENTRIES) {
+          entries.clear();
+        }
+        entry = new Entry(options, new PrologContentCreator(author, options));
+        entries.put(author, entry);
+      }
+      return entry.contentCreator;
+    }
+  }
+
+  /**
+   * Forget all the content creators.
+   */
+  public static void clear() {
+    synchronized (entries) {
+      entries.clear();
+    }
+  }
+}
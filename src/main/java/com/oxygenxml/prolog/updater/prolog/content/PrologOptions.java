@@ -0,0 +1,118 @@
+package com.oxygenxml.prolog.updater.prolog.content;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import com.oxygenxml.prolog.updater.tags.OptionKeys;
+
+/**
+ * An immutable snapshot of the options of the plugin. Thread safe.
+ * <br/>
+ * The class doesn't depend on the Oxygen workspace, so it can be used by the batch updater. The snapshot
+ * of the options storage is read by {@link WorkspacePrologOptions}.
+ */
+public class PrologOptions {
+
+  /**
+   * The keys of the options that enable a part of the update. They are selected by default.
+   */
+  static final String[] UPDATE_KEYS = new String[] {
+      OptionKeys.TOPIC_ENABLE_UPDATE_ON_SAVE, OptionKeys.TOPIC_SET_CREATOR, OptionKeys.TOPIC_SET_CREATED_DATE,
+      OptionKeys.TOPIC_UPDATE_CONTRIBUTOR, OptionKeys.TOPIC_UPDATE_REVISED_DATES,
+      OptionKeys.MAP_ENABLE_UPDATE_ON_SAVE, OptionKeys.MAP_SET_CREATOR, OptionKeys.MAP_SET_CREATED_DATE,
+      OptionKeys.MAP_UPDATE_CONTRIBUTOR, OptionKeys.MAP_UPDATE_REVISED_DATES};
+
+  /**
+   * The keys of the options that limit the size of the documents updated in a certain way.
+   */
+  static final String[] SIZE_KEYS = new String[] {
+      OptionKeys.SCHEMA_AWARE_SIZE_LIMIT};
+
+  /**
+   * The default size, in kilobytes, above which the fragments are inserted without the schema.
+   */
+  public static final int DEFAULT_SCHEMA_AWARE_SIZE_LIMIT = 1024;
+
+  /**
+   * The name of the author from the options or <code>null</code> if it was not set.
+   */
+  private final String authorName;
+
+  /**
+   * The keys of the options that are not selected.
+   */
+  private final Set<String> disabled;
+
+  /**
+   * The size, in kilobytes, above which the fragments are inserted without the schema.
+   */
+  private final int schemaAwareSizeLimit;
+
+  /**
+   * Constructor.
+   *
+   * @param authorName The name of the author from the options or <code>null</code> if it was not set.
+   * @param options The values of the options, mapped by the keys from {@link OptionKeys}.
+   * Missing options are considered selected and missing sizes have the default values.
+   */
+  public PrologOptions(String authorName, Map<String, String> options) {
+    this.authorName = authorName;
+    Set<String> disabledKeys = new HashSet<String>();
+    for (String key : UPDATE_KEYS) {
+      String value = options.get(key);
+      if (value != null && !Boolean.parseBoolean(value)) {
+        disabledKeys.add(key);
+      }
+    }
+    this.disabled = Collections.unmodifiableSet(disabledKeys);
+    this.schemaAwareSizeLimit = parseSize(options.get(OptionKeys.SCHEMA_AWARE_SIZE_LIMIT), DEFAULT_SCHEMA_AWARE_SIZE_LIMIT);
+  }
+
+  /**
+   * Parse the value of a size option.
+   *
+   * @param value The value or <code>null</code>.
+   * @param defaultSize The size used when the value is missing or is not a positive number.
+   * @return The size, in kilobytes.
+   */
+  private static int parseSize(String value, int defaultSize) {
+    int toReturn = defaultSize;
+    if (value != null) {
+      try {
+        int size = Integer.parseInt(value.trim());
+        if (size > 0) {
+          toReturn = size;
+        }
+      } catch (NumberFormatException e) {
+        // Use the default size.
+      }
+    }
+    return toReturn;
+  }
+
+  /**
+   * @return The name of the author from the options or <code>null</code> if it was not set.
+   */
+  public String getAuthorName() {
+    return authorName;
+  }
+
+  /**
+   * @return The size, in kilobytes, above which the fragments are inserted without the schema.
+   */
+  public int getSchemaAwareSizeLimit() {
+    return schemaAwareSizeLimit;
+  }
+
+  /**
+   * Check if an option is selected.
+   *
+   * @param key One of the keys from {@link OptionKeys}.
+   * @return <code>true</code> if the option is selected.
+   */
+  public boolean isSelected(String key) {
+    return !disabled.contains(key);
+  }
+}
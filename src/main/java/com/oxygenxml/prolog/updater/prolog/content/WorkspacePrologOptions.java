@@ -0,0 +1,138 @@
+package com.oxygenxml.prolog.updater.prolog.content;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.oxygenxml.prolog.updater.tags.OptionKeys;
+import com.oxygenxml.prolog.updater.utils.PrologInsertionCache;
+
+import ro.sync.exml.workspace.api.PluginWorkspace;
+import ro.sync.exml.workspace.api.PluginWorkspaceProvider;
+import ro.sync.exml.workspace.api.options.WSOptionChangedEvent;
+import ro.sync.exml.workspace.api.options.WSOptionListener;
+import ro.sync.exml.workspace.api.options.WSOptionsStorage;
+
+/**
+ * Reads the {@link PrologOptions} from the options storage of the workspace.
+ * <br/>
+ * The snapshot returned by {@link #getCurrent()} is read from the options storage once and reused by all the
+ * updates, until an option is changed in the storage or the option page is saved. Thread safe.
+ */
+public class WorkspacePrologOptions {
+
+  /**
+   * The snapshot used by the updates or <code>null</code> if it must be read again.
+   */
+  private static volatile PrologOptions current;
+
+  /**
+   * Incremented each time the snapshot is forgotten, so a snapshot read during a change is not kept.
+   */
+  private static int generation;
+
+  /**
+   * The options storage observed for changes or <code>null</code>.
+   */
+  private static WSOptionsStorage observedStorage;
+
+  /**
+   * Private constructor. Avoid instantiation.
+   */
+  private WorkspacePrologOptions() {
+    // Nothing
+  }
+
+  /**
+   * Read the options from the storage of the workspace.
+   *
+   * @return The options. All the options are selected when the workspace is not available.
+   */
+  public static PrologOptions load() {
+    String author = null;
+    Map<String, String> options = Collections.emptyMap();
+    PluginWorkspace pluginWorkspace = PluginWorkspaceProvider.getPluginWorkspace();
+    WSOptionsStorage optionsStorage = pluginWorkspace != null ? pluginWorkspace.getOptionsStorage() : null;
+    if (optionsStorage != null) {
+      author = optionsStorage.getOption(OptionKeys.AUTHOR_NAME, null);
+      options = new HashMap<String, String>();
+      for (String key : PrologOptions.UPDATE_KEYS) {
+        options.put(key, optionsStorage.getOption(key, String.valueOf(true)));
+      }
+      for (String key : PrologOptions.SIZE_KEYS) {
+        options.put(key, optionsStorage.getOption(key, null));
+      }
+      observe(optionsStorage);
+    }
+    return new PrologOptions(author, options);
+  }
+
+  /**
+   * Get the snapshot used by the updates, reading it from the storage only if an option was changed.
+   *
+   * @return The options.
+   */
+  public static PrologOptions getCurrent() {
+    PrologOptions toReturn = current;
+    if (toReturn == null) {
+      int loadedGeneration = getGeneration();
+      toReturn = load();
+      synchronized (WorkspacePrologOptions.class) {
+        if (generation == loadedGeneration) {
+          current = toReturn;
+        }
+      }
+    }
+    return toReturn;
+  }
+
+  /**
+   * Forget the current snapshot. The options are read again by the next update. The locations of the prolog
+   * found with the schemas are also forgotten, because the frameworks may have been changed with the options.
+   */
+  public static synchronized void invalidate() {
+    generation++;
+    current = null;
+    PrologInsertionCache.clear();
+  }
+
+  /**
+   * @return The number of times the snapshot was forgotten.
+   */
+  private static synchronized int getGeneration() {
+    return generation;
+  }
+
+  /**
+   * Forget the current snapshot when an option of the plugin is changed in the storage.
+   *
+   * @param optionsStorage The options storage.
+   */
+  private static synchronized void observe(WSOptionsStorage optionsStorage) {
+    if (observedStorage != optionsStorage) {
+      observedStorage = optionsStorage;
+      optionsStorage.addOptionListener(createListener(OptionKeys.AUTHOR_NAME));
+      for (String key : PrologOptions.UPDATE_KEYS) {
+        optionsStorage.addOptionListener(createListener(key));
+      }
+      for (String key : PrologOptions.SIZE_KEYS) {
+        optionsStorage.addOptionListener(createListener(key));
+      }
+    }
+  }
+
+  /**
+   * Create a listener that forgets the current snapshot.
+   *
+   * @param key The key of the observed option.
+   * @return The listener.
+   */
+  private static WSOptionListener createListener(String key) {
+    return new WSOptionListener(key) {
+      @Override
+      public void optionValueChanged(WSOptionChangedEvent event) {
+        invalidate();
+      }
+    };
+  }
+}
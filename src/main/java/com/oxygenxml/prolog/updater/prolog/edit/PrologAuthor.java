@@ -0,0 +1,56 @@
+package com.oxygenxml.prolog.updater.prolog.edit;
+
+/**
+ * An author element found in the prolog of a document.
+ */
+public class PrologAuthor {
+
+  /**
+   * The value of the type attribute or <code>null</code>.
+   */
+  private final String type;
+
+  /**
+   * The text content of the author element.
+   */
+  private final String name;
+
+  /**
+   * The position after the end of the author element.
+   */
+  private final int endOffset;
+
+  /**
+   * Constructor.
+   *
+   * @param type The value of the type attribute or <code>null</code>.
+   * @param name The text content of the author element.
+   * @param endOffset The position after the end of the author element.
+   */
+  public PrologAuthor(String type, String name, int endOffset) {
+    this.type = type;
+    this.name = name;
+    this.endOffset = endOffset;
+  }
+
+  /**
+   * @return The value of the type attribute or <code>null</code>.
+   */
+  public String getType() {
+    return type;
+  }
+
+  /**
+   * @return The text content of the author element.
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * @return The position after the end of the author element.
+   */
+  public int getEndOffset() {
+    return endOffset;
+  }
+}
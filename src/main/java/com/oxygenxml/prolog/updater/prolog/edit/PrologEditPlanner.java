@@ -0,0 +1,134 @@
+package com.oxygenxml.prolog.updater.prolog.edit;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.oxygenxml.prolog.updater.dita.editor.DocumentType;
+import com.oxygenxml.prolog.updater.prolog.content.PrologContentCreator;
+import com.oxygenxml.prolog.updater.utils.XMLFragmentUtils;
+import com.oxygenxml.prolog.updater.utils.XmlElementsConstants;
+
+/**
+ * Decides which fragments must be inserted in a prolog and where, using the same rules
+ * as the editors from the workspace.
+ */
+public class PrologEditPlanner {
+
+  /**
+   * Private constructor. Avoid instantiation.
+   */
+  private PrologEditPlanner() {
+    // Nothing
+  }
+
+  /**
+   * Create the insertions that update the given prolog structure.
+   * <br/>
+   * The insertions are returned in document order. Insertions that have the same offset must be applied
+   * in the returned order, each one after the previous.
+   *
+   * @param structure The structure of the prolog.
+   * @param prologCreator Contains all elements from prolog.
+   * @param isNewDocument <code>true</code> if document is new, <code>false</code> otherwise.
+   * @return The insertions. Empty if the prolog is up to date. Never <code>null</code>.
+   */
+  public static List<PrologInsertion> createInsertions(PrologStructure structure, PrologContentCreator prologCreator,
+      boolean isNewDocument) {
+    List<PrologInsertion> insertions = new ArrayList<PrologInsertion>();
+    DocumentType documentType = structure.getDocumentType();
+
+    String prologFragment = prologCreator.getPrologFragment(isNewDocument, documentType);
+    if (prologFragment == null) {
+      // The update is disabled for this type of document.
+      return insertions;
+    }
+
+    if (!structure.hasProlog()) {
+      int offset = structure.getPrologPredecessorEndOffset();
+      if (offset == -1) {
+        offset = structure.getRootFirstChildOffset();
+      }
+      addInsertion(insertions, offset, prologFragment);
+    } else {
+      List<PrologAuthor> authors = structure.getAuthors();
+      int lastAuthorEnd = authors.isEmpty() ? structure.getPrologFirstChildOffset()
+          : authors.get(authors.size() - 1).getEndOffset();
+
+      // Update the author elements.
+      if (isNewDocument) {
+        if (!hasAuthor(authors, XmlElementsConstants.CREATOR_TYPE, null)) {
+          addInsertion(insertions, structure.getPrologFirstChildOffset(), prologCreator.getCreatorFragment(documentType));
+        }
+      } else if (!hasAuthor(authors, XmlElementsConstants.CONTRIBUTOR_TYPE, prologCreator.getAuthor())) {
+        addInsertion(insertions, lastAuthorEnd, prologCreator.getContributorFragment(documentType));
+      }
+
+      // Update the critdates element.
+      if (!structure.hasCritdates()) {
+        addInsertion(insertions, lastAuthorEnd,
+            XMLFragmentUtils.createCritdateTag(prologCreator.getDateFragment(isNewDocument, documentType)));
+      } else if (isNewDocument) {
+        if (!structure.hasCreated()) {
+          addInsertion(insertions, structure.getCritdatesFirstChildOffset(), prologCreator.getCreatedDateFragment(documentType));
+        }
+      } else if (!hasRevised(structure.getRevisedElements(), prologCreator.getLocalDate(), prologCreator.getAuthor())) {
+        List<PrologRevised> revisedElements = structure.getRevisedElements();
+        int offset = revisedElements.isEmpty() ? structure.getCritdatesLastChildOffset()
+            : revisedElements.get(revisedElements.size() - 1).getEndOffset();
+        addInsertion(insertions, offset, prologCreator.getRevisedDateFragment(documentType));
+      }
+    }
+    return insertions;
+  }
+
+  /**
+   * Search for an author with the given type.
+   *
+   * @param authors The authors from prolog.
+   * @param type The searched author type ( {@link XmlElementsConstants#CREATOR_TYPE} or {@link XmlElementsConstants#CONTRIBUTOR_TYPE}).
+   * @param authorName The name of the author or <code>null</code> to accept any name.
+   * @return <code>true</code> if an author with the given type was found.
+   */
+  private static boolean hasAuthor(List<PrologAuthor> authors, String type, String authorName) {
+    boolean found = false;
+    for (PrologAuthor author : authors) {
+      if (type.equals(author.getType()) && (authorName == null || authorName.equals(author.getName()))) {
+        found = true;
+        break;
+      }
+    }
+    return found;
+  }
+
+  /**
+   * Search for a revised element with the given date, preceded by a comment with the author name.
+   *
+   * @param revisedElements The revised elements.
+   * @param localDate The local date.
+   * @param authorName The author name.
+   * @return <code>true</code> if the revised element was found.
+   */
+  private static boolean hasRevised(List<PrologRevised> revisedElements, String localDate, String authorName) {
+    boolean found = false;
+    for (PrologRevised revised : revisedElements) {
+      if (localDate.equals(revised.getModified()) && authorName.equals(revised.getComment())) {
+        found = true;
+        break;
+      }
+    }
+    return found;
+  }
+
+  /**
+   * Add an insertion in the given list if the fragment and the offset are valid.
+   *
+   * @param insertions The list of insertions.
+   * @param offset The offset.
+   * @param fragment The fragment or <code>null</code>.
+   */
+  private static void addInsertion(List<PrologInsertion> insertions, int offset, String fragment) {
+    if (fragment != null && offset != -1) {
+      insertions.add(new PrologInsertion(offset, fragment));
+    }
+  }
+}
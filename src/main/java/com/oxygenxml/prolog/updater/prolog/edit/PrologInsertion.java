@@ -0,0 +1,47 @@
+package com.oxygenxml.prolog.updater.prolog.edit;
+
+/**
+ * An XML fragment that must be inserted in a document to update its prolog.
+ */
+public class PrologInsertion {
+
+  /**
+   * The position where the fragment is inserted.
+   */
+  private final int offset;
+
+  /**
+   * The XML fragment to insert.
+   */
+  private final String fragment;
+
+  /**
+   * Constructor.
+   *
+   * @param offset The position where the fragment is inserted.
+   * @param fragment The XML fragment to insert.
+   */
+  public PrologInsertion(int offset, String fragment) {
+    this.offset = offset;
+    this.fragment = fragment;
+  }
+
+  /**
+   * @return The position where the fragment is inserted.
+   */
+  public int getOffset() {
+    return offset;
+  }
+
+  /**
+   * @return The XML fragment to insert.
+   */
+  public String getFragment() {
+    return fragment;
+  }
+
+  @Override
+  public String toString() {
+    return offset + ":" + fragment;
+  }
+}
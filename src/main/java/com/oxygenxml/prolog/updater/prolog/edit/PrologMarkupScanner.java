@@ -0,0 +1,432 @@
+package com.oxygenxml.prolog.updater.prolog.edit;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Tokenizes a document until the end of the prolog and reports the markup to a
+ * {@link PrologStructureBuilder}. The offsets from the built structure are the offsets
+ * of the scanned input.
+ * <br/>
+ * The input is read through {@link #get(int)}, so the same scanner works on characters and on
+ * the bytes of the encodings where the markup characters are encoded as in ASCII. Only the input
+ * before the end of the prolog is touched.
+ */
+public abstract class PrologMarkupScanner {
+
+  /**
+   * The start of a comment.
+   */
+  private static final String COMMENT_START = "<!--";
+
+  /**
+   * The end of a comment.
+   */
+  private static final String COMMENT_END = "-->";
+
+  /**
+   * The start of a CDATA section.
+   */
+  private static final String CDATA_START = "<![CDATA[";
+
+  /**
+   * The end of a CDATA section.
+   */
+  private static final String CDATA_END = "]]>";
+
+  /**
+   * The end of a processing instruction or of the XML declaration.
+   */
+  private static final String PI_END = "?>";
+
+  /**
+   * <code>true</code> if the input contains the whole document.
+   */
+  private final boolean endOfInput;
+
+  /**
+   * <code>true</code> if the scan stopped because more input is needed.
+   */
+  private boolean incomplete = false;
+
+  /**
+   * The offset where the scan stopped.
+   */
+  private int scanEnd = -1;
+
+  /**
+   * Constructor.
+   *
+   * @param endOfInput <code>true</code> if the input contains the whole document.
+   */
+  protected PrologMarkupScanner(boolean endOfInput) {
+    this.endOfInput = endOfInput;
+  }
+
+  /**
+   * Get a unit of the input.
+   *
+   * @param pos The offset.
+   * @return The character or the unsigned byte from the offset.
+   */
+  protected abstract int get(int pos);
+
+  /**
+   * @return The length of the available input.
+   */
+  protected abstract int limit();
+
+  /**
+   * Get the text from a range of the input.
+   *
+   * @param start The start offset, inclusive.
+   * @param end The end offset, exclusive.
+   * @return The text.
+   */
+  protected abstract String decode(int start, int end);
+
+  /**
+   * Scan the document until the builder is finished or the input ends.
+   *
+   * @param start The offset of the first character of the document.
+   * @param builder Receives the markup.
+   * @throws IOException If the document is not well-formed.
+   */
+  public void scan(int start, PrologStructureBuilder builder) throws IOException {
+    int limit = limit();
+    int pos = start;
+    while (pos < limit && !builder.isFinished()) {
+      if (get(pos) != '<') {
+        int end = indexOf('<', pos);
+        if (end == -1) {
+          // Text after the root element or a truncated text.
+          break;
+        }
+        builder.characters(resolveReferences(decode(pos, end)));
+        pos = end;
+      } else if (startsWith(pos, COMMENT_START)) {
+        int end = indexOf(COMMENT_END, pos + COMMENT_START.length());
+        if (end == -1) {
+          break;
+        }
+        builder.comment(decode(pos + COMMENT_START.length(), end));
+        pos = end + COMMENT_END.length();
+      } else if (startsWith(pos, CDATA_START)) {
+        int end = indexOf(CDATA_END, pos + CDATA_START.length());
+        if (end == -1) {
+          break;
+        }
+        builder.characters(decode(pos + CDATA_START.length(), end));
+        pos = end + CDATA_END.length();
+      } else if (pos + 1 < limit && get(pos + 1) == '?') {
+        int end = indexOf(PI_END, pos + 2);
+        if (end == -1) {
+          break;
+        }
+        pos = end + PI_END.length();
+      } else if (pos + 1 < limit && get(pos + 1) == '!') {
+        int end = findDeclarationEnd(pos + 2);
+        if (end == -1) {
+          break;
+        }
+        pos = end + 1;
+      } else if (pos + 1 < limit && get(pos + 1) == '/') {
+        int end = indexOf('>', pos + 2);
+        if (end == -1) {
+          break;
+        }
+        builder.endElement(pos, end + 1, decode(pos + 2, end).trim());
+        pos = end + 1;
+      } else {
+        pos = scanStartTag(pos, builder);
+        if (pos == -1) {
+          break;
+        }
+      }
+    }
+
+    scanEnd = builder.isFinished() ? pos : limit;
+    if (!builder.isFinished()) {
+      if (endOfInput) {
+        throw new IOException("Unexpected end of file while looking for the prolog.");
+      }
+      incomplete = true;
+    }
+  }
+
+  /**
+   * @return <code>true</code> if the scan stopped because more input is needed.
+   */
+  public boolean isIncomplete() {
+    return incomplete;
+  }
+
+  /**
+   * @return The offset where the scan stopped or <code>-1</code> before the scan. The input from this
+   * offset was not read.
+   */
+  public int getScanEnd() {
+    return scanEnd;
+  }
+
+  /**
+   * Scan a start tag and report it to the builder.
+   *
+   * @param tagStart The offset of the '&lt;' character.
+   * @param builder Receives the markup.
+   * @return The offset after the tag or <code>-1</code> if the tag is truncated.
+   * @throws IOException If the tag is not well-formed.
+   */
+  private int scanStartTag(int tagStart, PrologStructureBuilder builder) throws IOException {
+    int limit = limit();
+    int pos = tagStart + 1;
+    int nameEnd = skipName(pos);
+    if (nameEnd == -1) {
+      return -1;
+    }
+    String name = decode(pos, nameEnd);
+    Map<String, String> attributes = new HashMap<String, String>();
+    pos = nameEnd;
+    while (true) {
+      pos = skipWhitespace(pos);
+      if (pos >= limit) {
+        return -1;
+      }
+      int c = get(pos);
+      if (c == '>') {
+        builder.startElement(name, attributes, pos + 1, false);
+        return pos + 1;
+      } else if (c == '/') {
+        if (pos + 1 >= limit) {
+          return -1;
+        }
+        if (get(pos + 1) != '>') {
+          throw new IOException("Malformed start tag of the " + name + " element.");
+        }
+        int end = pos + 2;
+        if (builder.startElement(name, attributes, end, true)) {
+          builder.endElement(end, end, name);
+        }
+        return end;
+      }
+
+      int attributeNameEnd = skipName(pos);
+      if (attributeNameEnd == -1) {
+        return -1;
+      }
+      String attributeName = decode(pos, attributeNameEnd);
+      pos = skipWhitespace(attributeNameEnd);
+      if (pos >= limit) {
+        return -1;
+      }
+      if (get(pos) != '=') {
+        throw new IOException("Malformed attribute " + attributeName + " of the " + name + " element.");
+      }
+      pos = skipWhitespace(pos + 1);
+      if (pos >= limit) {
+        return -1;
+      }
+      int quote = get(pos);
+      if (quote != '"' && quote != '\'') {
+        throw new IOException("Malformed attribute " + attributeName + " of the " + name + " element.");
+      }
+      int valueEnd = indexOf(quote, pos + 1);
+      if (valueEnd == -1) {
+        return -1;
+      }
+      attributes.put(attributeName, resolveReferences(decode(pos + 1, valueEnd)));
+      pos = valueEnd + 1;
+    }
+  }
+
+  /**
+   * Find the end of a markup declaration (DOCTYPE), skipping the internal subset, the quoted strings
+   * and the comments.
+   *
+   * @param from The offset after "&lt;!".
+   * @return The offset of the closing '&gt;' or <code>-1</code> if the declaration is truncated.
+   */
+  private int findDeclarationEnd(int from) {
+    int limit = limit();
+    int subsetDepth = 0;
+    int pos = from;
+    while (pos < limit) {
+      int c = get(pos);
+      if (c == '"' || c == '\'') {
+        pos = indexOf(c, pos + 1);
+        if (pos == -1) {
+          return -1;
+        }
+      } else if (c == '<' && startsWith(pos, COMMENT_START)) {
+        pos = indexOf(COMMENT_END, pos + COMMENT_START.length());
+        if (pos == -1) {
+          return -1;
+        }
+        pos += COMMENT_END.length() - 1;
+      } else if (c == '[') {
+        subsetDepth++;
+      } else if (c == ']') {
+        subsetDepth--;
+      } else if (c == '>' && subsetDepth == 0) {
+        return pos;
+      }
+      pos++;
+    }
+    return -1;
+  }
+
+  /**
+   * Skip an XML name.
+   *
+   * @param from The offset of the first character of the name.
+   * @return The offset after the name or <code>-1</code> if the input ends.
+   */
+  private int skipName(int from) {
+    int limit = limit();
+    for (int pos = from; pos < limit; pos++) {
+      int c = get(pos);
+      if (isWhitespace(c) || c == '>' || c == '/' || c == '=') {
+        return pos;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Skip the whitespaces.
+   *
+   * @param from The start offset.
+   * @return The offset of the first character that is not a whitespace.
+   */
+  private int skipWhitespace(int from) {
+    int limit = limit();
+    int pos = from;
+    while (pos < limit && isWhitespace(get(pos))) {
+      pos++;
+    }
+    return pos;
+  }
+
+  /**
+   * Search for a character.
+   *
+   * @param c The searched character.
+   * @param from The start offset.
+   * @return The offset of the character or <code>-1</code>.
+   */
+  private int indexOf(int c, int from) {
+    int limit = limit();
+    for (int pos = from; pos < limit; pos++) {
+      if (get(pos) == c) {
+        return pos;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Search for a markup string.
+   *
+   * @param markup The searched markup.
+   * @param from The start offset.
+   * @return The offset of the sequence or <code>-1</code>.
+   */
+  private int indexOf(String markup, int from) {
+    int last = limit() - markup.length();
+    for (int pos = from; pos <= last; pos++) {
+      if (startsWith(pos, markup)) {
+        return pos;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Check if the given markup is found at an offset.
+   *
+   * @param pos The offset.
+   * @param markup The markup.
+   * @return <code>true</code> if the markup is found at the offset.
+   */
+  private boolean startsWith(int pos, String markup) {
+    if (pos + markup.length() > limit()) {
+      return false;
+    }
+    for (int i = 0; i < markup.length(); i++) {
+      if (get(pos + i) != markup.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Resolve the predefined entity references and the character references.
+   * The references to other entities are kept.
+   *
+   * @param text The text.
+   * @return The resolved text.
+   */
+  public static String resolveReferences(String text) {
+    int ampersand = text.indexOf('&');
+    if (ampersand == -1) {
+      return text;
+    }
+    StringBuilder toReturn = new StringBuilder(text.length());
+    int pos = 0;
+    while (ampersand != -1) {
+      int semicolon = text.indexOf(';', ampersand);
+      if (semicolon == -1) {
+        break;
+      }
+      toReturn.append(text, pos, ampersand);
+      String name = text.substring(ampersand + 1, semicolon);
+      String resolved = resolveReference(name);
+      toReturn.append(resolved != null ? resolved : text.substring(ampersand, semicolon + 1));
+      pos = semicolon + 1;
+      ampersand = text.indexOf('&', pos);
+    }
+    toReturn.append(text, pos, text.length());
+    return toReturn.toString();
+  }
+
+  /**
+   * Resolve a predefined entity reference or a character reference.
+   *
+   * @param name The name of the reference, without '&amp;' and ';'.
+   * @return The resolved text or <code>null</code> if the entity is not predefined.
+   */
+  private static String resolveReference(String name) {
+    String resolved = null;
+    if ("lt".equals(name)) {
+      resolved = "<";
+    } else if ("gt".equals(name)) {
+      resolved = ">";
+    } else if ("amp".equals(name)) {
+      resolved = "&";
+    } else if ("quot".equals(name)) {
+      resolved = "\"";
+    } else if ("apos".equals(name)) {
+      resolved = "'";
+    } else if (name.startsWith("#")) {
+      try {
+        int codePoint = name.startsWith("#x") ? Integer.parseInt(name.substring(2), 16) : Integer.parseInt(name.substring(1));
+        resolved = new String(Character.toChars(codePoint));
+      } catch (IllegalArgumentException e) {
+        // Not a valid character reference. Keep it.
+      }
+    }
+    return resolved;
+  }
+
+  /**
+   * Check if a character is an XML whitespace.
+   *
+   * @param c The character.
+   * @return <code>true</code> for space, tab, carriage return and line feed.
+   */
+  private static boolean isWhitespace(int c) {
+    return c == ' ' || c == '\t' || c == '\r' || c == '\n';
+  }
+}
@@ -0,0 +1,56 @@
+package com.oxygenxml.prolog.updater.prolog.edit;
+
+/**
+ * A revised element found in the critdates element of a prolog.
+ */
+public class PrologRevised {
+
+  /**
+   * The value of the modified attribute or <code>null</code>.
+   */
+  private final String modified;
+
+  /**
+   * The content of the comment that precedes the revised element or <code>null</code>.
+   */
+  private final String comment;
+
+  /**
+   * The position after the end of the revised element.
+   */
+  private final int endOffset;
+
+  /**
+   * Constructor.
+   *
+   * @param modified The value of the modified attribute or <code>null</code>.
+   * @param comment The content of the comment that precedes the revised element or <code>null</code>.
+   * @param endOffset The position after the end of the revised element.
+   */
+  public PrologRevised(String modified, String comment, int endOffset) {
+    this.modified = modified;
+    this.comment = comment;
+    this.endOffset = endOffset;
+  }
+
+  /**
+   * @return The value of the modified attribute or <code>null</code>.
+   */
+  public String getModified() {
+    return modified;
+  }
+
+  /**
+   * @return The content of the comment that precedes the revised element or <code>null</code>.
+   */
+  public String getComment() {
+    return comment;
+  }
+
+  /**
+   * @return The position after the end of the revised element.
+   */
+  public int getEndOffset() {
+    return endOffset;
+  }
+}
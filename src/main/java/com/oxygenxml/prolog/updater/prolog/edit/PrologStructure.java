@@ -0,0 +1,220 @@
+package com.oxygenxml.prolog.updater.prolog.edit;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.oxygenxml.prolog.updater.dita.editor.DocumentType;
+
+/**
+ * The structure of the prolog of a document, as found by a locator.
+ * <br/>
+ * All the offsets are positions where a fragment can be inserted. Their unit depends
+ * on the locator that filled the structure (characters, bytes, parser events).
+ * A value of <code>-1</code> means that the position is unknown.
+ */
+public class PrologStructure {
+
+  /**
+   * The document type( {@link DocumentType#TOPIC}, {@link DocumentType#MAP} or {@link DocumentType#BOOKMAP}  ).
+   */
+  private DocumentType documentType = DocumentType.TOPIC;
+
+  /**
+   * The position after the start tag of the root element.
+   */
+  private int rootFirstChildOffset = -1;
+
+  /**
+   * The position after the last child of the root that can precede the prolog.
+   */
+  private int prologPredecessorEndOffset = -1;
+
+  /**
+   * The position after the start tag of the prolog.
+   */
+  private int prologFirstChildOffset = -1;
+
+  /**
+   * The position before the end tag of the prolog.
+   */
+  private int prologLastChildOffset = -1;
+
+  /**
+   * The author elements from prolog.
+   */
+  private List<PrologAuthor> authors = new ArrayList<PrologAuthor>();
+
+  /**
+   * The position after the start tag of the critdates element.
+   */
+  private int critdatesFirstChildOffset = -1;
+
+  /**
+   * The position before the end tag of the critdates element.
+   */
+  private int critdatesLastChildOffset = -1;
+
+  /**
+   * <code>true</code> if the critdates element contains a created element.
+   */
+  private boolean hasCreated = false;
+
+  /**
+   * The revised elements from critdates.
+   */
+  private List<PrologRevised> revisedElements = new ArrayList<PrologRevised>();
+
+  /**
+   * @return The document type.
+   */
+  public DocumentType getDocumentType() {
+    return documentType;
+  }
+
+  /**
+   * @param documentType The document type.
+   */
+  public void setDocumentType(DocumentType documentType) {
+    this.documentType = documentType;
+  }
+
+  /**
+   * @return The position after the start tag of the root element.
+   */
+  public int getRootFirstChildOffset() {
+    return rootFirstChildOffset;
+  }
+
+  /**
+   * @param rootFirstChildOffset The position after the start tag of the root element.
+   */
+  public void setRootFirstChildOffset(int rootFirstChildOffset) {
+    this.rootFirstChildOffset = rootFirstChildOffset;
+  }
+
+  /**
+   * @return The position after the last child of the root that can precede the prolog or <code>-1</code>.
+   */
+  public int getPrologPredecessorEndOffset() {
+    return prologPredecessorEndOffset;
+  }
+
+  /**
+   * @param prologPredecessorEndOffset The position after the last child of the root that can precede the prolog.
+   */
+  public void setPrologPredecessorEndOffset(int prologPredecessorEndOffset) {
+    this.prologPredecessorEndOffset = prologPredecessorEndOffset;
+  }
+
+  /**
+   * @return <code>true</code> if the document has a prolog element.
+   */
+  public boolean hasProlog() {
+    return prologFirstChildOffset != -1;
+  }
+
+  /**
+   * @return The position after the start tag of the prolog or <code>-1</code>.
+   */
+  public int getPrologFirstChildOffset() {
+    return prologFirstChildOffset;
+  }
+
+  /**
+   * @param prologFirstChildOffset The position after the start tag of the prolog.
+   */
+  public void setPrologFirstChildOffset(int prologFirstChildOffset) {
+    this.prologFirstChildOffset = prologFirstChildOffset;
+  }
+
+  /**
+   * @return The position before the end tag of the prolog or <code>-1</code>.
+   */
+  public int getPrologLastChildOffset() {
+    return prologLastChildOffset;
+  }
+
+  /**
+   * @param prologLastChildOffset The position before the end tag of the prolog.
+   */
+  public void setPrologLastChildOffset(int prologLastChildOffset) {
+    this.prologLastChildOffset = prologLastChildOffset;
+  }
+
+  /**
+   * @return The author elements from prolog. Never <code>null</code>.
+   */
+  public List<PrologAuthor> getAuthors() {
+    return authors;
+  }
+
+  /**
+   * @param author The author element to add.
+   */
+  public void addAuthor(PrologAuthor author) {
+    authors.add(author);
+  }
+
+  /**
+   * @return <code>true</code> if the prolog contains a critdates element.
+   */
+  public boolean hasCritdates() {
+    return critdatesFirstChildOffset != -1;
+  }
+
+  /**
+   * @return The position after the start tag of the critdates element or <code>-1</code>.
+   */
+  public int getCritdatesFirstChildOffset() {
+    return critdatesFirstChildOffset;
+  }
+
+  /**
+   * @param critdatesFirstChildOffset The position after the start tag of the critdates element.
+   */
+  public void setCritdatesFirstChildOffset(int critdatesFirstChildOffset) {
+    this.critdatesFirstChildOffset = critdatesFirstChildOffset;
+  }
+
+  /**
+   * @return The position before the end tag of the critdates element or <code>-1</code>.
+   */
+  public int getCritdatesLastChildOffset() {
+    return critdatesLastChildOffset;
+  }
+
+  /**
+   * @param critdatesLastChildOffset The position before the end tag of the critdates element.
+   */
+  public void setCritdatesLastChildOffset(int critdatesLastChildOffset) {
+    this.critdatesLastChildOffset = critdatesLastChildOffset;
+  }
+
+  /**
+   * @return <code>true</code> if the critdates element contains a created element.
+   */
+  public boolean hasCreated() {
+    return hasCreated;
+  }
+
+  /**
+   * @param hasCreated <code>true</code> if the critdates element contains a created element.
+   */
+  public void setHasCreated(boolean hasCreated) {
+    this.hasCreated = hasCreated;
+  }
+
+  /**
+   * @return The revised elements from critdates. Never <code>null</code>.
+   */
+  public List<PrologRevised> getRevisedElements() {
+    return revisedElements;
+  }
+
+  /**
+   * @param revised The revised element to add.
+   */
+  public void addRevised(PrologRevised revised) {
+    revisedElements.add(revised);
+  }
+}
@@ -0,0 +1,305 @@
+package com.oxygenxml.prolog.updater.prolog.edit;
+
+import java.util.Map;
+
+import com.oxygenxml.prolog.updater.dita.editor.DocumentType;
+import com.oxygenxml.prolog.updater.utils.PrologPlacementTable;
+import com.oxygenxml.prolog.updater.utils.XmlElementsConstants;
+import com.oxygenxml.prolog.updater.utils.XmlElementsUtils;
+
+/**
+ * Builds a {@link PrologStructure} from the parts of a document reported by a locator,
+ * in document order, until the end of the prolog.
+ * <br/>
+ * The elements are identified by their class attribute when it's present and by their name otherwise,
+ * because the files from disk usually don't contain the default attributes from the DTD. The children
+ * that can precede the prolog are taken from the {@link PrologPlacementTable}. A root element without
+ * a class attribute that is not the root of a standard DITA type is not recognized and no structure
+ * is built for it.
+ */
+public class PrologStructureBuilder {
+
+  /**
+   * The collected structure. <code>null</code> until the root element is reported or if the document is not DITA.
+   */
+  private PrologStructure structure;
+
+  /**
+   * The local name of the root element.
+   */
+  private String rootName;
+
+  /**
+   * <code>true</code> when the locator can stop.
+   */
+  private boolean finished = false;
+
+  /**
+   * The name of the root, prolog or critdates element that doesn't have an end tag or <code>null</code>.
+   */
+  private String emptyContainerName;
+
+  /**
+   * The position after the empty-element tag of {@link #emptyContainerName} or <code>-1</code>.
+   */
+  private int emptyContainerEndOffset = -1;
+
+  /**
+   * The depth of the current element.
+   */
+  private int depth = 0;
+
+  /**
+   * <code>true</code> inside the prolog element.
+   */
+  private boolean inProlog = false;
+
+  /**
+   * <code>true</code> inside the critdates element.
+   */
+  private boolean inCritdates = false;
+
+  /**
+   * <code>true</code> inside a child of the root that can precede the prolog.
+   */
+  private boolean inPredecessor = false;
+
+  /**
+   * The type of the current author element.
+   */
+  private String authorType;
+
+  /**
+   * The name of the current author element. <code>null</code> outside author elements.
+   */
+  private StringBuilder authorName;
+
+  /**
+   * The modified attribute of the current revised element.
+   */
+  private String revisedModified;
+
+  /**
+   * The comment that precedes the current revised element.
+   */
+  private String revisedComment;
+
+  /**
+   * The last comment from critdates, if it was not followed by other content.
+   */
+  private String lastComment;
+
+  /**
+   * Report the start tag of an element.
+   *
+   * @param name The local name of the element.
+   * @param attributes The attributes of the element, mapped by name.
+   * @param contentOffset The position after the start tag.
+   * @param isEmpty <code>true</code> for an empty-element tag (<code>&lt;name/&gt;</code>).
+   * It must be followed by an {@link #endElement(int, int)} call.
+   * @return <code>false</code> if the locator can stop.
+   */
+  public boolean startElement(String name, Map<String, String> attributes, int contentOffset, boolean isEmpty) {
+    depth++;
+    String classValue = attributes.get(XmlElementsConstants.CLASS);
+    if (depth == 1) {
+      DocumentType documentType = getRootDocumentType(name, classValue);
+      if (documentType != null) {
+        rootName = name;
+        structure = new PrologStructure();
+        structure.setDocumentType(documentType);
+        structure.setRootFirstChildOffset(contentOffset);
+        setEmptyContainer(name, contentOffset, isEmpty);
+      }
+      finished = structure == null || isEmpty;
+    } else if (depth == 2) {
+      DocumentType documentType = structure.getDocumentType();
+      if (XmlElementsUtils.isPrologElement(documentType, name, classValue)) {
+        inProlog = true;
+        structure.setPrologFirstChildOffset(contentOffset);
+        setEmptyContainer(name, contentOffset, isEmpty);
+        if (isEmpty) {
+          // The locator stops here, the end of the element is not reported.
+          structure.setPrologLastChildOffset(contentOffset);
+        }
+        finished = isEmpty;
+      } else if (PrologPlacementTable.isPredecessor(documentType, rootName, name, classValue)) {
+        inPredecessor = true;
+      } else {
+        // The prolog can't be placed after this element.
+        finished = true;
+      }
+    } else if (inProlog && depth == 3) {
+      if (XmlElementsConstants.AUTHOR_ELEMENT_NAME.equals(name)) {
+        authorType = attributes.get(XmlElementsConstants.TYPE_ATTRIBUTE);
+        authorName = new StringBuilder();
+      } else if (XmlElementsConstants.CRITDATES_NAME.equals(name)) {
+        inCritdates = true;
+        structure.setCritdatesFirstChildOffset(contentOffset);
+        setEmptyContainer(name, contentOffset, isEmpty);
+        if (isEmpty) {
+          structure.setCritdatesLastChildOffset(contentOffset);
+        }
+        finished = isEmpty;
+      }
+    } else if (inCritdates && depth == 4) {
+      if (XmlElementsConstants.CREATED_NAME.equals(name)) {
+        structure.setHasCreated(true);
+      } else if (XmlElementsConstants.REVISED_NAME.equals(name)) {
+        revisedModified = attributes.get(XmlElementsConstants.MODIFIED_ATTRIBUTE);
+        revisedComment = lastComment;
+      }
+      lastComment = null;
+    }
+    return !finished;
+  }
+
+  /**
+   * Report the end of an element.
+   *
+   * @param startOffset The position before the end tag.
+   * @param endOffset The position after the end tag.
+   * @param name The local name of the element.
+   * @return <code>false</code> if the locator can stop.
+   */
+  public boolean endElement(int startOffset, int endOffset, String name) {
+    if (depth == 1) {
+      finished = true;
+    } else if (depth == 2) {
+      if (inProlog) {
+        structure.setPrologLastChildOffset(startOffset);
+        finished = true;
+      } else if (inPredecessor) {
+        structure.setPrologPredecessorEndOffset(endOffset);
+        inPredecessor = false;
+      }
+    } else if (inProlog && depth == 3) {
+      if (authorName != null) {
+        structure.addAuthor(new PrologAuthor(authorType, authorName.toString(), endOffset));
+        authorName = null;
+      } else if (inCritdates) {
+        structure.setCritdatesLastChildOffset(startOffset);
+        inCritdates = false;
+      }
+    } else if (inCritdates && depth == 4 && XmlElementsConstants.REVISED_NAME.equals(name)) {
+      structure.addRevised(new PrologRevised(revisedModified, revisedComment, endOffset));
+    }
+    depth--;
+    return !finished;
+  }
+
+  /**
+   * Report text content. The entity and character references must be already resolved,
+   * except for the references to entities that are not predefined.
+   *
+   * @param text The text.
+   */
+  public void characters(CharSequence text) {
+    if (authorName != null && depth == 3) {
+      authorName.append(text);
+    } else if (inCritdates && depth == 3 && !isWhitespace(text)) {
+      lastComment = null;
+    }
+  }
+
+  /**
+   * Report a comment.
+   *
+   * @param text The text of the comment.
+   */
+  public void comment(String text) {
+    if (inCritdates && depth == 3) {
+      lastComment = text;
+    }
+  }
+
+  /**
+   * @return <code>true</code> if the locator can stop.
+   */
+  public boolean isFinished() {
+    return finished;
+  }
+
+  /**
+   * Remember the container element that doesn't have an end tag.
+   *
+   * @param name The name of the element.
+   * @param endOffset The position after the start tag.
+   * @param isEmpty <code>true</code> for an empty-element tag.
+   */
+  private void setEmptyContainer(String name, int endOffset, boolean isEmpty) {
+    if (isEmpty) {
+      emptyContainerName = name;
+      emptyContainerEndOffset = endOffset;
+    }
+  }
+
+  /**
+   * @return <code>true</code> if the root, the prolog or the critdates element doesn't have an end tag.
+   * Fragments can't be inserted in such elements without rewriting their tags.
+   */
+  public boolean hasEmptyContainer() {
+    return emptyContainerName != null;
+  }
+
+  /**
+   * @return The name of the root, prolog or critdates element that doesn't have an end tag or <code>null</code>.
+   * The fragments inserted in it must be followed by its end tag.
+   */
+  public String getEmptyContainerName() {
+    return emptyContainerName;
+  }
+
+  /**
+   * @return The position after the empty-element tag (<code>&lt;name/&gt;</code>) of the container
+   * or <code>-1</code>. All the fragments inserted at this position belong to the container.
+   */
+  public int getEmptyContainerEndOffset() {
+    return emptyContainerEndOffset;
+  }
+
+  /**
+   * @return The collected structure or <code>null</code> if the document is not a DITA topic or map
+   * or its root is not recognized.
+   */
+  public PrologStructure getStructure() {
+    return structure;
+  }
+
+  /**
+   * Get the type of a document from its root element.
+   *
+   * @param name The local name of the root.
+   * @param classValue The value of the class attribute or <code>null</code>.
+   * @return The document type or <code>null</code> if the root doesn't belong to a DITA topic or map
+   * whose prolog can be updated.
+   */
+  private static DocumentType getRootDocumentType(String name, String classValue) {
+    DocumentType toReturn = null;
+    if (classValue != null) {
+      if (classValue.contains(XmlElementsConstants.TOPIC_CLASS) || classValue.contains(XmlElementsConstants.MAP_CLASS)) {
+        toReturn = XmlElementsUtils.getDocumentType(name, classValue);
+      }
+    } else {
+      toReturn = PrologPlacementTable.getDocumentType(name);
+    }
+    return toReturn;
+  }
+
+  /**
+   * Check if the given text contains only whitespaces.
+   *
+   * @param text The text.
+   * @return <code>true</code> if the text contains only whitespaces.
+   */
+  private static boolean isWhitespace(CharSequence text) {
+    boolean toReturn = true;
+    for (int i = 0; i < text.length(); i++) {
+      if (!Character.isWhitespace(text.charAt(i))) {
+        toReturn = false;
+        break;
+      }
+    }
+    return toReturn;
+  }
+}
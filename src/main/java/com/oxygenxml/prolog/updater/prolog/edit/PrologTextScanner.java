@@ -0,0 +1,49 @@
+package com.oxygenxml.prolog.updater.prolog.edit;
+
+/**
+ * Tokenizes the text of a document until the end of the prolog and reports the markup to a
+ * {@link PrologStructureBuilder}. The offsets from the built structure are character offsets,
+ * so they can be used directly in the document of a text editor.
+ */
+public class PrologTextScanner extends PrologMarkupScanner {
+
+  /**
+   * The text of the document.
+   */
+  private final CharSequence text;
+
+  /**
+   * Constructor.
+   *
+   * @param text The text of the document, from its start.
+   * @param endOfInput <code>true</code> if the text contains the whole document.
+   */
+  public PrologTextScanner(CharSequence text, boolean endOfInput) {
+    super(endOfInput);
+    this.text = text;
+  }
+
+  /**
+   * @see com.oxygenxml.prolog.updater.prolog.edit.PrologMarkupScanner#get(int)
+   */
+  @Override
+  protected int get(int pos) {
+    return text.charAt(pos);
+  }
+
+  /**
+   * @see com.oxygenxml.prolog.updater.prolog.edit.PrologMarkupScanner#limit()
+   */
+  @Override
+  protected int limit() {
+    return text.length();
+  }
+
+  /**
+   * @see com.oxygenxml.prolog.updater.prolog.edit.PrologMarkupScanner#decode(int, int)
+   */
+  @Override
+  protected String decode(int start, int end) {
+    return text.subSequence(start, end).toString();
+  }
+}
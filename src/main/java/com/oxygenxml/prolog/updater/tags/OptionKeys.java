@@ -67,4 +67,9 @@ public class OptionKeys {
    * Option to set the revised dates in prolog for maps. 
    */
   public static final String MAP_UPDATE_REVISED_DATES = "prolog.updater.update.revised.dates.map";
+  
+  /**
+   * Option for the size, in kilobytes, above which the fragments are inserted without the schema. 
+   */
+  public static final String SCHEMA_AWARE_SIZE_LIMIT = "prolog.updater.schema.aware.size.limit";
 }
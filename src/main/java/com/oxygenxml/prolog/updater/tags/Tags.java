@@ -59,4 +59,14 @@ public class Tags {
    */
   public static final String ERROR_MESSAGE = "prolog.updater.error.message"; 
   
+  /**
+   * en: Large documents
+   */
+  public static final String LARGE_DOCUMENTS = "prolog.updater.large.documents";
+  
+  /**
+   * en: Insert without the schema in documents larger than (KB)
+   */
+  public static final String SCHEMA_AWARE_SIZE_LIMIT = "prolog.updater.schema.aware.size.limit";
+  
 }
@@ -0,0 +1,131 @@
+package com.oxygenxml.prolog.updater.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import ro.sync.ecss.extensions.api.node.AttrValue;
+import ro.sync.ecss.extensions.api.node.AuthorElement;
+import ro.sync.ecss.extensions.api.node.AuthorNode;
+
+/**
+ * Maps the DITA class tokens of the child elements of a node to those elements, in document order.
+ * <br/>
+ * The children of a node are indexed the first time they are searched, so the class attribute of each
+ * element is split only once, no matter how many classes are searched. The index belongs to a single update
+ * of a document: after the document is changed, the changed nodes must be forgotten with {@link #forget(AuthorNode)}.
+ */
+public class AuthorClassIndex {
+
+  /**
+   * The children of the indexed nodes, mapped by class token.
+   */
+  private final Map<AuthorNode, Map<String, List<AuthorElement>>> index =
+      new IdentityHashMap<AuthorNode, Map<String, List<AuthorElement>>>();
+
+  /**
+   * Get the child elements of a node that have the given class.
+   *
+   * @param parent The parent element.
+   * @param classValue A class token, like {@link XmlElementsConstants#PROLOG_CLASS}. The surrounding spaces are ignored.
+   * @return The elements with the class, in document order. Empty if no element is found.
+   */
+  public List<AuthorElement> getElements(AuthorElement parent, String classValue) {
+    List<AuthorElement> elements = getChildren(parent).get(classValue.trim());
+    return elements != null ? elements : Collections.<AuthorElement>emptyList();
+  }
+
+  /**
+   * Get the first child element of a node that has the given class.
+   *
+   * @param parent The parent element.
+   * @param classValue A class token, like {@link XmlElementsConstants#PROLOG_CLASS}. The surrounding spaces are ignored.
+   * @return The first element with the class or <code>null</code>.
+   */
+  public AuthorElement getElement(AuthorElement parent, String classValue) {
+    List<AuthorElement> elements = getChildren(parent).get(classValue.trim());
+    return elements != null ? elements.get(0) : null;
+  }
+
+  /**
+   * Forget a changed node and its indexed descendants. They are indexed again when they are searched.
+   *
+   * @param node The changed node.
+   */
+  public void forget(AuthorNode node) {
+    Iterator<AuthorNode> iterator = index.keySet().iterator();
+    while (iterator.hasNext()) {
+      AuthorNode indexed = iterator.next();
+      for (AuthorNode current = indexed; current != null; current = current.getParent()) {
+        if (current == node) {
+          iterator.remove();
+          break;
+        }
+      }
+    }
+  }
+
+  /**
+   * Get the indexed children of a node, indexing them if needed.
+   *
+   * @param parent The parent element.
+   * @return The child elements, mapped by class token.
+   */
+  private Map<String, List<AuthorElement>> getChildren(AuthorElement parent) {
+    Map<String, List<AuthorElement>> children = index.get(parent);
+    if (children == null) {
+      children = new HashMap<String, List<AuthorElement>>();
+      List<AuthorNode> contentNodes = parent.getContentNodes();
+      if (contentNodes != null) {
+        for (AuthorNode authorNode : contentNodes) {
+          if (authorNode.getType() == AuthorNode.NODE_TYPE_ELEMENT) {
+            AuthorElement element = (AuthorElement) authorNode;
+            AttrValue clazz = element.getAttribute(XmlElementsConstants.CLASS);
+            if (clazz != null && clazz.getValue() != null) {
+              addElement(children, clazz.getValue(), element);
+            }
+          }
+        }
+      }
+      index.put(parent, children);
+    }
+    return children;
+  }
+
+  /**
+   * Add an element under each token of its class.
+   *
+   * @param children The child elements, mapped by class token.
+   * @param classValue The value of the class attribute.
+   * @param element The element.
+   */
+  private static void addElement(Map<String, List<AuthorElement>> children, String classValue, AuthorElement element) {
+    int length = classValue.length();
+    int pos = 0;
+    while (pos < length) {
+      while (pos < length && Character.isWhitespace(classValue.charAt(pos))) {
+        pos++;
+      }
+      int start = pos;
+      while (pos < length && !Character.isWhitespace(classValue.charAt(pos))) {
+        pos++;
+      }
+      if (pos > start) {
+        String token = classValue.substring(start, pos);
+        List<AuthorElement> elements = children.get(token);
+        if (elements == null) {
+          elements = new ArrayList<AuthorElement>(1);
+          children.put(token, elements);
+        }
+        // An element is added once, even if a token is repeated.
+        if (elements.isEmpty() || elements.get(elements.size() - 1) != element) {
+          elements.add(element);
+        }
+      }
+    }
+  }
+}
@@ -10,7 +10,6 @@ import org.apache.log4j.Logger;
 
 import com.oxygenxml.prolog.updater.dita.editor.DocumentType;
 
-import ro.sync.contentcompletion.xml.CIElement;
 import ro.sync.contentcompletion.xml.ContextElement;
 import ro.sync.contentcompletion.xml.WhatElementsCanGoHereContext;
 import ro.sync.ecss.extensions.api.AuthorConstants;
@@ -18,6 +17,7 @@ import ro.sync.ecss.extensions.api.AuthorDocumentController;
 import ro.sync.ecss.extensions.api.AuthorOperationException;
 import ro.sync.ecss.extensions.api.AuthorSchemaManager;
 import ro.sync.ecss.extensions.api.node.AttrValue;
+import ro.sync.ecss.extensions.api.node.AuthorDocumentType;
 import ro.sync.ecss.extensions.api.node.AuthorElement;
 import ro.sync.ecss.extensions.api.node.AuthorNode;
 import ro.sync.exml.workspace.api.editor.page.WSEditorPage;
@@ -217,28 +217,98 @@ public class AuthorPageDocumentUtil {
   
   /**
    * Find a possible xPath where prolog element can be inserted.
+   * The standard DITA types use the {@link PrologPlacementTable}. For the other grammars, the schema
+   * is queried only for the first document with a given grammar and leading root children.
    *  
    * @param documentController The author document controller.
    * @param documentType The type of the document ( {@link DocumentType#TOPIC}, {@link DocumentType#MAP} or  {@link DocumentType#BOOKMAP}  ).
    * @return A xPath where to insert the prolog node or <code>null</code>.
-   * 
-   * @throws BadLocationException
-   * @throws XPathException
    */
 	public static String findPrologXPath(AuthorDocumentController controller, DocumentType documentType) {
 		String toReturn = null;
-		ContextElement nodeToInsertAfter = null;
-
-		// Find the context where prolog element can be inserted.
-		WhatElementsCanGoHereContext context;
-		context = findPrologContext(controller, documentType);
-		if (context != null) {
-			List<ContextElement> previous = context.getPreviousSiblingElements();
-			if (previous != null && !previous.isEmpty()) {
-				// Get the previous sibling.
-				nodeToInsertAfter = previous.get(previous.size() - 1);
-				// Generate the XPath.
-				toReturn = ElementXPathUtils.getRootXpath(documentType) + "/" + nodeToInsertAfter.getQName();
+		AuthorElement rootElement = controller.getAuthorDocumentNode().getRootElement();
+		if (rootElement != null) {
+			String rootXpath = ElementXPathUtils.getRootXpath(documentType);
+			String grammar = getGrammarId(controller, rootElement);
+			List<String> childNames = new ArrayList<String>();
+			for (AuthorNode child : rootElement.getContentNodes()) {
+				if (child.getType() == AuthorNode.NODE_TYPE_ELEMENT) {
+					childNames.add(child.getName());
+				}
+			}
+			String predecessor = PrologPlacementTable.findPredecessor(grammar, rootElement.getName(), childNames);
+			if (predecessor != null) {
+				toReturn = predecessor.length() > 0 ? rootXpath + "/" + predecessor : null;
+			} else {
+				// The documents with the same grammar and leading root children share the location.
+				String cached = PrologInsertionCache.get(grammar, rootElement.getName(), childNames);
+				if (cached != null) {
+					toReturn = PrologInsertionCache.FIRST_CHILD.equals(cached) ? null : cached;
+				} else {
+					// Find the context where prolog element can be inserted.
+					PrologContextProbe probe = new PrologContextProbe(documentType, rootElement.getName());
+					WhatElementsCanGoHereContext context = findPrologContext(controller, probe);
+					if (context != null) {
+						List<ContextElement> previous = context.getPreviousSiblingElements();
+						if (previous != null && !previous.isEmpty()) {
+							// Get the previous sibling.
+							ContextElement nodeToInsertAfter = previous.get(previous.size() - 1);
+							// Generate the XPath.
+							toReturn = rootXpath + "/" + nodeToInsertAfter.getQName();
+						}
+					}
+					if (controller.getAuthorSchemaManager() != null) {
+						PrologInsertionCache.put(grammar, rootElement.getName(), childNames, probe.getExaminedCount(),
+								probe.isFinished(), toReturn);
+					}
+				}
+			}
+		}
+		return toReturn;
+	}
+	
+	/**
+	 * Get the identifier of the grammar of the document: the public or the system ID of the DOCTYPE or
+	 * the location of the XML Schema.
+	 * 
+	 * @param controller The author document controller.
+	 * @param rootElement The root element.
+	 * @return The identifier or <code>null</code> if the document doesn't declare its grammar.
+	 */
+	private static String getGrammarId(AuthorDocumentController controller, AuthorElement rootElement) {
+		String toReturn = null;
+		AuthorDocumentType doctype = controller.getDoctype();
+		if (doctype != null) {
+			toReturn = doctype.getPublicID() != null ? doctype.getPublicID() : doctype.getSystemID();
+		}
+		if (toReturn == null) {
+			AttrValue schemaLocation = rootElement.getAttribute(XmlElementsConstants.NO_NAMESPACE_SCHEMA_LOCATION);
+			if (schemaLocation == null) {
+				schemaLocation = rootElement.getAttribute(XmlElementsConstants.SCHEMA_LOCATION);
+			}
+			toReturn = schemaLocation != null ? schemaLocation.getValue() : null;
+		}
+		return toReturn;
+	}
+  
+	/**
+	 * Find the offset after the element that precedes a possible location of the prolog element.
+	 * 
+	 * @param controller The author document controller.
+	 * @param documentType The type of the document ( {@link DocumentType#TOPIC}, {@link DocumentType#MAP} or  {@link DocumentType#BOOKMAP}  ).
+	 * @return The offset where the prolog node can be inserted or <code>-1</code>.
+	 */
+	public static int findPrologPredecessorEndOffset(AuthorDocumentController controller, DocumentType documentType) {
+		int toReturn = -1;
+		String xpath = findPrologXPath(controller, documentType);
+		if (xpath != null) {
+			try {
+				AuthorNode[] nodes = controller.findNodesByXPath(xpath, true, true, true);
+				if (nodes != null && nodes.length > 0) {
+					toReturn = nodes[0].getEndOffset() + 1;
+				}
+			} catch (AuthorOperationException e) {
+				logger.debug(e.getMessage(), e);
 			}
 		}
 		return toReturn;
@@ -249,13 +319,12 @@ public class AuthorPageDocumentUtil {
 	 * 
 	 * @param controller
 	 *          The controller for author document.
-	 * @param documentType
-	 *          The type of the document ( {@link DocumentType#TOPIC},
-	 *          {@link DocumentType#MAP} or {@link DocumentType#BOOKMAP} ).
+	 * @param probe
+	 *          Decides which children of the root are probed.
 	 * @return A context where prolog element can go or <code>null</code>.
 	 */
 	private static WhatElementsCanGoHereContext findPrologContext(AuthorDocumentController controller,
-			DocumentType documentType) {
+			PrologContextProbe probe) {
 		WhatElementsCanGoHereContext toReturn = null;
 
 		// Get the AuthorSchemaManager.
@@ -265,30 +334,25 @@ public class AuthorPageDocumentUtil {
 			List<AuthorNode> childNodes = rootElement.getContentNodes();
 			int nodesSize = childNodes.size();
 
-			loop: for (int i = 0; i < nodesSize; i++) {
-				int offset = childNodes.get(i).getEndOffset();
-				WhatElementsCanGoHereContext currentContext = null;
-				try {
-					currentContext = schemaManager.createWhatElementsCanGoHereContext(offset);
-				} catch (BadLocationException e) {
-					logger.warn(e, e.getCause());
+			for (int i = 0; i < nodesSize && !probe.isFinished(); i++) {
+				AuthorNode child = childNodes.get(i);
+				String childName = null;
+				String childClass = null;
+				if (child.getType() == AuthorNode.NODE_TYPE_ELEMENT) {
+					childName = child.getName();
+					AttrValue clazz = ((AuthorElement) child).getAttribute(XmlElementsConstants.CLASS);
+					childClass = clazz != null ? clazz.getValue() : null;
 				}
-				if (currentContext != null) {
+				if (probe.shouldProbe(childName, childClass)) {
+					WhatElementsCanGoHereContext currentContext = null;
+					try {
+						currentContext = schemaManager.createWhatElementsCanGoHereContext(child.getEndOffset());
+					} catch (BadLocationException e) {
+						logger.warn(e, e.getCause());
+					}
 					// Analyze if current context can contain the prolog element.
-					List<CIElement> possible = schemaManager.whatElementsCanGoHere(currentContext);
-					if (possible != null) {
-						// Iterate over possible elements.
-						int size = possible.size();
-						for (int j = 0; j < size; j++) {
-							CIElement ciElement = possible.get(j);
-							if (ciElement.getName().equals(XmlElementsUtils.getPrologName(documentType))) {
-								toReturn = currentContext;
-								if (j == 0) {
-									// if prolog element is first in possible elements list. STOP.
-									break loop;
-								}
-							}
-						}
+					if (currentContext != null && probe.accept(schemaManager.whatElementsCanGoHere(currentContext))) {
+						toReturn = currentContext;
 					}
 				}
 			}
@@ -0,0 +1,284 @@
+package com.oxygenxml.prolog.updater.utils;
+
+import java.net.URL;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+
+import org.apache.log4j.Logger;
+
+import ro.sync.ecss.extensions.api.AuthorDocumentController;
+import ro.sync.ecss.extensions.api.node.AttrValue;
+import ro.sync.ecss.extensions.api.node.AuthorDocumentType;
+import ro.sync.ecss.extensions.api.node.AuthorElement;
+import ro.sync.exml.workspace.api.editor.WSEditor;
+import ro.sync.exml.workspace.api.editor.page.WSEditorPage;
+import ro.sync.exml.workspace.api.editor.page.author.WSAuthorEditorPage;
+import ro.sync.exml.workspace.api.editor.page.ditamap.WSDITAMapEditorPage;
+import ro.sync.exml.workspace.api.editor.page.text.xml.WSXMLTextEditorPage;
+import ro.sync.exml.workspace.api.editor.page.text.xml.XPathException;
+
+/**
+ * Decides cheaply if the document of an editor is a DITA document, before any prolog work is done.
+ * <br/>
+ * The checks, in order: the extension of the file, the DOCTYPE declaration, the schema references
+ * and the root element (its <code>class</code> attribute or, for the standard types, its name).
+ * Only the beginning of the document is inspected. When the text doesn't look like DITA, the class attribute
+ * of the root is also checked with an XPath, because it usually has its default value from the grammar.
+ */
+public class DitaDocumentFilter {
+
+  /**
+   * Logger for logging.
+   */
+  private static final Logger logger = Logger.getLogger(DitaDocumentFilter.class.getName());
+
+  /**
+   * The number of characters from the beginning of the text where the root element is searched.
+   */
+  static final int SEARCH_LENGTH = 8 * 1024;
+
+  /**
+   * The extensions of the DITA files.
+   */
+  private static final String[] DITA_EXTENSIONS = {".dita", ".ditamap", ".bookmap"};
+
+  /**
+   * The start of the URNs of the DITA XML Schemas and RELAX NG schemas.
+   */
+  private static final String DITA_URN = "urn:oasis:names:tc:dita:";
+
+  /**
+   * Private constructor. Avoid instantiation.
+   */
+  private DitaDocumentFilter() {
+    // Nothing
+  }
+
+  /**
+   * Check if the document of an editor is a DITA document.
+   *
+   * @param editor The editor.
+   * @return <code>false</code> if the document is surely not a DITA document, <code>true</code> otherwise.
+   */
+  public static boolean isDitaDocument(WSEditor editor) {
+    boolean toReturn = true;
+    if (!hasDitaExtension(editor.getEditorLocation())) {
+      WSEditorPage page = editor.getCurrentPage();
+      if (page instanceof WSAuthorEditorPage) {
+        toReturn = isDitaDocument(((WSAuthorEditorPage) page).getDocumentController());
+      } else if (page instanceof WSXMLTextEditorPage) {
+        WSXMLTextEditorPage textPage = (WSXMLTextEditorPage) page;
+        Document document = textPage.getDocument();
+        if (document != null) {
+          try {
+            toReturn = isDitaText(document.getText(0, Math.min(document.getLength(), SEARCH_LENGTH)))
+                || hasDitaRoot(textPage);
+          } catch (BadLocationException e) {
+            logger.debug(e.getMessage(), e);
+          }
+        }
+      } else if (!(page instanceof WSDITAMapEditorPage) && page != null) {
+        // The other pages are not updated.
+        toReturn = false;
+      }
+    }
+    return toReturn;
+  }
+
+  /**
+   * Get an object that stays the same while the result of {@link #isDitaDocument(WSEditor)} can't change:
+   * the root element of the author page, the state of the root start tag of the text page or the other page.
+   *
+   * @param editor The editor.
+   * @return The state or <code>null</code> if the changes of the document can't be detected.
+   */
+  public static Object getRootState(WSEditor editor) {
+    Object toReturn = null;
+    WSEditorPage page = editor.getCurrentPage();
+    if (page instanceof WSAuthorEditorPage) {
+      // The author document is loaded again when its grammar is changed.
+      toReturn = ((WSAuthorEditorPage) page).getDocumentController().getAuthorDocumentNode().getRootElement();
+    } else if (page instanceof WSXMLTextEditorPage) {
+      Document document = ((WSXMLTextEditorPage) page).getDocument();
+      if (document != null) {
+        toReturn = PrologRegionTracker.getTracker(document).getRootState();
+      }
+    } else {
+      toReturn = page;
+    }
+    return toReturn;
+  }
+
+  /**
+   * Check if a location has the extension of a DITA file.
+   *
+   * @param location The location or <code>null</code>.
+   * @return <code>true</code> if the location ends with a DITA extension.
+   */
+  static boolean hasDitaExtension(URL location) {
+    boolean toReturn = false;
+    if (location != null) {
+      String path = location.getPath().toLowerCase();
+      for (String extension : DITA_EXTENSIONS) {
+        if (path.endsWith(extension)) {
+          toReturn = true;
+          break;
+        }
+      }
+    }
+    return toReturn;
+  }
+
+  /**
+   * Check if the document of an author page is a DITA document.
+   *
+   * @param controller The author document controller.
+   * @return <code>true</code> if the root is a DITA topic or map or the DOCTYPE is a DITA one.
+   */
+  private static boolean isDitaDocument(AuthorDocumentController controller) {
+    boolean toReturn = false;
+    AuthorElement rootElement = controller.getAuthorDocumentNode().getRootElement();
+    if (rootElement != null) {
+      // In the author page the class attribute has the default value from the schema.
+      AttrValue classValue = rootElement.getAttribute(XmlElementsConstants.CLASS);
+      toReturn = classValue != null && isDitaClass(classValue.getValue());
+    }
+    if (!toReturn) {
+      AuthorDocumentType doctype = controller.getDoctype();
+      toReturn = doctype != null && isDitaGrammar(doctype.getPublicID());
+    }
+    return toReturn;
+  }
+
+  /**
+   * Check if the root of a text page has the class of a DITA topic or map, including the default
+   * value from the grammar.
+   *
+   * @param page The text page.
+   * @return <code>false</code> if the root is surely not a DITA topic or map.
+   */
+  private static boolean hasDitaRoot(WSXMLTextEditorPage page) {
+    boolean toReturn = true;
+    try {
+      toReturn = page.findElementsByXPath(ElementXPathConstants.ROOT_DITA_XPATH).length != 0;
+    } catch (XPathException e) {
+      logger.debug(e.getMessage(), e);
+    }
+    return toReturn;
+  }
+
+  /**
+   * Check if a text is the beginning of a DITA document.
+   *
+   * @param text The text from the beginning of the document.
+   * @return <code>false</code> if the text is surely not the beginning of a DITA document.
+   */
+  static boolean isDitaText(String text) {
+    boolean toReturn = isDitaGrammar(TextPageDocumentUtil.getDoctypeId(text)) || text.contains(DITA_URN);
+    if (!toReturn) {
+      int rootStart = findRootStart(text);
+      int rootEnd = rootStart != -1 ? findTagEnd(text, rootStart) : -1;
+      if (rootEnd == -1) {
+        // The root element is not in the inspected text.
+        toReturn = true;
+      } else {
+        String startTag = text.substring(rootStart, rootEnd);
+        int nameEnd = 1;
+        while (nameEnd < startTag.length() && !Character.isWhitespace(startTag.charAt(nameEnd))
+            && startTag.charAt(nameEnd) != '/' && startTag.charAt(nameEnd) != '>') {
+          nameEnd++;
+        }
+        toReturn = isDitaClass(startTag) || PrologPlacementTable.isStandardRoot(startTag.substring(1, nameEnd));
+      }
+    }
+    return toReturn;
+  }
+
+  /**
+   * Check if a public identifier is the one of a DITA DTD, standard or specialized.
+   *
+   * @param publicId The public identifier or <code>null</code>.
+   * @return <code>true</code> for a DITA DTD.
+   */
+  private static boolean isDitaGrammar(String publicId) {
+    return publicId != null && publicId.contains("//DTD DITA ");
+  }
+
+  /**
+   * Check if a class value belongs to a DITA topic or map.
+   *
+   * @param classValue The class value.
+   * @return <code>true</code> for a topic or a map.
+   */
+  private static boolean isDitaClass(String classValue) {
+    return classValue.contains(XmlElementsConstants.TOPIC_CLASS) || classValue.contains(XmlElementsConstants.MAP_CLASS);
+  }
+
+  /**
+   * Find the end of the start tag of the root element.
+   *
+   * @param text The text from the beginning of the document.
+   * @return The offset after the start tag of the root or <code>-1</code> if it's not in the text.
+   */
+  static int findRootStartTagEnd(String text) {
+    int rootStart = findRootStart(text);
+    return rootStart != -1 ? findTagEnd(text, rootStart) : -1;
+  }
+
+  /**
+   * Find the start of the root element, after the XML declaration, the processing instructions,
+   * the comments and the DOCTYPE declaration.
+   *
+   * @param text The text from the beginning of the document.
+   * @return The offset of the '<' character of the root or <code>-1</code> if it's not in the text.
+   */
+  private static int findRootStart(String text) {
+    int toReturn = -1;
+    int index = text.indexOf('<');
+    while (index != -1) {
+      int next;
+      if (text.startsWith("<!--", index)) {
+        next = text.indexOf("-->", index);
+      } else if (text.startsWith("<?", index)) {
+        next = text.indexOf("?>", index);
+      } else if (text.startsWith("<!", index)) {
+        int subset = text.indexOf('[', index);
+        int end = text.indexOf('>', index);
+        // Skip the internal subset.
+        next = subset != -1 && subset < end ? text.indexOf("]", subset) : end;
+      } else {
+        toReturn = index;
+        break;
+      }
+      index = next != -1 ? text.indexOf('<', next) : -1;
+    }
+    return toReturn;
+  }
+
+  /**
+   * Find the end of a start tag.
+   *
+   * @param text The text.
+   * @param tagStart The offset of the '<' character of the tag.
+   * @return The offset after the '>' character or <code>-1</code> if the tag doesn't end in the text.
+   */
+  private static int findTagEnd(String text, int tagStart) {
+    int toReturn = -1;
+    char quote = 0;
+    for (int i = tagStart + 1; i < text.length(); i++) {
+      char ch = text.charAt(i);
+      if (quote != 0) {
+        if (ch == quote) {
+          quote = 0;
+        }
+      } else if (ch == '"' || ch == '\'') {
+        quote = ch;
+      } else if (ch == '>') {
+        toReturn = i + 1;
+        break;
+      }
+    }
+    return toReturn;
+  }
+}
@@ -86,6 +86,11 @@ public class ElementXPathConstants {
    */
   public static final String ROOT_TOPIC_XPATH = "/*[1][contains(@class, ' topic/topic ')]";
   
+  /**
+   * XPath for topic or map root.
+   */
+  public static final String ROOT_DITA_XPATH = "/*[1][contains(@class,' topic/topic ') or contains(@class,' map/map ')]";
+  
   /**
    * XPath for root topic child.
    */
@@ -0,0 +1,135 @@
+package com.oxygenxml.prolog.updater.utils;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.oxygenxml.prolog.updater.dita.editor.DocumentType;
+
+import ro.sync.contentcompletion.xml.CIElement;
+
+/**
+ * Decides after which children of the root the schema is asked if the prolog element can be inserted.
+ * <br/>
+ * The children are probed in document order, only while they can precede the prolog element: a predecessor
+ * from the {@link PrologPlacementTable} or an element proposed before the prolog element by the schema.
+ * A document with thousands of chapters costs only a few schema queries.
+ */
+class PrologContextProbe {
+
+  /**
+   * The type of the document.
+   */
+  private final DocumentType documentType;
+
+  /**
+   * The name of the root element.
+   */
+  private final String rootName;
+
+  /**
+   * The name of the prolog element.
+   */
+  private final String prologName;
+
+  /**
+   * The names of the elements proposed before the prolog element, where it was allowed.
+   */
+  private final Set<String> proposedPredecessors = new HashSet<String>();
+
+  /**
+   * <code>true</code> if the prolog element was allowed after a probed child.
+   */
+  private boolean allowed;
+
+  /**
+   * <code>true</code> if no other child must be probed.
+   */
+  private boolean finished;
+
+  /**
+   * The number of child elements examined before the probing was finished.
+   */
+  private int examinedCount;
+
+  /**
+   * Constructor.
+   *
+   * @param documentType The document type( {@link DocumentType#TOPIC}, {@link DocumentType#MAP} or {@link DocumentType#BOOKMAP}  ).
+   * @param rootName The name of the root element.
+   */
+  PrologContextProbe(DocumentType documentType, String rootName) {
+    this.documentType = documentType;
+    this.rootName = rootName;
+    this.prologName = XmlElementsUtils.getPrologName(documentType);
+  }
+
+  /**
+   * Check if the position after a child must be probed. The probing is finished at the first child that
+   * can't precede the prolog element.
+   *
+   * @param childName The name of the child element or <code>null</code> if the child is not an element.
+   * @param childClass The value of the class attribute of the child or <code>null</code>.
+   * @return <code>true</code> if the schema must be asked about the position after the child.
+   */
+  boolean shouldProbe(String childName, String childClass) {
+    boolean toReturn = false;
+    if (!finished && childName != null) {
+      examinedCount++;
+      if (!PrologPlacementTable.isPredecessor(documentType, rootName, childName, childClass)
+          && !proposedPredecessors.contains(childName)) {
+        finished = true;
+      } else {
+        toReturn = true;
+      }
+    }
+    return toReturn;
+  }
+
+  /**
+   * Analyze the elements proposed by the schema after a probed child.
+   *
+   * @param possible The elements that can be inserted after the child or <code>null</code>.
+   * @return <code>true</code> if the prolog element can be inserted after the child.
+   */
+  boolean accept(List<CIElement> possible) {
+    boolean toReturn = false;
+    if (possible != null) {
+      int size = possible.size();
+      for (int i = 0; i < size; i++) {
+        if (prologName.equals(possible.get(i).getName())) {
+          toReturn = true;
+          // The elements proposed before the prolog can precede it.
+          proposedPredecessors.clear();
+          for (int j = 0; j < i; j++) {
+            proposedPredecessors.add(possible.get(j).getName());
+          }
+          // Nothing else can go before the prolog element.
+          finished = i == 0;
+          break;
+        }
+      }
+    }
+    if (!toReturn && allowed) {
+      // The position of the prolog element was passed.
+      finished = true;
+    }
+    allowed |= toReturn;
+    return toReturn;
+  }
+
+  /**
+   * @return <code>true</code> if no other child must be probed.
+   */
+  boolean isFinished() {
+    return finished;
+  }
+
+  /**
+   * @return The number of child elements examined by {@link #shouldProbe(String, String)} before the probing was
+   * finished. The location of the prolog element doesn't depend on the children after them.
+   */
+  int getExaminedCount() {
+    return examinedCount;
+  }
+}
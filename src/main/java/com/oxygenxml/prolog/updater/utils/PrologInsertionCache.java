@@ -0,0 +1,132 @@
+package com.oxygenxml.prolog.updater.utils;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Remembers where the prolog element can be inserted in the documents that don't have one, as found
+ * with the schema, until the options are changed.
+ * <br/>
+ * The location depends only on the grammar of the document, on the name of the root and on the children
+ * examined before the location was found. A location is remembered for these leading children only, so it's
+ * reused for all the documents that start with them, from the author or the text page. The documents without
+ * a grammar identifier are not cached. The least recently used locations are forgotten. Thread safe.
+ */
+public class PrologInsertionCache {
+
+  /**
+   * The value of the documents where the prolog element must be inserted as the first child of the root.
+   */
+  public static final String FIRST_CHILD = "";
+
+  /**
+   * The maximum number of remembered locations.
+   */
+  private static final int MAX_ENTRIES = 256;
+
+  /**
+   * The maximum number of leading children in a key. The locations found after more children are not remembered.
+   */
+  static final int MAX_KEY_CHILDREN = 16;
+
+  /**
+   * Ends the keys that contain all the children of the root.
+   */
+  private static final char ALL_CHILDREN = '$';
+
+  /**
+   * The XPath of the element after which the prolog is inserted, or {@link #FIRST_CHILD}, mapped by key, in access order.
+   */
+  private static final Map<String, String> entries = Collections.synchronizedMap(new LinkedHashMap<String, String>(16, 0.75f, true) {
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+      return size() > MAX_ENTRIES;
+    }
+  });
+
+  /**
+   * Private constructor. Avoid instantiation.
+   */
+  private PrologInsertionCache() {
+    // Nothing
+  }
+
+  /**
+   * Create the key of a document.
+   *
+   * @param grammar The identifier of the grammar.
+   * @param rootName The qualified name of the root element.
+   * @param childNames The qualified names of the child elements of the root, in document order.
+   * @param count The number of leading children in the key.
+   * @param allChildren <code>true</code> if the location depends on all the children, not only on the leading ones.
+   * @return The key.
+   */
+  private static String createKey(String grammar, String rootName, List<String> childNames, int count, boolean allChildren) {
+    StringBuilder key = new StringBuilder(grammar.length() + rootName.length() + count * 8 + 3);
+    key.append(grammar).append('\n').append(rootName).append('\n');
+    for (int i = 0; i < count; i++) {
+      key.append(childNames.get(i)).append(' ');
+    }
+    if (allChildren) {
+      key.append(ALL_CHILDREN);
+    }
+    return key.toString();
+  }
+
+  /**
+   * Get the location of the prolog element.
+   *
+   * @param grammar The identifier of the grammar: the public or the system ID of the DOCTYPE or the
+   * location of the schema. <code>null</code> if the document doesn't have one.
+   * @param rootName The qualified name of the root element.
+   * @param childNames The qualified names of the child elements of the root, in document order.
+   * @return The XPath of the element after which the prolog is inserted, {@link #FIRST_CHILD} or
+   * <code>null</code> if the location is not known.
+   */
+  public static String get(String grammar, String rootName, List<String> childNames) {
+    String toReturn = null;
+    if (grammar != null) {
+      int size = childNames.size();
+      int maxCount = Math.min(size, MAX_KEY_CHILDREN);
+      for (int count = 0; toReturn == null && count <= maxCount; count++) {
+        toReturn = entries.get(createKey(grammar, rootName, childNames, count, false));
+      }
+      if (toReturn == null && size <= MAX_KEY_CHILDREN) {
+        toReturn = entries.get(createKey(grammar, rootName, childNames, size, true));
+      }
+    }
+    return toReturn;
+  }
+
+  /**
+   * Remember the location of the prolog element.
+   *
+   * @param grammar The identifier of the grammar or <code>null</code> if the document doesn't have one.
+   * Nothing is remembered in this case.
+   * @param rootName The qualified name of the root element.
+   * @param childNames The qualified names of the child elements of the root, in document order.
+   * @param examinedCount The number of leading children examined to find the location.
+   * @param finished <code>true</code> if the search was finished after the examined children, so the other
+   * children don't change the location. <code>false</code> if the search ended because there were no other children.
+   * @param xpath The XPath of the element after which the prolog is inserted or <code>null</code> if it's
+   * inserted as the first child of the root.
+   */
+  public static void put(String grammar, String rootName, List<String> childNames, int examinedCount, boolean finished,
+      String xpath) {
+    int count = finished ? examinedCount : childNames.size();
+    if (grammar != null && count <= MAX_KEY_CHILDREN) {
+      entries.put(createKey(grammar, rootName, childNames, count, !finished), xpath != null ? xpath : FIRST_CHILD);
+    }
+  }
+
+  /**
+   * Forget all the locations, when the options are changed (the schemas of the frameworks may have changed too).
+   */
+  public static void clear() {
+    entries.clear();
+  }
+}
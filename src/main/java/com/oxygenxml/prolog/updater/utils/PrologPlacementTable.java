@@ -0,0 +1,215 @@
+package com.oxygenxml.prolog.updater.utils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.oxygenxml.prolog.updater.dita.editor.DocumentType;
+
+/**
+ * The children of the root element that can precede the prolog element (prolog, topicmeta or bookmeta)
+ * in the standard DITA topic and map types, so the prolog can be placed without querying the schema.
+ * <br/>
+ * The table was compiled from the content models of the DITA 1.2 DTDs from <code>config/catalogs</code>
+ * (the <code>*.content</code> parameter entities of the root elements). It's used only for the documents
+ * whose DOCTYPE has an OASIS public identifier, any version. The other documents use the schema.
+ * <br/>
+ * The elements that have a class attribute are checked by their class instead, so the specializations
+ * of the predecessors are also recognized.
+ */
+public class PrologPlacementTable {
+
+  /**
+   * The start of the public identifiers of the OASIS DITA DTDs.
+   */
+  private static final String OASIS_PUBLIC_ID_START = "-//OASIS//DTD DITA ";
+
+  /**
+   * The end of the public identifiers of the OASIS DITA DTDs.
+   */
+  private static final String OASIS_PUBLIC_ID_END = "//EN";
+
+  /**
+   * The names of the OASIS document type shells that contain topics or maps, without the DITA version.
+   */
+  private static final Set<String> SHELLS = new HashSet<String>(Arrays.asList(
+      "Base Map", "Base Topic", "BookMap", "Classification Map", "Concept", "General Task", "Glossary",
+      "Glossary Entry", "Glossary Group", "Learning Assessment", "Learning BookMap", "Learning Content",
+      "Learning Map", "Learning Overview", "Learning Plan", "Learning Summary", "Machinery Task", "Map",
+      "Reference", "Subject Classification Map", "Subject Scheme Map", "Task", "Topic"));
+
+  /**
+   * The children of a topic that can precede the prolog element.
+   */
+  private static final Set<String> TOPIC_PREDECESSORS = Collections.unmodifiableSet(
+      new HashSet<String>(Arrays.asList("title", "titlealts", "shortdesc", "abstract")));
+
+  /**
+   * The children of a map that can precede the topicmeta element.
+   */
+  private static final Set<String> MAP_PREDECESSORS = Collections.singleton("title");
+
+  /**
+   * The children of a bookmap that can precede the bookmeta element.
+   */
+  private static final Set<String> BOOKMAP_PREDECESSORS = Collections.unmodifiableSet(
+      new HashSet<String>(Arrays.asList("title", "booktitle")));
+
+  /**
+   * The classes of the topic children that can precede the prolog element.
+   */
+  private static final String[] TOPIC_PREDECESSOR_CLASSES = new String[] {
+      " topic/title ", " topic/titlealts ", " topic/shortdesc ", " topic/abstract "};
+
+  /**
+   * The classes of the map and bookmap children that can precede the topicmeta or bookmeta element.
+   * The booktitle element is a specialization of the title.
+   */
+  private static final String[] MAP_PREDECESSOR_CLASSES = new String[] {" topic/title "};
+
+  /**
+   * The children that can precede the prolog element, mapped by the name of the root element.
+   */
+  private static final Map<String, Set<String>> PREDECESSORS = new HashMap<String, Set<String>>();
+
+  /**
+   * The type of the standard documents, mapped by the name of the root element.
+   */
+  private static final Map<String, DocumentType> DOCUMENT_TYPES = new HashMap<String, DocumentType>();
+  static {
+    for (String root : new String[] {"topic", "concept", "task", "reference", "learningAssessment",
+        "learningBase", "learningContent", "learningOverview", "learningPlan", "learningSummary"}) {
+      register(root, DocumentType.TOPIC, TOPIC_PREDECESSORS);
+    }
+    register("glossentry", DocumentType.TOPIC, Collections.unmodifiableSet(new HashSet<String>(Arrays.asList("glossterm", "glossdef"))));
+    register("glossgroup", DocumentType.TOPIC, Collections.singleton("title"));
+    register("map", DocumentType.MAP, MAP_PREDECESSORS);
+    register("subjectScheme", DocumentType.MAP, Collections.singleton("title"));
+    register("bookmap", DocumentType.BOOKMAP, BOOKMAP_PREDECESSORS);
+  }
+
+  /**
+   * Add a standard root element to the table.
+   *
+   * @param rootName The name of the root element.
+   * @param documentType The type of the document.
+   * @param predecessors The children that can precede the prolog element.
+   */
+  private static void register(String rootName, DocumentType documentType, Set<String> predecessors) {
+    DOCUMENT_TYPES.put(rootName, documentType);
+    PREDECESSORS.put(rootName, predecessors);
+  }
+
+  /**
+   * Private constructor. Avoid instantiation.
+   */
+  private PrologPlacementTable() {
+    // Nothing
+  }
+
+  /**
+   * Check if a grammar is one of the OASIS DITA DTDs.
+   *
+   * @param publicId The public identifier of the DOCTYPE.
+   * @return <code>true</code> if the content models of the grammar are known.
+   */
+  public static boolean isKnownGrammar(String publicId) {
+    boolean toReturn = false;
+    if (publicId != null && publicId.startsWith(OASIS_PUBLIC_ID_START) && publicId.endsWith(OASIS_PUBLIC_ID_END)) {
+      String shell = publicId.substring(OASIS_PUBLIC_ID_START.length(), publicId.length() - OASIS_PUBLIC_ID_END.length());
+      // Remove the version, like "1.x " or "1.2 ".
+      if (shell.startsWith("1.")) {
+        int space = shell.indexOf(' ');
+        shell = space != -1 ? shell.substring(space + 1) : shell;
+      }
+      toReturn = SHELLS.contains(shell);
+    }
+    return toReturn;
+  }
+
+  /**
+   * Check if an element is the root of one of the standard DITA types.
+   *
+   * @param rootName The name of the root element.
+   * @return <code>true</code> if the element is the root of a standard DITA type.
+   */
+  public static boolean isStandardRoot(String rootName) {
+    return PREDECESSORS.containsKey(rootName);
+  }
+
+  /**
+   * Get the type of a standard document.
+   *
+   * @param rootName The name of the root element.
+   * @return The document type( {@link DocumentType#TOPIC}, {@link DocumentType#MAP} or {@link DocumentType#BOOKMAP}  )
+   * or <code>null</code> if the element is not the root of a standard DITA type.
+   */
+  public static DocumentType getDocumentType(String rootName) {
+    return DOCUMENT_TYPES.get(rootName);
+  }
+
+  /**
+   * Check if a child of the root element can precede the prolog element. The class of the child decides
+   * when it's available. Otherwise, the name of the child is looked up in the predecessors of the root
+   * or, for the roots that are not standard, in the predecessors of the document type.
+   *
+   * @param documentType The document type( {@link DocumentType#TOPIC}, {@link DocumentType#MAP} or {@link DocumentType#BOOKMAP}  ).
+   * @param rootName The name of the root element.
+   * @param childName The name of the child element.
+   * @param childClass The value of the class attribute of the child or <code>null</code>.
+   * @return <code>true</code> if the child can precede the prolog element.
+   */
+  public static boolean isPredecessor(DocumentType documentType, String rootName, String childName, String childClass) {
+    boolean toReturn = false;
+    if (childClass != null) {
+      String[] classes = DocumentType.TOPIC.equals(documentType) ? TOPIC_PREDECESSOR_CLASSES : MAP_PREDECESSOR_CLASSES;
+      for (String predecessorClass : classes) {
+        if (childClass.contains(predecessorClass)) {
+          toReturn = true;
+          break;
+        }
+      }
+    } else {
+      Set<String> predecessors = PREDECESSORS.get(rootName);
+      if (predecessors == null) {
+        if (DocumentType.TOPIC.equals(documentType)) {
+          predecessors = TOPIC_PREDECESSORS;
+        } else if (DocumentType.BOOKMAP.equals(documentType)) {
+          predecessors = BOOKMAP_PREDECESSORS;
+        } else {
+          predecessors = MAP_PREDECESSORS;
+        }
+      }
+      toReturn = predecessors.contains(childName);
+    }
+    return toReturn;
+  }
+
+  /**
+   * Find the child of the root after which the prolog element must be inserted.
+   *
+   * @param publicId The public identifier of the DOCTYPE.
+   * @param rootName The name of the root element.
+   * @param childNames The names of the child elements of the root, in document order.
+   * @return The name of the child, {@link PrologInsertionCache#FIRST_CHILD} if the prolog must be the first child
+   * or <code>null</code> if the grammar or the root element are not known.
+   */
+  public static String findPredecessor(String publicId, String rootName, List<String> childNames) {
+    String toReturn = null;
+    Set<String> predecessors = PREDECESSORS.get(rootName);
+    if (predecessors != null && isKnownGrammar(publicId)) {
+      toReturn = PrologInsertionCache.FIRST_CHILD;
+      for (String childName : childNames) {
+        if (!predecessors.contains(childName)) {
+          break;
+        }
+        toReturn = childName;
+      }
+    }
+    return toReturn;
+  }
+}
@@ -0,0 +1,227 @@
+package com.oxygenxml.prolog.updater.utils;
+
+import java.io.IOException;
+
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.Segment;
+
+import org.apache.log4j.Logger;
+
+import com.oxygenxml.prolog.updater.dita.editor.DocumentType;
+import com.oxygenxml.prolog.updater.prolog.edit.PrologStructure;
+import com.oxygenxml.prolog.updater.prolog.edit.PrologStructureBuilder;
+import com.oxygenxml.prolog.updater.prolog.edit.PrologTextScanner;
+
+/**
+ * Keeps the result of the last prolog scan of a text document while the document is edited.
+ * <br/>
+ * The tracker listens to the changes of the document and forgets the scan only when a change touches
+ * the scanned region, which starts at the beginning of the document and ends after the prolog. The changes
+ * made after the prolog don't move the prolog offsets, so the next update uses the same scan.
+ * <br/>
+ * The tracker also keeps the type of the document until the start tag of the root is changed. The grammar
+ * is referred before the end of that tag, so the same changes are reported by {@link #getRootState()}.
+ * <br/>
+ * There is a single tracker for each document, stored as a document property.
+ */
+public class PrologRegionTracker implements DocumentListener {
+
+  /**
+   * Logger
+   */
+  private static final Logger logger = Logger.getLogger(PrologRegionTracker.class);
+
+  /**
+   * The document property that holds the tracker.
+   */
+  private static final String TRACKER_PROPERTY = PrologRegionTracker.class.getName();
+
+  /**
+   * The number of characters read in the first attempt to find the end of the prolog.
+   */
+  private static final int INITIAL_SCAN_LENGTH = 16 * 1024;
+
+  /**
+   * Guards the creation of the trackers.
+   */
+  private static final Object TRACKERS_LOCK = new Object();
+
+  /**
+   * The tracked document.
+   */
+  private final Document document;
+
+  /**
+   * The builder that received the markup from the last scan or <code>null</code> if the document must be scanned.
+   */
+  private PrologStructureBuilder scan;
+
+  /**
+   * The offset where the last scan stopped.
+   */
+  private int regionEnd = -1;
+
+  /**
+   * The type of the document, detected by the editors, or <code>null</code> if it must be detected again.
+   */
+  private DocumentType documentType;
+
+  /**
+   * The offset after the start tag of the root, from the last scan, or <code>-1</code> if it's not known.
+   */
+  private int rootStartTagEnd = -1;
+
+  /**
+   * Replaced every time the start tag of the root can be changed.
+   */
+  private Object rootState = new Object();
+
+  /**
+   * Constructor.
+   *
+   * @param document The tracked document.
+   */
+  private PrologRegionTracker(Document document) {
+    this.document = document;
+  }
+
+  /**
+   * Get the tracker of a document. The tracker is created and starts listening to the document
+   * on the first call.
+   *
+   * @param document The document.
+   * @return The tracker of the document.
+   */
+  public static PrologRegionTracker getTracker(Document document) {
+    synchronized (TRACKERS_LOCK) {
+      PrologRegionTracker tracker = (PrologRegionTracker) document.getProperty(TRACKER_PROPERTY);
+      if (tracker == null) {
+        tracker = new PrologRegionTracker(document);
+        document.putProperty(TRACKER_PROPERTY, tracker);
+        document.addDocumentListener(tracker);
+      }
+      return tracker;
+    }
+  }
+
+  /**
+   * Get the result of the prolog scan. The document is scanned only if it was changed in the scanned
+   * region since the last scan. Only the text until the end of the prolog is read, in chunks that
+   * grow until the prolog end is found.
+   *
+   * @return The builder that received the markup of the document, with the structure of the prolog,
+   * or <code>null</code> if the document is not well-formed.
+   */
+  public synchronized PrologStructureBuilder getScan() {
+    if (scan == null) {
+      int length = document.getLength();
+      int scanLength = Math.min(length, INITIAL_SCAN_LENGTH);
+      try {
+        while (true) {
+          Segment text = new Segment();
+          document.getText(0, scanLength, text);
+          PrologStructureBuilder builder = new PrologStructureBuilder();
+          PrologTextScanner scanner = new PrologTextScanner(text, scanLength == length);
+          scanner.scan(0, builder);
+          if (!scanner.isIncomplete()) {
+            scan = builder;
+            regionEnd = scanner.getScanEnd();
+            PrologStructure structure = builder.getStructure();
+            rootStartTagEnd = structure != null ? structure.getRootFirstChildOffset() : -1;
+            break;
+          }
+          scanLength = (int) Math.min(length, scanLength * 2L);
+        }
+      } catch (BadLocationException e) {
+        logger.debug(e.getMessage(), e);
+      } catch (IOException e) {
+        logger.debug(e.getMessage(), e);
+      }
+    }
+    return scan;
+  }
+
+  /**
+   * @return <code>true</code> if the last scan can be reused.
+   */
+  public synchronized boolean isValid() {
+    return scan != null;
+  }
+
+  /**
+   * @return The type of the document or <code>null</code> if it was not detected since the start tag
+   * of the root was changed.
+   */
+  public synchronized DocumentType getDocumentType() {
+    return documentType;
+  }
+
+  /**
+   * Remember the type of the document until the start tag of the root is changed.
+   *
+   * @param documentType The type of the document.
+   */
+  public synchronized void setDocumentType(DocumentType documentType) {
+    this.documentType = documentType;
+  }
+
+  /**
+   * Get an object that stays the same while the start tag of the root and the text before it are not changed.
+   * The DOCTYPE declaration, the schema references and the class of the root are all in this text.
+   *
+   * @return The state of the root or <code>null</code> if the start tag of the root was not found.
+   */
+  public synchronized Object getRootState() {
+    if (rootStartTagEnd == -1) {
+      try {
+        rootStartTagEnd = DitaDocumentFilter.findRootStartTagEnd(
+            document.getText(0, Math.min(document.getLength(), DitaDocumentFilter.SEARCH_LENGTH)));
+      } catch (BadLocationException e) {
+        logger.debug(e.getMessage(), e);
+      }
+    }
+    return rootStartTagEnd != -1 ? rootState : null;
+  }
+
+  /**
+   * Forget the last scan if the change starts in the scanned region and the document type
+   * and the state of the root if the change can touch the start tag of the root.
+   *
+   * @param offset The offset of the change.
+   */
+  private synchronized void changed(int offset) {
+    if (scan != null && offset <= regionEnd) {
+      scan = null;
+      regionEnd = -1;
+    }
+    if (rootStartTagEnd == -1 || offset < rootStartTagEnd) {
+      documentType = null;
+      rootStartTagEnd = -1;
+      rootState = new Object();
+    }
+  }
+
+  /**
+   * @see javax.swing.event.DocumentListener#insertUpdate(javax.swing.event.DocumentEvent)
+   */
+  public void insertUpdate(DocumentEvent e) {
+    changed(e.getOffset());
+  }
+
+  /**
+   * @see javax.swing.event.DocumentListener#removeUpdate(javax.swing.event.DocumentEvent)
+   */
+  public void removeUpdate(DocumentEvent e) {
+    changed(e.getOffset());
+  }
+
+  /**
+   * @see javax.swing.event.DocumentListener#changedUpdate(javax.swing.event.DocumentEvent)
+   */
+  public void changedUpdate(DocumentEvent e) {
+    // Only the attributes were changed.
+  }
+}
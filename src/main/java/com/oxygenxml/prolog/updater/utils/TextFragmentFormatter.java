@@ -0,0 +1,318 @@
+package com.oxygenxml.prolog.updater.utils;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.Segment;
+
+/**
+ * Formats the XML fragments inserted in a text document, using the indentation of the document.
+ * <br/>
+ * The indent unit is inferred once from the beginning of the document and the formatter is stored as a
+ * document property. The indentation of an insertion point is taken from the text that follows it: a fragment
+ * inserted before an element gets the indentation of that element, a fragment inserted before an end tag
+ * gets the indentation of the children. If the insertion point is not followed by a line break and it's not
+ * at the start of an indented line, the document is not formatted there and the fragment is inserted as it is.
+ * <br/>
+ * The fragments are the compact ones created by the prolog content creator: elements that contain only text
+ * are kept on one line, the other elements and the comments are placed on separate lines.
+ * <br/>
+ * The line separator of a Swing document is always "\n", the original one is restored when the document is saved.
+ */
+public class TextFragmentFormatter {
+
+  /**
+   * The document property that holds the formatter.
+   */
+  private static final String FORMATTER_PROPERTY = TextFragmentFormatter.class.getName();
+
+  /**
+   * Guards the creation of the formatters.
+   */
+  private static final Object FORMATTERS_LOCK = new Object();
+
+  /**
+   * The number of characters from the beginning of the document used to infer the indent unit.
+   */
+  private static final int INFER_LENGTH = 8 * 1024;
+
+  /**
+   * The number of characters read at once after an insertion point.
+   */
+  private static final int READ_LENGTH = 128;
+
+  /**
+   * The line separator used in the Swing documents.
+   */
+  private static final char LINE_SEPARATOR = '\n';
+
+  /**
+   * The indent unit or <code>null</code> if the document is not indented.
+   */
+  private final String indentUnit;
+
+  /**
+   * Constructor.
+   *
+   * @param indentUnit The indent unit or <code>null</code> if the document is not indented.
+   */
+  TextFragmentFormatter(String indentUnit) {
+    this.indentUnit = indentUnit;
+  }
+
+  /**
+   * Get the formatter of a document. The indent unit is inferred on the first call.
+   *
+   * @param document The document.
+   * @return The formatter of the document.
+   */
+  public static TextFragmentFormatter getFormatter(Document document) {
+    synchronized (FORMATTERS_LOCK) {
+      TextFragmentFormatter formatter = (TextFragmentFormatter) document.getProperty(FORMATTER_PROPERTY);
+      if (formatter == null) {
+        Segment text = new Segment();
+        try {
+          document.getText(0, Math.min(document.getLength(), INFER_LENGTH), text);
+        } catch (BadLocationException e) {
+          // Cannot happen, the range is inside the document.
+          text = new Segment();
+        }
+        formatter = new TextFragmentFormatter(inferIndentUnit(text));
+        document.putProperty(FORMATTER_PROPERTY, formatter);
+      }
+      return formatter;
+    }
+  }
+
+  /**
+   * @return The indent unit or <code>null</code> if the document is not indented.
+   */
+  public String getIndentUnit() {
+    return indentUnit;
+  }
+
+  /**
+   * Format a fragment for an insertion at the given offset.
+   *
+   * @param document The document.
+   * @param offset The insertion offset.
+   * @param fragment The compact fragment.
+   * @return The text to insert at the offset. The fragment is given as it is if the document is not
+   * formatted at the offset.
+   * @throws BadLocationException If the offset is not in the document.
+   */
+  public String formatAt(Document document, int offset, String fragment) throws BadLocationException {
+    String toReturn = fragment;
+    int length = document.getLength();
+    Segment text = new Segment();
+
+    // Search for the next markup, after the whitespaces.
+    int lineStart = -1;
+    int next = -1;
+    int pos = offset;
+    while (next == -1 && pos < length) {
+      int count = Math.min(READ_LENGTH, length - pos);
+      document.getText(pos, count, text);
+      for (int i = 0; i < count; i++) {
+        char c = text.array[text.offset + i];
+        if (c == LINE_SEPARATOR) {
+          lineStart = pos + i + 1;
+        } else if (!isIndentation(c)) {
+          next = pos + i;
+          break;
+        }
+      }
+      pos += count;
+    }
+
+    if (next != -1) {
+      boolean beforeEndTag = next + 1 < length && document.getText(next, 2).equals("</");
+      String childIndent = beforeEndTag ? getIndentUnitOrEmpty() : "";
+      if (lineStart != -1) {
+        // The next markup is on another line: insert a new line before it.
+        String indent = document.getText(lineStart, next - lineStart) + childIndent;
+        StringBuilder formatted = new StringBuilder(fragment.length() + 32);
+        formatted.append(LINE_SEPARATOR).append(indent);
+        appendFormatted(formatted, fragment, indent);
+        toReturn = formatted.toString();
+      } else if (next == offset) {
+        // The offset is before the next markup. Check if the markup starts its line.
+        String lineIndent = getLineIndentBefore(document, offset);
+        if (lineIndent != null) {
+          String indent = lineIndent + childIndent;
+          StringBuilder formatted = new StringBuilder(fragment.length() + 32);
+          formatted.append(childIndent);
+          appendFormatted(formatted, fragment, indent);
+          formatted.append(LINE_SEPARATOR).append(lineIndent);
+          toReturn = formatted.toString();
+        }
+      }
+    }
+    return toReturn;
+  }
+
+  /**
+   * Format a fragment whose insertion offset is not known, starting at the first column.
+   *
+   * @param fragment The compact fragment.
+   * @return The formatted fragment or the given fragment if the document is not indented.
+   */
+  public String format(String fragment) {
+    String toReturn = fragment;
+    if (indentUnit != null) {
+      StringBuilder text = new StringBuilder(fragment.length() + 32);
+      appendFormatted(text, fragment, "");
+      toReturn = text.toString();
+    }
+    return toReturn;
+  }
+
+  /**
+   * Get the indentation before an offset.
+   *
+   * @param document The document.
+   * @param offset The offset.
+   * @return The text between the start of the line and the offset or <code>null</code> if it's not
+   * only indentation or the offset is on the first line.
+   * @throws BadLocationException If the offset is not in the document.
+   */
+  private static String getLineIndentBefore(Document document, int offset) throws BadLocationException {
+    int start = Math.max(0, offset - READ_LENGTH);
+    Segment text = new Segment();
+    document.getText(start, offset - start, text);
+    for (int i = text.count - 1; i >= 0; i--) {
+      char c = text.array[text.offset + i];
+      if (c == LINE_SEPARATOR) {
+        return document.getText(start + i + 1, offset - start - i - 1);
+      } else if (!isIndentation(c)) {
+        break;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @param c A character.
+   * @return <code>true</code> if the character can be part of the indentation.
+   */
+  private static boolean isIndentation(char c) {
+    return c == ' ' || c == '\t' || c == '\r';
+  }
+
+  /**
+   * @return The indent unit or an empty string if the document is not indented.
+   */
+  private String getIndentUnitOrEmpty() {
+    return indentUnit != null ? indentUnit : "";
+  }
+
+  /**
+   * Append a compact fragment, placing the elements that don't contain only text and the comments on separate lines.
+   *
+   * @param text Receives the formatted fragment.
+   * @param fragment The compact fragment.
+   * @param indent The indentation of the first line. It's not added before the first line.
+   */
+  private void appendFormatted(StringBuilder text, String fragment, String indent) {
+    int depth = 0;
+    // What precedes the current token: 0 for nothing, 1 for a start tag, 2 for text, 3 for other markup.
+    int previous = 0;
+    int pos = 0;
+    int length = fragment.length();
+    while (pos < length) {
+      if (fragment.charAt(pos) != '<') {
+        int end = fragment.indexOf('<', pos);
+        if (end == -1) {
+          end = length;
+        }
+        text.append(fragment, pos, end);
+        previous = 2;
+        pos = end;
+        continue;
+      }
+
+      int end;
+      if (fragment.startsWith("<!--", pos)) {
+        end = fragment.indexOf("-->", pos);
+        end = end == -1 ? length : end + 3;
+      } else {
+        end = fragment.indexOf('>', pos);
+        end = end == -1 ? length : end + 1;
+      }
+      boolean isEndTag = fragment.startsWith("</", pos);
+      boolean isStartTag = !isEndTag && !fragment.startsWith("<!", pos) && !fragment.startsWith("<?", pos)
+          && fragment.charAt(end - 2) != '/';
+      if (isEndTag) {
+        depth--;
+      }
+      // Elements that contain only text or nothing stay on one line.
+      if (previous == 3 || previous == 1 && !isEndTag) {
+        appendLineStart(text, indent, depth);
+      }
+      text.append(fragment, pos, end);
+      if (isStartTag) {
+        depth++;
+        previous = 1;
+      } else {
+        previous = 3;
+      }
+      pos = end;
+    }
+  }
+
+  /**
+   * Start a new line.
+   *
+   * @param text Receives the line break and the indentation.
+   * @param indent The indentation of the fragment.
+   * @param depth The depth inside the fragment.
+   */
+  private void appendLineStart(StringBuilder text, String indent, int depth) {
+    text.append(LINE_SEPARATOR).append(indent);
+    for (int i = 0; i < depth; i++) {
+      text.append(getIndentUnitOrEmpty());
+    }
+  }
+
+  /**
+   * Infer the indent unit from the lines of a text. The unit is a tab if the lines are indented with tabs,
+   * otherwise the smallest indentation with spaces of a line that starts with markup.
+   *
+   * @param text The text.
+   * @return The indent unit or <code>null</code> if no line is indented.
+   */
+  static String inferIndentUnit(CharSequence text) {
+    int smallest = Integer.MAX_VALUE;
+    int length = text.length();
+    int pos = 0;
+    while (pos < length) {
+      int lineStart = pos;
+      while (pos < length && text.charAt(pos) == ' ') {
+        pos++;
+      }
+      if (pos < length) {
+        char c = text.charAt(pos);
+        if (c == '\t' && pos == lineStart) {
+          return "\t";
+        }
+        if (c == '<' && pos > lineStart) {
+          smallest = Math.min(smallest, pos - lineStart);
+        }
+      }
+      // Go to the next line.
+      while (pos < length && text.charAt(pos) != LINE_SEPARATOR) {
+        pos++;
+      }
+      pos++;
+    }
+
+    String toReturn = null;
+    if (smallest != Integer.MAX_VALUE) {
+      StringBuilder unit = new StringBuilder(smallest);
+      for (int i = 0; i < smallest; i++) {
+        unit.append(' ');
+      }
+      toReturn = unit.toString();
+    }
+    return toReturn;
+  }
+}
@@ -1,7 +1,6 @@
 package com.oxygenxml.prolog.updater.utils;
 
-import java.io.StringReader;
-import java.net.URL;
+import java.util.ArrayList;
 import java.util.List;
 
 import javax.swing.text.BadLocationException;
@@ -11,21 +10,18 @@ import javax.swing.text.Position;
 import org.apache.log4j.Logger;
 
 import com.oxygenxml.prolog.updater.dita.editor.DocumentType;
+import com.oxygenxml.prolog.updater.prolog.edit.PrologStructure;
+import com.oxygenxml.prolog.updater.prolog.edit.PrologStructureBuilder;
 
-import ro.sync.contentcompletion.xml.CIElement;
 import ro.sync.contentcompletion.xml.ContextElement;
 import ro.sync.contentcompletion.xml.WhatElementsCanGoHereContext;
 import ro.sync.exml.editor.xmleditor.operations.context.RelativeInsertPosition;
-import ro.sync.exml.workspace.api.PluginWorkspace;
-import ro.sync.exml.workspace.api.PluginWorkspaceProvider;
-import ro.sync.exml.workspace.api.editor.WSEditor;
 import ro.sync.exml.workspace.api.editor.page.text.WSTextXMLSchemaManager;
 import ro.sync.exml.workspace.api.editor.page.text.xml.TextDocumentController;
 import ro.sync.exml.workspace.api.editor.page.text.xml.TextOperationException;
 import ro.sync.exml.workspace.api.editor.page.text.xml.WSXMLTextEditorPage;
 import ro.sync.exml.workspace.api.editor.page.text.xml.WSXMLTextNodeRange;
 import ro.sync.exml.workspace.api.editor.page.text.xml.XPathException;
-import ro.sync.exml.workspace.api.util.PrettyPrintException;
 
 /**
  * A collection of utility methods to be used in the text page.
@@ -37,6 +33,17 @@ public class TextPageDocumentUtil {
    * Logger
    */
    private static final Logger logger = Logger.getLogger(TextPageDocumentUtil.class);
+   
+   
+   /**
+    * The number of characters from the beginning of the document where the DOCTYPE declaration is searched.
+    */
+   private static final int DOCTYPE_SEARCH_LENGTH = 4 * 1024;
+
+   /**
+    * The namespace of the XML Schema instance attributes.
+    */
+   private static final String XSI_NAMESPACE = "http://www.w3.org/2001/XMLSchema-instance";
 
    
    /**
@@ -66,21 +73,15 @@ public class TextPageDocumentUtil {
 		if (xmlFragment != null && xPath != null && position != null) {
 			TextDocumentController controller = page.getDocumentController();
 
-			// Get the offset of caret.
-			int initialOffset = page.getCaretOffset();
 			// Create a position of caret.
-			Position pos = null;
-			if (initialOffset != -1) {
-				Document document = page.getDocument();
-				if (document != null) {
-					try {
-						pos = document.createPosition(initialOffset);
-					} catch (BadLocationException e) {
-						logger.debug(e.getMessage(), e);
-					}
-				}
+			Position pos = createCaretPosition(page);
+			String fragment = xmlFragment;
+			Document document = page.getDocument();
+			if (document != null) {
+				// Indent the fragment like the document.
+				fragment = TextFragmentFormatter.getFormatter(document).format(xmlFragment);
 			}
-			controller.insertXMLFragment(prettyPrintFragment(page, xmlFragment), xPath, position);
+			controller.insertXMLFragment(fragment, xPath, position);
 
 			// Restore the position of caret.
 			if (pos != null) {
@@ -92,53 +93,132 @@ public class TextPageDocumentUtil {
   
   
   /**
-   * Pretty print the given fragment.
+   * Insert the given fragments directly in the document of the page, as a single undoable edit.
+   * The fragments are not formatted and the XPath expressions are not evaluated, so the fragments and the offsets
+   * must be computed before, when the document is analyzed.
    * 
-   * @param wsTextEditorPage The text editor.
-   * @param fragment The fragment.
-   * @return The pretty printed content.
+   * @param page The text editor.
+   * @param fragments The XML fragments to insert.
+   * @param offsets The offsets where the fragments are inserted, in document order. Fragments with the 
+   * same offset are inserted one after the other, in the given order.
+   * @param replacedLengths The number of characters before each offset that are replaced by the fragment.
+   * @throws BadLocationException If an offset is not in the document.
    */
-  private static String prettyPrintFragment(WSXMLTextEditorPage wsTextEditorPage, String fragment) {
-    PluginWorkspace pluginWorkspace = PluginWorkspaceProvider.getPluginWorkspace();
-    if (pluginWorkspace != null) {
-      URL location = getCurrentEditorLocation(wsTextEditorPage);
-      if (location != null) {
-        try {
-          fragment = pluginWorkspace.getXMLUtilAccess().prettyPrint(new StringReader(fragment), location.toExternalForm());
-          // Pretty print moves to next line. We don't want that.
-          if(fragment.endsWith("\r\n")) {
-          	 fragment = fragment.substring(0, fragment.length() - 2);
-          }
-          else if (fragment.endsWith("\n") || fragment.endsWith("\r\n") || fragment.endsWith("\r")) {
-            fragment = fragment.substring(0, fragment.length() - 1);
+  public static void insertXmlFragments(WSXMLTextEditorPage page, String[] fragments, int[] offsets, int[] replacedLengths) throws BadLocationException {
+    Document document = page.getDocument();
+    if (document != null) {
+      // Create a position of caret.
+      Position pos = createCaretPosition(page);
+      page.beginCompoundUndoableEdit();
+      try {
+        // Insert from the end of the document, so the previous offsets remain valid.
+        for (int i = fragments.length - 1; i >= 0; i--) {
+          int offset = offsets[i] - replacedLengths[i];
+          if (replacedLengths[i] > 0) {
+            document.remove(offset, replacedLengths[i]);
           }
-        } catch (PrettyPrintException e) {
-          logger.debug(e, e);
+          document.insertString(offset, fragments[i], null);
         }
+      } finally {
+        page.endCompoundUndoableEdit();
+      }
+
+      // Restore the position of caret.
+      if (pos != null) {
+        page.setCaretPosition(pos.getOffset());
       }
     }
-    return fragment;
   }
   
   
   /**
-   * @param textPage The text page.
-   * @return The URL of the current edited page or <code>null</code>.
+   * Get the offset where a node range starts.
+   * 
+   * @param page The text page.
+   * @param range The range of a node.
+   * @return The offset of the first character of the node.
+   * @throws BadLocationException If the range is not in the document.
    */
-  private static URL getCurrentEditorLocation(WSXMLTextEditorPage textPage) {
-    URL url = null;
-    if (textPage != null) {
-      WSEditor parentEditor = textPage.getParentEditor();
-      if (parentEditor != null) {
-        url = parentEditor.getEditorLocation();
+  public static int getStartOffset(WSXMLTextEditorPage page, WSXMLTextNodeRange range) throws BadLocationException {
+    // The lines and the columns are 1-based.
+    return page.getOffsetOfLineStart(range.getStartLine()) + range.getStartColumn() - 1;
+  }
+  
+  
+  /**
+   * Get the offset where a node range ends.
+   * 
+   * @param page The text page.
+   * @param range The range of a node.
+   * @return The offset after the last character of the node.
+   * @throws BadLocationException If the range is not in the document.
+   */
+  public static int getEndOffset(WSXMLTextEditorPage page, WSXMLTextNodeRange range) throws BadLocationException {
+    return page.getOffsetOfLineStart(range.getEndLine()) + range.getEndColumn();
+  }
+  
+  
+  /**
+   * Create a position that follows the caret while the document is changed.
+   * 
+   * @param page The text editor.
+   * @return The position or <code>null</code> if the page doesn't have a caret.
+   */
+  private static Position createCaretPosition(WSXMLTextEditorPage page) {
+    // Get the offset of caret.
+    int initialOffset = page.getCaretOffset();
+    Position pos = null;
+    if (initialOffset != -1) {
+      Document document = page.getDocument();
+      if (document != null) {
+        try {
+          pos = document.createPosition(initialOffset);
+        } catch (BadLocationException e) {
+          logger.debug(e.getMessage(), e);
+        }
       }
     }
-    return url;
+    return pos;
+  }
+  
+  
+  /**
+   * Scan the document of the given page once and collect the prolog elements: the authors with their
+   * type and name, the critdates, created and revised elements. Only the text until the end of the
+   * prolog is read, in chunks that grow until the prolog end is found.
+   * 
+   * @param page The text page.
+   * @return The structure of the prolog, with offsets in the document of the page, or <code>null</code>
+   * if the document is not a well-formed DITA topic or map.
+   */
+  public static PrologStructure findPrologStructure(WSXMLTextEditorPage page) {
+    PrologStructureBuilder builder = scanProlog(page);
+    return builder != null ? builder.getStructure() : null;
+  }
+  
+  
+  /**
+   * Scan the document of the given page until the end of the prolog, like {@link #findPrologStructure(WSXMLTextEditorPage)}.
+   * 
+   * @param page The text page.
+   * @return The builder that received the markup of the document, with the structure of the prolog, 
+   * or <code>null</code> if the document is not well-formed.
+   */
+  public static PrologStructureBuilder scanProlog(WSXMLTextEditorPage page) {
+    PrologStructureBuilder toReturn = null;
+    Document document = page.getDocument();
+    if (document != null) {
+      // The last scan is reused if the document was not changed before the end of the prolog.
+      toReturn = PrologRegionTracker.getTracker(document).getScan();
+    }
+    return toReturn;
   }
   
   
   /**
    * Find a possible xPath where prolog element can be inserted.
+   * The standard DITA types use the {@link PrologPlacementTable}. For the other grammars, the schema
+   * is queried only for the first document with a given grammar and leading root children.
    *  
    * @param page The page from the WsEditor.
    * @param documentType The type of the document ( {@link DocumentType#TOPIC}, {@link DocumentType#MAP} or  {@link DocumentType#BOOKMAP}  ).
@@ -147,18 +227,43 @@ public class TextPageDocumentUtil {
    */
 	public static String findPrologXPath(WSXMLTextEditorPage page, DocumentType documentType) {
 		String toReturn = null;
-		ContextElement nodeToInsertAfter = null;
-
-		// Find the context where prolog element can be inserted.
 		try {
-			WhatElementsCanGoHereContext context = findPrologContext(page, documentType);
-			if (context != null) {
-				List<ContextElement> previous = context.getPreviousSiblingElements();
-				if (previous != null && !previous.isEmpty()) {
-					// Get the previous sibling.
-					nodeToInsertAfter = previous.get(previous.size() - 1);
-					// Generate the XPath.
-					toReturn = ElementXPathUtils.getRootXpath(documentType) + "/" + nodeToInsertAfter.getQName();
+			String rootXpath = ElementXPathUtils.getRootXpath(documentType);
+			// The name of the root followed by the names of its children.
+			Object[] names = page.evaluateXPath("(" + rootXpath + ", " + ElementXPathUtils.getRootChildXpath(documentType) + ")/name()");
+			if (names != null && names.length > 0) {
+				String rootName = String.valueOf(names[0]);
+				List<String> childNames = new ArrayList<String>(names.length - 1);
+				for (int i = 1; i < names.length; i++) {
+					childNames.add(String.valueOf(names[i]));
+				}
+				String grammar = getGrammarId(page, rootXpath);
+				String predecessor = PrologPlacementTable.findPredecessor(grammar, rootName, childNames);
+				if (predecessor != null) {
+					toReturn = predecessor.length() > 0 ? rootXpath + "/" + predecessor : null;
+				} else {
+					// The documents with the same grammar and leading root children share the location.
+					String cached = PrologInsertionCache.get(grammar, rootName, childNames);
+					if (cached != null) {
+						toReturn = PrologInsertionCache.FIRST_CHILD.equals(cached) ? null : cached;
+					} else {
+						// Find the context where prolog element can be inserted.
+						PrologContextProbe probe = new PrologContextProbe(documentType, rootName);
+						WhatElementsCanGoHereContext context = findPrologContext(page, documentType, probe);
+						if (context != null) {
+							List<ContextElement> previous = context.getPreviousSiblingElements();
+							if (previous != null && !previous.isEmpty()) {
+								// Get the previous sibling.
+								ContextElement nodeToInsertAfter = previous.get(previous.size() - 1);
+								// Generate the XPath.
+								toReturn = rootXpath + "/" + nodeToInsertAfter.getQName();
+							}
+						}
+						if (page.getXMLSchemaManager() != null) {
+							PrologInsertionCache.put(grammar, rootName, childNames, probe.getExaminedCount(),
+								probe.isFinished(), toReturn);
+						}
+					}
 				}
 			}
 		} catch (XPathException e) {
@@ -166,6 +271,77 @@ public class TextPageDocumentUtil {
 		}
 		return toReturn;
 	}
+	
+	
+	/**
+	 * Get the identifier of the grammar of the document: the public or the system ID of the DOCTYPE or
+	 * the location of the XML Schema.
+	 * 
+	 * @param page The text page.
+	 * @param rootXpath The XPath of the root element.
+	 * @return The identifier or <code>null</code> if the document doesn't declare its grammar.
+	 * @throws XPathException If the schema location could not be evaluated.
+	 */
+	private static String getGrammarId(WSXMLTextEditorPage page, String rootXpath) throws XPathException {
+		String toReturn = null;
+		Document document = page.getDocument();
+		if (document != null) {
+			try {
+				toReturn = getDoctypeId(document.getText(0, Math.min(document.getLength(), DOCTYPE_SEARCH_LENGTH)));
+			} catch (BadLocationException e) {
+				logger.debug(e.getMessage(), e);
+			}
+		}
+		if (toReturn == null) {
+			Object[] schemaLocation = page.evaluateXPath(rootXpath + "/@*[namespace-uri() = '" + XSI_NAMESPACE
+					+ "'][local-name() = 'noNamespaceSchemaLocation' or local-name() = 'schemaLocation']/string()");
+			if (schemaLocation != null && schemaLocation.length > 0) {
+				toReturn = String.valueOf(schemaLocation[0]);
+			}
+		}
+		return toReturn;
+	}
+	
+	
+	/**
+	 * Get the public ID or, if it's missing, the system ID of the DOCTYPE declaration.
+	 * 
+	 * @param text The text from the beginning of the document.
+	 * @return The ID or <code>null</code> if the DOCTYPE declaration was not found.
+	 */
+	static String getDoctypeId(String text) {
+		String toReturn = null;
+		int start = text.indexOf("<!DOCTYPE");
+		if (start != -1) {
+			int end = text.indexOf('>', start);
+			int subset = text.indexOf('[', start);
+			if (subset != -1 && (end == -1 || subset < end)) {
+				end = subset;
+			}
+			if (end != -1) {
+				String declaration = text.substring(start, end);
+				int keyword = declaration.indexOf("PUBLIC");
+				if (keyword == -1) {
+					keyword = declaration.indexOf("SYSTEM");
+				}
+				if (keyword != -1) {
+					// The first quoted literal after the keyword.
+					int quote = keyword + "PUBLIC".length();
+					while (quote < declaration.length() && declaration.charAt(quote) != '"' && declaration.charAt(quote) != '\'') {
+						quote++;
+					}
+					if (quote < declaration.length()) {
+						int literalEnd = declaration.indexOf(declaration.charAt(quote), quote + 1);
+						if (literalEnd != -1) {
+							toReturn = declaration.substring(quote + 1, literalEnd);
+						}
+					}
+				}
+			}
+		}
+		return toReturn;
+	}
+
   
 	
 	/**
@@ -176,46 +352,43 @@ public class TextPageDocumentUtil {
 	 * @param documentType
 	 *          The type of the document ( {@link DocumentType#TOPIC},
 	 *          {@link DocumentType#MAP} or {@link DocumentType#BOOKMAP} ).
+	 * @param probe
+	 *          Decides which children of the root are probed.
 	 * @return A context where prolog element can go or <code>null</code>.
 	 * @throws XPathException If prolog context can't be found.
 	 */
-	private static WhatElementsCanGoHereContext findPrologContext(WSXMLTextEditorPage page, DocumentType documentType) throws XPathException {
+	private static WhatElementsCanGoHereContext findPrologContext(WSXMLTextEditorPage page, DocumentType documentType,
+			PrologContextProbe probe) throws XPathException {
 		WhatElementsCanGoHereContext toReturn = null;
 
 		// Get the XmlSchemaManager.
 		WSTextXMLSchemaManager schemaManager = page.getXMLSchemaManager();
 
-		// Get all child of root topic.
-		WSXMLTextNodeRange[] topicChild = page.findElementsByXPath(ElementXPathUtils.getRootChildXpath(documentType));
+		// Get all child of root topic and their names.
+		String rootChildXpath = ElementXPathUtils.getRootChildXpath(documentType);
+		WSXMLTextNodeRange[] topicChild = page.findElementsByXPath(rootChildXpath);
+		Object[] childNames = page.evaluateXPath(rootChildXpath + "/name()");
+		// The class attributes, including the values defaulted by the grammar.
+		Object[] childClasses = page.evaluateXPath(rootChildXpath + "/string(@" + XmlElementsConstants.CLASS + ")");
 
 		int childNo = topicChild.length;
 		// Iterate over topic child
-		loop: for (int j = 0; j < childNo; j++) {
-			WSXMLTextNodeRange currentNode = topicChild[j];
-			// Get the offset of next line.
-			WhatElementsCanGoHereContext currentContext = null;
-			try {
-				int offset = page.getOffsetOfLineEnd(currentNode.getEndLine());
-				currentContext = schemaManager.createWhatElementsCanGoHereContext(offset);
-			} catch (BadLocationException e) {
-				logger.debug(e.getMessage(), e);
-			}
-			if (currentContext != null) {
+		for (int j = 0; j < childNo && !probe.isFinished(); j++) {
+			String childName = childNames != null && j < childNames.length ? String.valueOf(childNames[j]) : null;
+			String childClass = childClasses != null && j < childClasses.length ? String.valueOf(childClasses[j]) : null;
+			if (probe.shouldProbe(childName, childClass != null && childClass.length() > 0 ? childClass : null)) {
+				WSXMLTextNodeRange currentNode = topicChild[j];
+				// Get the offset of next line.
+				WhatElementsCanGoHereContext currentContext = null;
+				try {
+					int offset = page.getOffsetOfLineEnd(currentNode.getEndLine());
+					currentContext = schemaManager.createWhatElementsCanGoHereContext(offset);
+				} catch (BadLocationException e) {
+					logger.debug(e.getMessage(), e);
+				}
 				// Analyze if current context can contain the prolog element.
-				List<CIElement> possible = schemaManager.whatElementsCanGoHere(currentContext);
-				if (possible != null) {
-					// Iterate over possible elements.
-					int size = possible.size();
-					for (int i = 0; i < size; i++) {
-						CIElement ciElement = possible.get(i);
-						if (ciElement.getName().equals(XmlElementsUtils.getPrologName(documentType))) {
-							toReturn = currentContext;
-							if (i == 0) {
-								// if prolog element is first in possible elements list. STOP.
-								break loop;
-							}
-						}
-					}
+				if (currentContext != null && probe.accept(schemaManager.whatElementsCanGoHere(currentContext))) {
+					toReturn = currentContext;
 				}
 			}
 		}
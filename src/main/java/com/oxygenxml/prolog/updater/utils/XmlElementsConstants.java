@@ -9,6 +9,46 @@ public class XmlElementsConstants {
    */
   public static final String CLASS = "class";
   
+  /**
+   * The type attribute of author element.
+   */
+  public static final String TYPE_ATTRIBUTE = "type";
+
+  /**
+   * The attribute with the location of the XML Schema without a target namespace.
+   */
+  public static final String NO_NAMESPACE_SCHEMA_LOCATION = "xsi:noNamespaceSchemaLocation";
+
+  /**
+   * The attribute with the locations of the XML Schemas with a target namespace.
+   */
+  public static final String SCHEMA_LOCATION = "xsi:schemaLocation";
+  
+  /**
+   * Class's value of topic root element.
+   */
+  public static final String TOPIC_CLASS = " topic/topic ";
+  
+  /**
+   * Class's value of map root element.
+   */
+  public static final String MAP_CLASS = " map/map ";
+  
+  /**
+   * Class's value of bookmap root element.
+   */
+  public static final String BOOKMAP_CLASS = " bookmap/bookmap ";
+  
+  /**
+   * Name of map root element.
+   */
+  public static final String MAP_NAME = "map";
+  
+  /**
+   * Name of bookmap root element.
+   */
+  public static final String BOOKMAP_NAME = "bookmap";
+  
   /**
    * Class's value of prolog element.
    */
@@ -34,6 +74,26 @@ public class XmlElementsConstants {
    */
   public static final String BOOKMETA_NAME = "bookmeta";
   
+  /**
+   * Name of author element.
+   */
+  public static final String AUTHOR_ELEMENT_NAME = "author";
+  
+  /**
+   * Name of critdates element.
+   */
+  public static final String CRITDATES_NAME = "critdates";
+  
+  /**
+   * Name of created element.
+   */
+  public static final String CREATED_NAME = "created";
+  
+  /**
+   * Name of revised element.
+   */
+  public static final String REVISED_NAME = "revised";
+  
   /**
    * Class's value of body element.
    */
@@ -30,7 +30,41 @@ public class XmlElementsUtils {
     }
     return name;
   }
-  
+
+  /**
+   * Get the document type according to the root element. The class attribute is used when it's
+   * available, otherwise the name of the root element is looked up in the {@link PrologPlacementTable}.
+   *
+   * @param rootName The local name of the root element.
+   * @param classValue The value of the class attribute of the root element or <code>null</code>.
+   * @return The document type( {@link DocumentType#TOPIC}, {@link DocumentType#MAP} or {@link DocumentType#BOOKMAP}  ).
+   */
+  public static DocumentType getDocumentType(String rootName, String classValue) {
+    DocumentType documentType = DocumentType.TOPIC;
+    if (classValue != null) {
+      if (classValue.contains(XmlElementsConstants.BOOKMAP_CLASS)) {
+        documentType = DocumentType.BOOKMAP;
+      } else if (classValue.contains(XmlElementsConstants.MAP_CLASS)) {
+        documentType = DocumentType.MAP;
+      }
+    } else if (PrologPlacementTable.getDocumentType(rootName) != null) {
+      documentType = PrologPlacementTable.getDocumentType(rootName);
+    }
+    return documentType;
+  }
+
+  /**
+   * Check if the given element is the prolog element (prolog, topicmeta or bookmeta).
+   *
+   * @param documentType The document type( {@link DocumentType#TOPIC}, {@link DocumentType#MAP} or {@link DocumentType#BOOKMAP}  ).
+   * @param localName The local name of the element.
+   * @param classValue The value of the class attribute or <code>null</code>.
+   * @return <code>true</code> if the element is the prolog element.
+   */
+  public static boolean isPrologElement(DocumentType documentType, String localName, String classValue) {
+    return classValue != null ? classValue.contains(getPrologClass(documentType)) : getPrologName(documentType).equals(localName);
+  }
+
   /**
    * public constructor.
    */
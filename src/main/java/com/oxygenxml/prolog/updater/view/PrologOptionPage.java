@@ -8,8 +8,12 @@ import java.awt.event.ActionListener;
 import javax.swing.JCheckBox;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
+import javax.swing.JSpinner;
 import javax.swing.JTextField;
+import javax.swing.SpinnerNumberModel;
 
+import com.oxygenxml.prolog.updater.prolog.content.PrologOptions;
+import com.oxygenxml.prolog.updater.prolog.content.WorkspacePrologOptions;
 import com.oxygenxml.prolog.updater.tags.OptionKeys;
 import com.oxygenxml.prolog.updater.tags.Tags;
 
@@ -74,6 +78,11 @@ public class PrologOptionPage extends JPanel {
    */
   private JCheckBox mapUpdateRevised;
   
+  /**
+   * The size, in kilobytes, above which the fragments are inserted without the schema.
+   */
+  private JSpinner schemaAwareSizeLimit = createSizeSpinner(PrologOptions.DEFAULT_SCHEMA_AWARE_SIZE_LIMIT);
+  
   /**
    * Default value for check boxes in boolean format
    */
@@ -177,6 +186,23 @@ public class PrologOptionPage extends JPanel {
     constr.gridy++;
     add(mapUpdateRevised, constr);
     
+    //
+    //Large documents
+    //
+    constr.gridy++;
+    constr.insets.left = 0;
+    add(new SectionPane(messages.getMessage(Tags.LARGE_DOCUMENTS)), constr);
+    
+    constr.gridy++;
+    constr.gridwidth = 1;
+    constr.weightx = 0;
+    constr.fill = GridBagConstraints.NONE;
+    add(new JLabel(messages.getMessage(Tags.SCHEMA_AWARE_SIZE_LIMIT) + ":"), constr);
+    
+    constr.gridx++;
+    constr.insets.left = LEFT_INDENT;
+    add(schemaAwareSizeLimit, constr);
+    
     // Push everything to top
     constr.gridx = 0;
     constr.gridy ++;
@@ -203,6 +229,16 @@ public class PrologOptionPage extends JPanel {
     loadPageState();
   }
   
+  /**
+   * Create a spinner for a size, in kilobytes.
+   * 
+   * @param size The initial size.
+   * @return The spinner.
+   */
+  private static JSpinner createSizeSpinner(int size) {
+    return new JSpinner(new SpinnerNumberModel(size, 1, Integer.MAX_VALUE, 1));
+  }
+  
   /**
    * Enables or disables all topic related check boxes. 
    * @param enabled <code>true</code> to enable all topic related check boxes. 
@@ -258,7 +294,13 @@ public class PrologOptionPage extends JPanel {
           String.valueOf(mapUpdateContributor.isSelected()));
       optionsStorage.setOption(OptionKeys.MAP_UPDATE_REVISED_DATES,
           String.valueOf(mapUpdateRevised.isSelected()));
+      
+      // Save the size limit.
+      optionsStorage.setOption(OptionKeys.SCHEMA_AWARE_SIZE_LIMIT,
+          String.valueOf(schemaAwareSizeLimit.getValue()));
     }
+    // The next update reads the saved options.
+    WorkspacePrologOptions.invalidate();
   }
   
   /**
@@ -305,6 +347,10 @@ public class PrologOptionPage extends JPanel {
       
       value = optionsStorage.getOption(OptionKeys.MAP_UPDATE_REVISED_DATES, CHECK_SELECTED_DEFAULT);
       mapUpdateRevised.setSelected(Boolean.valueOf(value));
+      
+      // Load the size limit.
+      PrologOptions options = WorkspacePrologOptions.load();
+      schemaAwareSizeLimit.setValue(options.getSchemaAwareSizeLimit());
     }
   }
 
@@ -332,5 +378,8 @@ public class PrologOptionPage extends JPanel {
     mapSetCreated.setSelected(CHECK_SELECTED_DEFAULT_BOOLEAN);
     mapUpdateContributor.setSelected(CHECK_SELECTED_DEFAULT_BOOLEAN);
     mapUpdateRevised.setSelected(CHECK_SELECTED_DEFAULT_BOOLEAN);
+    
+    // Restore the size limit.
+    schemaAwareSizeLimit.setValue(PrologOptions.DEFAULT_SCHEMA_AWARE_SIZE_LIMIT);
   }
 }
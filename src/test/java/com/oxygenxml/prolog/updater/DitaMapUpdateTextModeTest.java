@@ -2,17 +2,19 @@ package com.oxygenxml.prolog.updater;
 
 import java.io.IOException;
 
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.PlainDocument;
 
 import org.junit.Test;
 import org.mockito.Mockito;
 import org.xml.sax.SAXException;
 
 import com.oxygenxml.prolog.updater.dita.editor.DitaTopicTextEditor;
-import com.oxygenxml.prolog.updater.dita.editor.DocumentType;
 import com.oxygenxml.prolog.updater.prolog.content.PrologContentCreator;
 import com.oxygenxml.prolog.updater.utils.ElementXPathConstants;
-import com.oxygenxml.prolog.updater.utils.ElementXPathUtils;
 
 import junit.framework.TestCase;
 import ro.sync.exml.editor.xmleditor.operations.context.RelativeInsertPosition;
@@ -47,6 +49,10 @@ public class DitaMapUpdateTextModeTest extends TestCase{
    * Text editor for prolog in dita. 
    */
   private DitaTopicTextEditor ditaTopicTextEditor;
+  /**
+   * The number of fragments inserted in the document.
+   */
+  private int insertedFragments;
   
   
   @Override
@@ -69,118 +75,99 @@ public class DitaMapUpdateTextModeTest extends TestCase{
     //Create ditaTopicTextEditor
     ditaTopicTextEditor = new DitaTopicTextEditor(wsTextEditorPage, prologContentCreater);
   }
+
+  /**
+   * Set the text of the document from the page.
+   * 
+   * @param xml The text.
+   * @throws BadLocationException If the text could not be inserted.
+   */
+  private void setDocument(String xml) throws BadLocationException {
+    Document document = new PlainDocument();
+    document.insertString(0, xml, null);
+    insertedFragments = 0;
+    document.addDocumentListener(new DocumentListener() {
+      public void insertUpdate(DocumentEvent e) {
+        insertedFragments++;
+      }
+      public void removeUpdate(DocumentEvent e) {
+        // Nothing
+      }
+      public void changedUpdate(DocumentEvent e) {
+        // Nothing
+      }
+    });
+    Mockito.when(wsTextEditorPage.getDocument()).thenReturn(document);
+  }
+
 	
 	
 	 /**
-   *  <p><b>Description:</b>Check if insertXMLFragment is call when the prolog element is found, but it's empty(doesn't contain author or critdates).</p>
+   *  <p><b>Description:</b>Check if the fragments are inserted in the document when the prolog element is found, but it's empty(doesn't contain author or critdates).</p>
    * 
    * @throws IOException
    * @throws SAXException
    * @throws BadLocationException
    */
   @Test
-  public void testUpdateProlog() throws TextOperationException, XPathException {
-    
-		Mockito.when(wsTextEditorPage.findElementsByXPath(ElementXPathConstants.TOPICMETA_XPATH)).
-		thenReturn(new WSXMLTextNodeRange[1]);
-		
-		Mockito.when(wsTextEditorPage.findElementsByXPath(ElementXPathConstants.TOPICMETA_AUTHORS)).
-		thenReturn(new WSXMLTextNodeRange[0]);
-		
-		Mockito.when(wsTextEditorPage.findElementsByXPath(ElementXPathConstants.TOPICMETA_CRITDATES)).
-		thenReturn(new WSXMLTextNodeRange[0]);
-		
-		
-		ditaTopicTextEditor.updateProlog(true);
+  public void testUpdateProlog() throws TextOperationException, XPathException, BadLocationException {
+    setDocument("<map id=\"r\"><title>Map</title><topicmeta></topicmeta><topicref href=\"a.dita\"/></map>");
+
+    ditaTopicTextEditor.updateProlog(true);
 		
-		Mockito.verify(textDocumentController, Mockito.times(2)).insertXMLFragment(Mockito.anyString(), Mockito.anyString(), Mockito.any(RelativeInsertPosition.class));
+		assertEquals(2, insertedFragments);
+    Mockito.verify(textDocumentController, Mockito.never()).insertXMLFragment(Mockito.anyString(), Mockito.anyString(),
+        Mockito.any(RelativeInsertPosition.class));
 		Mockito.reset(textDocumentController);
 	}
 	
 	/**
-   * <p><b>Description:</b> Check if insertXMLFragment is call when the prolog tag is found and it contains the creator.</p>
+   * <p><b>Description:</b> Check if the fragments are inserted in the document when the prolog tag is found and it contains the creator.</p>
    *
    * @throws Exception
    */
 	@Test
-	public void testUpdateAuthor() throws XPathException, TextOperationException {
-	  
-    Mockito.when(wsTextEditorPage.findElementsByXPath(ElementXPathConstants.TOPICMETA_XPATH))
-        .thenReturn(new WSXMLTextNodeRange[1]);
-
-    Mockito.when(wsTextEditorPage.findElementsByXPath(ElementXPathConstants.TOPICMETA_AUTHORS)).
-    thenReturn(new WSXMLTextNodeRange[1]);
-    
-    Mockito.when(wsTextEditorPage.evaluateXPath(ElementXPathConstants.TOPICMETA_AUTHORS_CREATOR))
-        .thenReturn(new WSXMLTextNodeRange[1]);
-
-    Mockito.when(wsTextEditorPage.findElementsByXPath(ElementXPathConstants.TOPICMETA_CRITDATES))
-        .thenReturn(new WSXMLTextNodeRange[0]);
+	public void testUpdateAuthor() throws TextOperationException, XPathException, BadLocationException {
+    setDocument("<map id=\"r\"><title>Map</title><topicmeta><author type=\"creator\">other</author></topicmeta><topicref href=\"a.dita\"/></map>");
 
     ditaTopicTextEditor.updateProlog(true);
 
-    Mockito.verify(textDocumentController, Mockito.times(1)).insertXMLFragment(Mockito.anyString(), Mockito.anyString(),
+    assertEquals(1, insertedFragments);
+    Mockito.verify(textDocumentController, Mockito.never()).insertXMLFragment(Mockito.anyString(), Mockito.anyString(),
         Mockito.any(RelativeInsertPosition.class));
     Mockito.reset(textDocumentController);
   }
 	
 	/**
-   * <p><b>Description:</b> Check if insertXMLFragment is call when the prolog tag is found and it contains the critdates.</p>
+   * <p><b>Description:</b> Check if the fragments are inserted in the document when the prolog tag is found and it contains the critdates.</p>
    *
    * @throws Exception
    */
 	@Test
-  public void testUpdateCritdates() throws XPathException, TextOperationException {
-    Mockito.when(wsTextEditorPage.findElementsByXPath(ElementXPathConstants.TOPICMETA_XPATH))
-        .thenReturn(new WSXMLTextNodeRange[1]);
-
-    Mockito.when(wsTextEditorPage.findElementsByXPath(ElementXPathConstants.TOPICMETA_AUTHORS)).
-    thenReturn(new WSXMLTextNodeRange[0]);
-    
-    Mockito.when(wsTextEditorPage.evaluateXPath(ElementXPathConstants.TOPICMETA_AUTHORS_CREATOR))
-        .thenReturn(new WSXMLTextNodeRange[0]);
-
-    Mockito.when(wsTextEditorPage.findElementsByXPath(ElementXPathConstants.TOPICMETA_CRITDATES))
-        .thenReturn(new WSXMLTextNodeRange[1]);
-    
-    Mockito.when(wsTextEditorPage.findElementsByXPath(ElementXPathConstants.TOPICMETA_CRITDATES))
-    .thenReturn(new WSXMLTextNodeRange[1]);
-    
-    Mockito.when(wsTextEditorPage.evaluateXPath(ElementXPathUtils.getCreatedXpath(DocumentType.MAP)))
-    .thenReturn(new WSXMLTextNodeRange[1]);
+  public void testUpdateCritdates() throws TextOperationException, XPathException, BadLocationException {
+    setDocument("<map id=\"r\"><title>Map</title><topicmeta><critdates><created date=\"2017/01/01\"/></critdates></topicmeta><topicref href=\"a.dita\"/></map>");
 
     ditaTopicTextEditor.updateProlog(true);
 
-    Mockito.verify(textDocumentController, Mockito.times(1)).insertXMLFragment(Mockito.anyString(), Mockito.anyString(),
+    assertEquals(1, insertedFragments);
+    Mockito.verify(textDocumentController, Mockito.never()).insertXMLFragment(Mockito.anyString(), Mockito.anyString(),
         Mockito.any(RelativeInsertPosition.class));
     Mockito.reset(textDocumentController);
   }
 	
 	/**
-   * <p><b>Description:</b> Check if insertXMLFragment is not call when the prolog contains the creator and critdates</p>
+   * <p><b>Description:</b> Check if no fragment is inserted when the prolog contains the creator and critdates</p>
    *
    * @throws Exception
    */
   @Test
-  public void testUpdateWhenContainsContent() throws XPathException, TextOperationException {
-    Mockito.when(wsTextEditorPage.findElementsByXPath(ElementXPathConstants.TOPICMETA_XPATH))
-        .thenReturn(new WSXMLTextNodeRange[1]);
-
-    Mockito.when(wsTextEditorPage.findElementsByXPath(ElementXPathConstants.TOPICMETA_AUTHORS)).
-    thenReturn(new WSXMLTextNodeRange[1]);
-    
-    Mockito.when(wsTextEditorPage.evaluateXPath(ElementXPathConstants.TOPICMETA_AUTHORS_CREATOR))
-    .thenReturn(new WSXMLTextNodeRange[1]);
-
-    Mockito.when(wsTextEditorPage.findElementsByXPath(ElementXPathConstants.TOPICMETA_CRITDATES))
-    .thenReturn(new WSXMLTextNodeRange[1]);
-
-    Mockito.when(wsTextEditorPage.evaluateXPath(ElementXPathConstants.TOPICMETA_CREATED_ELEMENT))
-        .thenReturn(new WSXMLTextNodeRange[1]);
+  public void testUpdateWhenContainsContent() throws TextOperationException, XPathException, BadLocationException {
+    setDocument("<map id=\"r\"><title>Map</title><topicmeta><author type=\"creator\">other</author><critdates><created date=\"2017/01/01\"/></critdates></topicmeta><topicref href=\"a.dita\"/></map>");
 
     ditaTopicTextEditor.updateProlog(true);
 
-    Mockito.verify(textDocumentController, Mockito.times(0)).insertXMLFragment(Mockito.anyString(), Mockito.anyString(),
+    assertEquals(0, insertedFragments);
+    Mockito.verify(textDocumentController, Mockito.never()).insertXMLFragment(Mockito.anyString(), Mockito.anyString(),
         Mockito.any(RelativeInsertPosition.class));
     Mockito.reset(textDocumentController);
   }
@@ -0,0 +1,118 @@
+package com.oxygenxml.prolog.updater;
+
+import java.net.URL;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.PlainDocument;
+
+import org.junit.Test;
+
+import com.oxygenxml.prolog.updater.dita.editor.DitaEditor;
+import com.oxygenxml.prolog.updater.dita.editor.DocumentType;
+import com.oxygenxml.prolog.updater.dita.editor.PrologEditPlan;
+import com.oxygenxml.prolog.updater.dita.editor.PrologMarker;
+
+import junit.framework.TestCase;
+
+/**
+ * Test the memo that skips the prolog update on repeated saves.
+ */
+public class PrologUpdateMemoTest extends TestCase {
+
+  /**
+   * Editor over a plain text document, whose prolog is the range between two offsets.
+   */
+  private static class TextEditor implements DitaEditor {
+    /**
+     * The document.
+     */
+    private final Document document;
+    /**
+     * The start of the prolog.
+     */
+    private final int start;
+    /**
+     * The end of the prolog.
+     */
+    private final int end;
+
+    /**
+     * Constructor.
+     *
+     * @param document The document.
+     * @param start The start of the prolog.
+     * @param end The end of the prolog.
+     */
+    TextEditor(Document document, int start, int end) {
+      this.document = document;
+      this.start = start;
+      this.end = end;
+    }
+
+    public boolean updateProlog(boolean isNewDocument) {
+      return true;
+    }
+
+    public PrologEditPlan createEditPlan(boolean isNewDocument) {
+      return null;
+    }
+
+    public boolean applyEditPlan(PrologEditPlan plan) {
+      return true;
+    }
+
+    public DocumentType getDocumentType() {
+      return DocumentType.TOPIC;
+    }
+
+    public PrologMarker markProlog() {
+      try {
+        return new PrologMarker(document.createPosition(start), document.createPosition(end),
+            document.getText(start, end - start));
+      } catch (BadLocationException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+
+    public boolean isPrologUnchanged(PrologMarker marker) {
+      try {
+        int markedStart = marker.getStart().getOffset();
+        return marker.getContent().equals(document.getText(markedStart, marker.getEnd().getOffset() - markedStart));
+      } catch (BadLocationException e) {
+        return false;
+      }
+    }
+  }
+
+  /**
+   * <p><b>Description:</b> The prolog is up to date until it is changed, or until another fragment
+   * must be inserted. The changes outside the prolog are ignored.</p>
+   */
+  @Test
+  public void testUpToDate() throws Exception {
+    URL location = new URL("file:/topic.dita");
+    Document document = new PlainDocument();
+    document.insertString(0, "<title/><prolog/><body/>", null);
+    TextEditor editor = new TextEditor(document, 8, 17);
+    PrologUpdateMemo memo = new PrologUpdateMemo();
+
+    assertFalse(memo.isUpToDate(location, editor, "<prolog>a</prolog>"));
+    memo.updated(location, editor, "<prolog>a</prolog>");
+    assertTrue(memo.isUpToDate(location, editor, "<prolog>a</prolog>"));
+    // Another author or another day.
+    assertFalse(memo.isUpToDate(location, editor, "<prolog>b</prolog>"));
+
+    // Changes before and after the prolog.
+    document.insertString(0, "<!-- c -->", null);
+    document.insertString(document.getLength() - 2, "text", null);
+    assertTrue(memo.isUpToDate(location, editor, "<prolog>a</prolog>"));
+
+    // Change in prolog.
+    document.insertString(document.getText(0, document.getLength()).indexOf("/>", 20), " ", null);
+    assertFalse(memo.isUpToDate(location, editor, "<prolog>a</prolog>"));
+
+    memo.forget(location);
+    assertEquals(0, memo.size());
+  }
+}
@@ -0,0 +1,42 @@
+package com.oxygenxml.prolog.updater;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.oxygenxml.prolog.updater.prolog.content.PrologOptions;
+import com.oxygenxml.prolog.updater.tags.OptionKeys;
+
+import junit.framework.TestCase;
+
+/**
+ * Test the choice of the update strategy by the size of the document.
+ */
+public class UpdateStrategyTest extends TestCase {
+
+  /**
+   * <p><b>Description:</b> The strategy changes when the size passes the limit from the options.</p>
+   */
+  @Test
+  public void testSelect() {
+    Map<String, String> values = new HashMap<String, String>();
+    values.put(OptionKeys.SCHEMA_AWARE_SIZE_LIMIT, "2");
+    PrologOptions options = new PrologOptions(null, values);
+
+    assertEquals(UpdateStrategy.SCHEMA_AWARE, UpdateStrategy.select(0, options));
+    assertEquals(UpdateStrategy.SCHEMA_AWARE, UpdateStrategy.select(2 * 1024, options));
+    assertEquals(UpdateStrategy.RAW_OFFSETS, UpdateStrategy.select(2 * 1024 + 1, options));
+    assertEquals(UpdateStrategy.RAW_OFFSETS, UpdateStrategy.select(40 * 1024 * 1024, options));
+  }
+
+  /**
+   * <p><b>Description:</b> The usual documents are updated with the schema by default.</p>
+   */
+  @Test
+  public void testDefaultLimits() {
+    PrologOptions options = new PrologOptions(null, new HashMap<String, String>());
+    assertEquals(UpdateStrategy.SCHEMA_AWARE, UpdateStrategy.select(100 * 1024, options));
+    assertEquals(UpdateStrategy.RAW_OFFSETS, UpdateStrategy.select(4 * 1024 * 1024, options));
+  }
+}
@@ -0,0 +1,115 @@
+package com.oxygenxml.prolog.updater.batch;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+/**
+ * Test the collection of the files referenced from DITA maps.
+ */
+public class DitaMapTraversalTest extends TestCase {
+
+  /**
+   * The directory of the test files.
+   */
+  private File directory;
+
+  @Override
+  protected void setUp() throws Exception {
+    directory = Files.createTempDirectory("maps").toFile().getCanonicalFile();
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    delete(directory);
+  }
+
+  /**
+   * Delete a file or a directory.
+   *
+   * @param file The file.
+   */
+  private static void delete(File file) {
+    File[] children = file.listFiles();
+    if (children != null) {
+      for (File child : children) {
+        delete(child);
+      }
+    }
+    file.delete();
+  }
+
+  /**
+   * Write a test file.
+   *
+   * @param path The path, relative to the test directory.
+   * @param content The content.
+   * @return The file.
+   * @throws IOException If the file could not be written.
+   */
+  private File writeFile(String path, String content) throws IOException {
+    File file = new File(directory, path);
+    file.getParentFile().mkdirs();
+    Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    return file;
+  }
+
+  /**
+   * <p><b>Description:</b> The topics and the nested maps are collected once. The external references,
+   * the peer references, the references to other formats and the files that are not referenced are ignored.</p>
+   */
+  @Test
+  public void testCollectFiles() throws Exception {
+    File root = writeFile("root.ditamap", "<?xml version=\"1.0\"?>\n"
+        + "<!DOCTYPE map PUBLIC \"-//OASIS//DTD DITA Map//EN\" \"map.dtd\">\n"
+        + "<map><title>Root</title>"
+        + "<topicref href=\"topics/a.dita\"><topicref href=\"topics/b.dita#b/section\"/></topicref>"
+        + "<topicref href=\"topics/a.dita\"/>"
+        + "<topicref href=\"topics/with%20space.dita\"/>"
+        + "<mapref href=\"sub/sub.ditamap\" format=\"ditamap\"/>"
+        + "<topicref href=\"http://www.example.com/c.dita\" scope=\"external\"/>"
+        + "<topicref href=\"../other/d.dita\" scope=\"peer\"/>"
+        + "<topicref href=\"manual.pdf\" format=\"pdf\"/>"
+        + "<topicref keyref=\"key\"/>"
+        + "</map>");
+    writeFile("sub/sub.ditamap", "<map><topicref href=\"../topics/b.dita\"/><topicref href=\"e.xml\"/>"
+        + "<topicref href=\"book.ditamap\"/></map>");
+    writeFile("sub/book.ditamap", "<bookmap><chapter href=\"chapter.dita\"/>"
+        + "<mapref href=\"../root.ditamap\" format=\"ditamap\"/></bookmap>");
+    writeFile("orphan.dita", "<topic id=\"orphan\"/>");
+
+    BatchResult result = new BatchResult();
+    List<File> files = new DitaMapTraversal(4).collectFiles(Collections.singletonList(root), result);
+
+    List<String> paths = new ArrayList<String>();
+    for (File file : files) {
+      paths.add(directory.toURI().relativize(file.toURI()).getPath());
+    }
+    assertEquals("[root.ditamap, sub/book.ditamap, sub/chapter.dita, sub/e.xml, sub/sub.ditamap, "
+        + "topics/a.dita, topics/b.dita, topics/with space.dita]", paths.toString());
+    assertTrue(result.getFailures().isEmpty());
+  }
+
+  /**
+   * <p><b>Description:</b> A map that can't be parsed is reported and the other maps are traversed.</p>
+   */
+  @Test
+  public void testMalformedMap() throws Exception {
+    File root = writeFile("root.ditamap", "<map><mapref href=\"bad.ditamap\"/><topicref href=\"a.dita\"/></map>");
+    File bad = writeFile("bad.ditamap", "<map><topicref href=\"b.dita\"></map>");
+
+    BatchResult result = new BatchResult();
+    List<File> files = new DitaMapTraversal(2).collectFiles(Collections.singletonList(root), result);
+
+    assertEquals(3, files.size());
+    assertEquals(Collections.singleton(bad), result.getFailures().keySet());
+  }
+}
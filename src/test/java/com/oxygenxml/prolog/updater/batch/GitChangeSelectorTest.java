@@ -0,0 +1,102 @@
+package com.oxygenxml.prolog.updater.batch;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+/**
+ * Test the parsing of the git status.
+ */
+public class GitChangeSelectorTest extends TestCase {
+
+  /**
+   * <p><b>Description:</b> The modified, added, renamed and untracked files are selected, the deleted ones are not.</p>
+   */
+  @Test
+  public void testParseStatus() throws Exception {
+    String status = " M topics/modified.dita\0"
+        + "M  topics/staged.dita\0"
+        + "A  topics/added.dita\0"
+        + "R  topics/new name.dita\0topics/old name.dita\0"
+        + "D  topics/deleted.dita\0"
+        + " D topics/removed.dita\0"
+        + "?? maps/untracked.ditamap\0";
+
+    List<String> paths = GitChangeSelector.parseStatus(status.getBytes(StandardCharsets.UTF_8));
+
+    assertEquals("[topics/modified.dita, topics/staged.dita, topics/added.dita, topics/new name.dita, "
+        + "maps/untracked.ditamap]", paths.toString());
+  }
+
+  /**
+   * <p><b>Description:</b> A clean working tree has no changes.</p>
+   */
+  @Test
+  public void testParseEmptyStatus() throws Exception {
+    assertTrue(GitChangeSelector.parseStatus(new byte[0]).isEmpty());
+  }
+
+  /**
+   * Create an executable script that replaces git.
+   *
+   * @param directory The directory of the script.
+   * @param body The commands of the script.
+   * @return The script.
+   * @throws IOException If the script could not be written.
+   */
+  private static File createGitScript(File directory, String body) throws IOException {
+    File script = new File(directory, "git.sh");
+    FileOutputStream out = new FileOutputStream(script);
+    try {
+      out.write(("#!/bin/sh\n" + body).getBytes(StandardCharsets.UTF_8));
+    } finally {
+      out.close();
+    }
+    script.setExecutable(true);
+    return script;
+  }
+
+  /**
+   * <p><b>Description:</b> The warnings printed by git don't change the selected files and a failure
+   * reports the error output.</p>
+   */
+  @Test
+  public void testErrorOutput() throws Exception {
+    if (File.separatorChar != '/') {
+      // The script needs a Unix shell.
+      return;
+    }
+    File directory = File.createTempFile("git", "");
+    assertTrue(directory.delete());
+    assertTrue(directory.mkdir());
+    try {
+      File topic = new File(directory, "topic.dita");
+      assertTrue(topic.createNewFile());
+      File script = createGitScript(directory,
+          "echo 'warning: CRLF will be replaced by LF' >&2\n"
+          + "if [ \"$1\" = rev-parse ]; then pwd; else printf ' M topic.dita\\0'; fi\n");
+      List<File> files = new GitChangeSelector(script.getAbsolutePath()).getChangedFiles(directory);
+      assertEquals(1, files.size());
+      assertEquals(topic.getCanonicalFile(), files.get(0).getCanonicalFile());
+
+      script = createGitScript(directory, "echo ' M topic.dita'\necho 'fatal: not a git repository' >&2\nexit 128\n");
+      try {
+        new GitChangeSelector(script.getAbsolutePath()).getChangedFiles(directory);
+        fail("The failure of git must be reported.");
+      } catch (IOException e) {
+        assertTrue(e.getMessage(), e.getMessage().endsWith("fatal: not a git repository"));
+      }
+    } finally {
+      for (File file : directory.listFiles()) {
+        file.delete();
+      }
+      directory.delete();
+    }
+  }
+}
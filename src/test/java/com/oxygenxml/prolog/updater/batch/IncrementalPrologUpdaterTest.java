@@ -0,0 +1,186 @@
+package com.oxygenxml.prolog.updater.batch;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.oxygenxml.prolog.updater.tags.OptionKeys;
+
+import junit.framework.TestCase;
+
+/**
+ * Test the skipping of the files that didn't change since the last batch run.
+ */
+public class IncrementalPrologUpdaterTest extends TestCase {
+
+  /**
+   * Counts the updated files.
+   */
+  private static class CountingUpdater implements FilePrologUpdater {
+    /**
+     * The number of calls.
+     */
+    private int count = 0;
+
+    public boolean updateFile(File file) throws IOException {
+      count++;
+      return false;
+    }
+  }
+
+  /**
+   * The directory of the test files.
+   */
+  private File directory;
+
+  /**
+   * The fingerprint of the default run parameters.
+   */
+  private static final long FINGERPRINT = BatchManifest.createFingerprint("author", false, new HashMap<String, String>());
+
+  @Override
+  protected void setUp() throws Exception {
+    directory = Files.createTempDirectory("manifest").toFile();
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    for (File file : directory.listFiles()) {
+      file.delete();
+    }
+    directory.delete();
+  }
+
+  /**
+   * Write a test file.
+   *
+   * @param file The file.
+   * @param content The content.
+   * @throws IOException If the file could not be written.
+   */
+  private static void writeFile(File file, String content) throws IOException {
+    Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * <p><b>Description:</b> The unchanged files are skipped, also when only their modification time changed.
+   * The manifest is kept between runs.</p>
+   */
+  @Test
+  public void testSkipUnchangedFiles() throws Exception {
+    File manifestFile = new File(directory, "manifest.bin");
+    File topic = new File(directory, "topic.dita");
+    writeFile(topic, "<topic id=\"t\"/>");
+    CountingUpdater delegate = new CountingUpdater();
+
+    // First run.
+    BatchManifest manifest = new BatchManifest(manifestFile, FINGERPRINT);
+    new IncrementalPrologUpdater(delegate, manifest).updateFile(topic);
+    assertEquals(1, delegate.count);
+    manifest.save();
+
+    // Second run, nothing changed.
+    manifest = new BatchManifest(manifestFile, FINGERPRINT);
+    assertEquals(1, manifest.getLoadedSize());
+    IncrementalPrologUpdater updater = new IncrementalPrologUpdater(delegate, manifest);
+    assertFalse(updater.updateFile(topic));
+    assertEquals(1, delegate.count);
+
+    // Only the modification time changed.
+    assertTrue(topic.setLastModified(topic.lastModified() - 10000));
+    assertFalse(updater.updateFile(topic));
+    assertEquals(1, delegate.count);
+    assertEquals(topic.lastModified(), manifest.get(topic).getLastModified());
+
+    // The content changed.
+    writeFile(topic, "<topic id=\"x\"/>");
+    updater.updateFile(topic);
+    assertEquals(2, delegate.count);
+  }
+
+  /**
+   * <p><b>Description:</b> The paths that share prefixes are restored when the manifest is loaded.</p>
+   */
+  @Test
+  public void testManifestPaths() throws Exception {
+    File manifestFile = new File(directory, "manifest.bin");
+    BatchManifest manifest = new BatchManifest(manifestFile, FINGERPRINT);
+    String[] names = new String[] {"a.dita", "ab.dita", "abc.ditamap", "b.dita"};
+    for (int i = 0; i < names.length; i++) {
+      manifest.put(new File(directory, names[i]), new BatchManifest.Entry(i, i * 2, i * 3));
+    }
+    manifest.save();
+
+    manifest = new BatchManifest(manifestFile, FINGERPRINT);
+    assertEquals(names.length, manifest.getLoadedSize());
+    for (int i = 0; i < names.length; i++) {
+      BatchManifest.Entry entry = manifest.get(new File(directory, names[i]));
+      assertEquals(i, entry.getSize());
+      assertEquals(i * 2, entry.getLastModified());
+      assertEquals(i * 3, entry.getHash());
+    }
+  }
+
+  /**
+   * <p><b>Description:</b> The files are updated again when the author, the new document flag or the options
+   * are not the ones of the run that wrote the manifest.</p>
+   */
+  @Test
+  public void testOtherParameters() throws Exception {
+    File manifestFile = new File(directory, "manifest.bin");
+    File topic = new File(directory, "topic.dita");
+    writeFile(topic, "<topic id=\"t\"/>");
+    BatchManifest manifest = new BatchManifest(manifestFile, FINGERPRINT);
+    new IncrementalPrologUpdater(new CountingUpdater(), manifest).updateFile(topic);
+    manifest.save();
+
+    Map<String, String> options = new HashMap<String, String>();
+    options.put(OptionKeys.TOPIC_SET_CREATOR, "false");
+    long[] fingerprints = new long[] {
+        BatchManifest.createFingerprint("alice", false, new HashMap<String, String>()),
+        BatchManifest.createFingerprint("author", true, new HashMap<String, String>()),
+        BatchManifest.createFingerprint("author", false, options)};
+    for (long fingerprint : fingerprints) {
+      assertTrue(fingerprint != FINGERPRINT);
+      CountingUpdater delegate = new CountingUpdater();
+      new IncrementalPrologUpdater(delegate, new BatchManifest(manifestFile, fingerprint)).updateFile(topic);
+      assertEquals(1, delegate.count);
+    }
+  }
+
+  /**
+   * <p><b>Description:</b> The files that were not processed by a run, like the deleted ones, are dropped
+   * from the manifest.</p>
+   */
+  @Test
+  public void testDeletedFiles() throws Exception {
+    File manifestFile = new File(directory, "manifest.bin");
+    File first = new File(directory, "first.dita");
+    File second = new File(directory, "second.dita");
+    writeFile(first, "<topic id=\"a\"/>");
+    writeFile(second, "<topic id=\"b\"/>");
+    BatchManifest manifest = new BatchManifest(manifestFile, FINGERPRINT);
+    IncrementalPrologUpdater updater = new IncrementalPrologUpdater(new CountingUpdater(), manifest);
+    updater.updateFile(first);
+    updater.updateFile(second);
+    manifest.save();
+
+    // The second file is deleted, the first one is skipped.
+    assertTrue(second.delete());
+    manifest = new BatchManifest(manifestFile, FINGERPRINT);
+    CountingUpdater delegate = new CountingUpdater();
+    new IncrementalPrologUpdater(delegate, manifest).updateFile(first);
+    assertEquals(0, delegate.count);
+    manifest.save();
+
+    manifest = new BatchManifest(manifestFile, FINGERPRINT);
+    assertEquals(1, manifest.getLoadedSize());
+    assertNotNull(manifest.get(first));
+    assertNull(manifest.get(second));
+  }
+}
@@ -0,0 +1,30 @@
+package com.oxygenxml.prolog.updater.batch;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+/**
+ * Test the validation of the command line arguments.
+ */
+public class PrologUpdaterCliTest extends TestCase {
+
+  /**
+   * <p><b>Description:</b> An invalid or missing number of threads prints the usage.</p>
+   */
+  @Test
+  public void testInvalidThreads() throws Exception {
+    String[][] invalid = new String[][] {
+        {"-threads", "many", "."},
+        {"-threads", "0", "."},
+        {".", "-threads"}};
+    for (String[] args : invalid) {
+      ByteArrayOutputStream err = new ByteArrayOutputStream();
+      assertEquals(2, PrologUpdaterCli.run(args, new PrintStream(new ByteArrayOutputStream()), new PrintStream(err)));
+      assertTrue(err.toString().startsWith("Usage:"));
+    }
+  }
+}
@@ -0,0 +1,320 @@
+package com.oxygenxml.prolog.updater.batch;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.HashMap;
+
+import org.junit.Test;
+
+import com.oxygenxml.prolog.updater.prolog.content.PrologContentCreator;
+
+import junit.framework.TestCase;
+
+/**
+ * Test the update of the DITA files by splicing the fragments into the original bytes.
+ */
+public class SplicePrologUpdaterTest extends TestCase {
+
+  /**
+   * The author name added in inserted content.
+   */
+  private static final String AUTHOR_NAME = "name";
+
+  /**
+   * The local date added to inserted content.
+   */
+  private static final String LOCAL_DATE = "2017-12-04";
+
+  /**
+   * The document type declaration of topics.
+   */
+  private static final String DOCTYPE = "<!DOCTYPE topic PUBLIC \"-//OASIS//DTD DITA Topic//EN\" \"topic.dtd\" [\n"
+      + "  <!ENTITY product \"<ph>Product</ph>\">\n"
+      + "]>\n";
+
+  /**
+   * The updated file.
+   */
+  private File file;
+
+  @Override
+  protected void setUp() throws Exception {
+    file = File.createTempFile("topic", ".dita");
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    file.delete();
+  }
+
+  /**
+   * Create an updater that uses a fixed date.
+   *
+   * @param isNewDocument <code>true</code> to update the files as new documents.
+   * @return The updater.
+   */
+  private static SplicePrologUpdater createUpdater(boolean isNewDocument) {
+    PrologContentCreator prologCreator = new PrologContentCreator(AUTHOR_NAME, new HashMap<String, String>()) {
+      @Override
+      protected String createLocalDate() {
+        return LOCAL_DATE;
+      }
+    };
+    return new SplicePrologUpdater(prologCreator, isNewDocument);
+  }
+
+  /**
+   * Write the content of the test file.
+   *
+   * @param content The content.
+   * @param encoding The encoding.
+   * @throws IOException If the file could not be written.
+   */
+  private void writeFile(String content, String encoding) throws IOException {
+    Files.write(file.toPath(), content.getBytes(Charset.forName(encoding)));
+  }
+
+  /**
+   * @param encoding The encoding.
+   * @return The content of the test file.
+   * @throws IOException If the file could not be read.
+   */
+  private String readFile(String encoding) throws IOException {
+    return new String(Files.readAllBytes(file.toPath()), Charset.forName(encoding));
+  }
+
+  /**
+   * <p><b>Description:</b> The prolog is inserted and the rest of the document is not changed.</p>
+   */
+  @Test
+  public void testTopicWithoutProlog() throws Exception {
+    String header = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" + DOCTYPE
+        + "<topic id=\"t\">\n  <title>Title &product;</title>";
+    String rest = "\n  <body>\n    <p>a &amp; b <![CDATA[<c>]]></p>\n    <p/>\n  </body>\n</topic>\n";
+    writeFile(header + rest, "UTF-8");
+
+    assertTrue(createUpdater(false).updateFile(file));
+
+    assertEquals(header + "<prolog><author type=\"contributor\">name</author>"
+        + "<critdates><!--name--><revised modified=\"2017-12-04\"/></critdates></prolog>" + rest, readFile("UTF-8"));
+  }
+
+  /**
+   * <p><b>Description:</b> The creator and the created date are added to an existing prolog of a new document.</p>
+   */
+  @Test
+  public void testNewTopicWithProlog() throws Exception {
+    writeFile("<topic id=\"t\"><title>T</title><prolog>\n  <author type=\"contributor\">other</author>\n"
+        + "  <critdates>\n    <revised modified=\"2017-01-01\"/>\n  </critdates>\n</prolog><body/></topic>", "UTF-8");
+
+    assertTrue(createUpdater(true).updateFile(file));
+
+    assertEquals("<topic id=\"t\"><title>T</title><prolog><author type=\"creator\">name</author>\n"
+        + "  <author type=\"contributor\">other</author>\n"
+        + "  <critdates><created date=\"2017-12-04\"/>\n    <revised modified=\"2017-01-01\"/>\n  </critdates>\n"
+        + "</prolog><body/></topic>", readFile("UTF-8"));
+  }
+
+  /**
+   * <p><b>Description:</b> The revised element is added after the existing ones, and the file is not changed
+   * at the second update.</p>
+   */
+  @Test
+  public void testRevisedIsAddedOnce() throws Exception {
+    writeFile("<topic id=\"t\"><title>T</title><prolog><author type=\"contributor\">name</author><critdates>"
+        + "<!--other--><revised modified='2017-12-04'/><!-- note --></critdates></prolog></topic>", "UTF-8");
+
+    assertTrue(createUpdater(false).updateFile(file));
+    String expected = "<topic id=\"t\"><title>T</title><prolog><author type=\"contributor\">name</author><critdates>"
+        + "<!--other--><revised modified='2017-12-04'/><!--name--><revised modified=\"2017-12-04\"/>"
+        + "<!-- note --></critdates></prolog></topic>";
+    assertEquals(expected, readFile("UTF-8"));
+
+    assertFalse(createUpdater(false).updateFile(file));
+    assertEquals(expected, readFile("UTF-8"));
+  }
+
+  /**
+   * <p><b>Description:</b> The encoding from the XML declaration is used to read the author names
+   * and to write the fragments.</p>
+   */
+  @Test
+  public void testLatin1() throws Exception {
+    PrologContentCreator prologCreator = new PrologContentCreator("J\u00F6rg", new HashMap<String, String>()) {
+      @Override
+      protected String createLocalDate() {
+        return LOCAL_DATE;
+      }
+    };
+    String content = "<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?>\n<topic id=\"t\"><title>\u00E9</title>"
+        + "<prolog><author type=\"contributor\">J&#246;rg</author><critdates/></prolog></topic>";
+    writeFile(content, "ISO-8859-1");
+
+    assertTrue(new SplicePrologUpdater(prologCreator, false).updateFile(file));
+
+    assertEquals(content.replace("<critdates/>", "<critdates><!--J\u00F6rg--><revised modified=\"2017-12-04\"/></critdates>"),
+        readFile("ISO-8859-1"));
+  }
+
+  /**
+   * <p><b>Description:</b> The characters of the fragments that can't be encoded are written as character references.</p>
+   */
+  @Test
+  public void testUnencodableAuthor() throws Exception {
+    PrologContentCreator prologCreator = new PrologContentCreator("\u5C71\u7530", new HashMap<String, String>()) {
+      @Override
+      protected String createLocalDate() {
+        return LOCAL_DATE;
+      }
+    };
+    String header = "<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?>\n<topic id=\"t\"><title>\u00E9</title>";
+    writeFile(header + "<body/></topic>", "ISO-8859-1");
+
+    assertTrue(new SplicePrologUpdater(prologCreator, false).updateFile(file));
+
+    assertEquals(header + "<prolog><author type=\"contributor\">&#x5C71;&#x7530;</author>"
+        + "<critdates><!--&#x5C71;&#x7530;--><revised modified=\"2017-12-04\"/></critdates></prolog><body/></topic>",
+        readFile("ISO-8859-1"));
+  }
+
+  /**
+   * <p><b>Description:</b> The empty-element tags of the prolog and of the root are opened and the rest of the document
+   * is not changed: the XML declaration, the other empty elements, the character references and the final new line.</p>
+   */
+  @Test
+  public void testEmptyContainers() throws Exception {
+    String header = "<?xml version='1.0' encoding='UTF-8' standalone='no'?>\n<task id=\"t\"><title>A&#xA0;B</title>";
+    String rest = "<taskbody/></task>\n";
+    writeFile(header + "<prolog />" + rest, "UTF-8");
+
+    assertTrue(createUpdater(false).updateFile(file));
+
+    assertEquals(header + "<prolog ><author type=\"contributor\">name</author>"
+        + "<critdates><!--name--><revised modified=\"2017-12-04\"/></critdates></prolog>" + rest, readFile("UTF-8"));
+
+    writeFile("<topic id=\"t\"/>\n", "UTF-8");
+
+    assertTrue(createUpdater(false).updateFile(file));
+
+    assertEquals("<topic id=\"t\"><prolog><author type=\"contributor\">name</author>"
+        + "<critdates><!--name--><revised modified=\"2017-12-04\"/></critdates></prolog></topic>\n", readFile("UTF-8"));
+  }
+
+  /**
+   * <p><b>Description:</b> The header is found when it's bigger than the first read buffer,
+   * and the byte order mark is kept.</p>
+   */
+  @Test
+  public void testBigHeaderWithBOM() throws Exception {
+    StringBuilder shortdesc = new StringBuilder();
+    for (int i = 0; i < 2000; i++) {
+      shortdesc.append("text ");
+    }
+    String header = "\uFEFF<topic id=\"t\"><title>T</title><shortdesc>" + shortdesc + "</shortdesc>";
+    writeFile(header + "<body/></topic>", "UTF-8");
+
+    assertTrue(createUpdater(false).updateFile(file));
+
+    assertEquals(header + "<prolog><author type=\"contributor\">name</author>"
+        + "<critdates><!--name--><revised modified=\"2017-12-04\"/></critdates></prolog><body/></topic>",
+        readFile("UTF-8"));
+  }
+
+  /**
+   * <p><b>Description:</b> The prolog of a big file is updated, the rest of the file is copied
+   * and the file is replaced.</p>
+   */
+  @Test
+  public void testBigFile() throws Exception {
+    StringBuilder body = new StringBuilder("<body>");
+    for (int i = 0; i < 100000; i++) {
+      body.append("<p>Paragraph ").append(i).append("</p>\n");
+    }
+    body.append("</body></topic>");
+    writeFile("<topic id=\"t\"><title>T</title><prolog></prolog>" + body, "UTF-8");
+
+    assertTrue(createUpdater(false).updateFile(file));
+
+    assertEquals("<topic id=\"t\"><title>T</title><prolog><author type=\"contributor\">name</author>"
+        + "<critdates><!--name--><revised modified=\"2017-12-04\"/></critdates></prolog>" + body, readFile("UTF-8"));
+  }
+
+  /**
+   * <p><b>Description:</b> The prolog of a glossary entry is placed after the glossterm and glossdef elements.</p>
+   */
+  @Test
+  public void testGlossentry() throws Exception {
+    String header = "<glossentry id=\"g\"><glossterm>Term</glossterm><glossdef>Definition</glossdef>";
+    writeFile(header + "<glossBody/></glossentry>", "UTF-8");
+
+    assertTrue(createUpdater(false).updateFile(file));
+
+    assertEquals(header + "<prolog><author type=\"contributor\">name</author>"
+        + "<critdates><!--name--><revised modified=\"2017-12-04\"/></critdates></prolog><glossBody/></glossentry>",
+        readFile("UTF-8"));
+  }
+
+  /**
+   * <p><b>Description:</b> A subject scheme map gets a topicmeta element, after its title.</p>
+   */
+  @Test
+  public void testSubjectScheme() throws Exception {
+    String header = "<subjectScheme><title>Scheme</title>";
+    writeFile(header + "<subjectdef keys=\"os\"/></subjectScheme>", "UTF-8");
+
+    assertTrue(createUpdater(false).updateFile(file));
+
+    assertEquals(header + "<topicmeta><author type=\"contributor\">name</author>"
+        + "<critdates><!--name--><revised modified=\"2017-12-04\"/></critdates></topicmeta>"
+        + "<subjectdef keys=\"os\"/></subjectScheme>", readFile("UTF-8"));
+  }
+
+  /**
+   * <p><b>Description:</b> Documents that are not DITA topics or maps are not changed.</p>
+   */
+  @Test
+  public void testNotDita() throws Exception {
+    String[] contents = new String[] {
+        "<?xml version=\"1.0\"?>\n<dita><topic id=\"t\"><title>Title</title></topic></dita>",
+        "<html><head><title>Title</title></head><body/></html>",
+        // An unknown root without a class attribute.
+        "<myTopic id=\"t\"><title>Title</title><myBody/></myTopic>"};
+    for (String content : contents) {
+      writeFile(content, "UTF-8");
+
+      assertFalse(content, createUpdater(false).updateFile(file));
+      assertEquals(content, readFile("UTF-8"));
+    }
+  }
+
+  /**
+   * <p><b>Description:</b> A specialized root is recognized by its class attribute.</p>
+   */
+  @Test
+  public void testSpecializedTopic() throws Exception {
+    String header = "<myTopic id=\"t\" class=\"- topic/topic myTopic/myTopic \">"
+        + "<myTitle class=\"- topic/title myTopic/myTitle \">T</myTitle>";
+    writeFile(header + "<myBody class=\"- topic/body myTopic/myBody \"/></myTopic>", "UTF-8");
+
+    assertTrue(createUpdater(false).updateFile(file));
+
+    String updated = readFile("UTF-8");
+    assertTrue(updated, updated.startsWith(header + "<prolog>"));
+  }
+
+  /**
+   * <p><b>Description:</b> A truncated document is reported.</p>
+   */
+  @Test
+  public void testTruncatedDocument() throws Exception {
+    writeFile("<topic id=\"t\"><title>Title</tit", "UTF-8");
+    try {
+      createUpdater(false).updateFile(file);
+      fail("The document is not well-formed.");
+    } catch (IOException e) {
+      // Expected.
+    }
+  }
+}
@@ -0,0 +1,163 @@
+package com.oxygenxml.prolog.updater.batch;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+
+import org.junit.Test;
+
+import com.oxygenxml.prolog.updater.prolog.content.PrologContentCreator;
+
+import junit.framework.TestCase;
+
+/**
+ * Test the update of the DITA files from disk, without the Oxygen workspace.
+ */
+public class StaxPrologUpdaterTest extends TestCase {
+
+  /**
+   * The author name added in inserted content.
+   */
+  private static final String AUTHOR_NAME = "name";
+
+  /**
+   * The local date added to inserted content.
+   */
+  private static final String LOCAL_DATE = "2017-12-04";
+
+  /**
+   * The updated file.
+   */
+  private File file;
+
+  @Override
+  protected void setUp() throws Exception {
+    file = File.createTempFile("topic", ".dita");
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    file.delete();
+  }
+
+  /**
+   * Create an updater that uses a fixed date.
+   *
+   * @param isNewDocument <code>true</code> to update the files as new documents.
+   * @return The updater.
+   */
+  private static StaxPrologUpdater createUpdater(boolean isNewDocument) {
+    PrologContentCreator prologCreator = new PrologContentCreator(AUTHOR_NAME, new HashMap<String, String>()) {
+      @Override
+      protected String createLocalDate() {
+        return LOCAL_DATE;
+      }
+    };
+    return new StaxPrologUpdater(prologCreator, isNewDocument);
+  }
+
+  /**
+   * Write the content of the test file.
+   *
+   * @param content The content.
+   * @throws IOException If the file could not be written.
+   */
+  private void writeFile(String content) throws IOException {
+    Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * @return The content of the test file.
+   * @throws IOException If the file could not be read.
+   */
+  private String readFile() throws IOException {
+    return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+  }
+
+  /**
+   * <p><b>Description:</b> The prolog is inserted after the title when the topic doesn't have one.</p>
+   */
+  @Test
+  public void testTopicWithoutProlog() throws Exception {
+    writeFile("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+        + "<topic id=\"t\"><title>Title</title><body><p>text</p></body></topic>");
+
+    assertTrue(createUpdater(false).updateFile(file));
+
+    String content = readFile();
+    assertTrue(content, content.contains("<title>Title</title><prolog><author type=\"contributor\">name</author>"
+        + "<critdates><!--name--><revised modified=\"2017-12-04\"></revised></critdates></prolog><body>"));
+    assertTrue(content, content.contains("<p>text</p></body></topic>"));
+  }
+
+  /**
+   * <p><b>Description:</b> The contributor and the revised date are added to an existing prolog.</p>
+   */
+  @Test
+  public void testTopicWithProlog() throws Exception {
+    writeFile("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+        + "<topic id=\"t\"><title>Title</title><prolog><author type=\"creator\">other</author>"
+        + "<critdates><created date=\"2017-01-01\"></created></critdates></prolog><body></body></topic>");
+
+    assertTrue(createUpdater(false).updateFile(file));
+
+    String content = readFile();
+    assertTrue(content, content.contains("<prolog><author type=\"creator\">other</author>"
+        + "<author type=\"contributor\">name</author><critdates><created date=\"2017-01-01\"></created>"
+        + "<!--name--><revised modified=\"2017-12-04\"></revised></critdates></prolog>"));
+  }
+
+  /**
+   * <p><b>Description:</b> A file that already contains the contributor and the revised date is not rewritten.</p>
+   */
+  @Test
+  public void testUpToDateTopic() throws Exception {
+    String original = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+        + "<topic id=\"t\"><title>Title</title><prolog><author type=\"contributor\">name</author>"
+        + "<critdates><!--name--><revised modified=\"2017-12-04\"/></critdates></prolog><body/></topic>";
+    writeFile(original);
+
+    assertFalse(createUpdater(false).updateFile(file));
+    assertEquals(original, readFile());
+    String html = "<html><head><title>Title</title></head><body/></html>";
+    writeFile(html);
+
+    assertFalse(createUpdater(false).updateFile(file));
+    assertEquals(html, readFile());
+  }
+
+  /**
+   * <p><b>Description:</b> The creator and the created date are set for new documents.</p>
+   */
+  @Test
+  public void testNewMap() throws Exception {
+    writeFile("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+        + "<map><title>Map</title><topicref href=\"a.dita\"/></map>");
+
+    assertTrue(createUpdater(true).updateFile(file));
+
+    String content = readFile();
+    assertTrue(content, content.contains("<title>Map</title><topicmeta><author type=\"creator\">name</author>"
+        + "<critdates><created date=\"2017-12-04\"></created></critdates></topicmeta><topicref"));
+  }
+
+  /**
+   * <p><b>Description:</b> Documents that are not DITA topics or maps are not changed.</p>
+   */
+  @Test
+  public void testNotDita() throws Exception {
+    String original = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+        + "<dita><topic id=\"t\"><title>Title</title></topic></dita>";
+    writeFile(original);
+
+    assertFalse(createUpdater(false).updateFile(file));
+    assertEquals(original, readFile());
+    String html = "<html><head><title>Title</title></head><body/></html>";
+    writeFile(html);
+
+    assertFalse(createUpdater(false).updateFile(file));
+    assertEquals(html, readFile());
+  }
+}
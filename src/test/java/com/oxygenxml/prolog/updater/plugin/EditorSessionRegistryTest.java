@@ -0,0 +1,54 @@
+package com.oxygenxml.prolog.updater.plugin;
+
+import java.io.File;
+
+import javax.swing.text.Document;
+import javax.swing.text.PlainDocument;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.oxygenxml.prolog.updater.utils.ElementXPathConstants;
+
+import junit.framework.TestCase;
+import ro.sync.exml.workspace.api.PluginWorkspace;
+import ro.sync.exml.workspace.api.editor.WSEditor;
+import ro.sync.exml.workspace.api.editor.page.text.xml.WSXMLTextEditorPage;
+import ro.sync.exml.workspace.api.editor.page.text.xml.WSXMLTextNodeRange;
+import ro.sync.exml.workspace.api.listeners.WSEditorListener;
+
+/**
+ * Test the DITA document check of the registered editors.
+ */
+public class EditorSessionRegistryTest extends TestCase {
+
+  /**
+   * <p><b>Description:</b> A document that is not DITA is not checked again until the start tag of its root is changed.</p>
+   */
+  @Test
+  public void testNotDitaDocument() throws Exception {
+    String widget = "<?xml version=\"1.0\"?>\n<!DOCTYPE widget SYSTEM \"widget.dtd\">\n<widget id=\"w\"><part/></widget>";
+    Document document = new PlainDocument();
+    document.insertString(0, widget, null);
+    WSXMLTextEditorPage page = Mockito.mock(WSXMLTextEditorPage.class);
+    Mockito.when(page.getDocument()).thenReturn(document);
+    WSEditor editor = Mockito.mock(WSEditor.class);
+    Mockito.when(editor.getEditorLocation()).thenReturn(new File("widget.xml").toURI().toURL());
+    Mockito.when(editor.getCurrentPage()).thenReturn(page);
+
+    EditorSessionRegistry registry = new EditorSessionRegistry();
+    registry.register(PluginWorkspace.MAIN_EDITING_AREA, editor.getEditorLocation(), editor, new WSEditorListener());
+
+    Mockito.when(page.findElementsByXPath(ElementXPathConstants.ROOT_DITA_XPATH)).thenReturn(new WSXMLTextNodeRange[0]);
+    assertFalse(registry.isDitaDocument(editor));
+
+    // The XPath is not evaluated again while only the content of the root is changed.
+    Mockito.when(page.findElementsByXPath(ElementXPathConstants.ROOT_DITA_XPATH)).thenReturn(new WSXMLTextNodeRange[1]);
+    document.insertString(widget.indexOf("<part"), "<part/>", null);
+    assertFalse(registry.isDitaDocument(editor));
+
+    // Change the grammar.
+    document.insertString(widget.indexOf("widget.dtd"), "dita/", null);
+    assertTrue(registry.isDitaDocument(editor));
+  }
+}
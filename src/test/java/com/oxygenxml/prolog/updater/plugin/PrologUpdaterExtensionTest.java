@@ -2,6 +2,8 @@ package com.oxygenxml.prolog.updater.plugin;
 
 import java.io.File;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.junit.Test;
 import org.mockito.Mockito;
@@ -19,8 +21,8 @@ import ro.sync.exml.workspace.api.standalone.StandalonePluginWorkspace;
 public class PrologUpdaterExtensionTest extends TestCase {
 
 	/**
-	 * We are testing that a listener is installed on the editor and it receives
-	 * save callbacks.
+	 * We are testing that a listener is installed on the editor and it updates
+	 * the prolog before the save, without saving the document again.
 	 */
 	@Test
 	public void testInstallingListener() throws Exception {
@@ -84,11 +86,58 @@ public class PrologUpdaterExtensionTest extends TestCase {
 		workspaceListeners[0].editorOpened(new File("test/dummy.xml").toURI().toURL());
 		assertNotNull(editorListeners[0]);
 
+		// The prolog is updated before the save and the document is saved only once.
 		assertFalse(doUpdateProlog[0]);
-		editorListeners[0].editorAboutToBeSavedVeto(0);
-		editorListeners[0].editorSaved(0);
+		assertTrue(editorListeners[0].editorAboutToBeSavedVeto(0));
 		assertTrue(doUpdateProlog[0]);
+		editorListeners[0].editorSaved(0);
+		Mockito.verify(editorAccess, Mockito.never()).save();
 		
 	}
 
+
+	/**
+	 * <p><b>Description:</b> The listener of an editor is removed when the editor is closed.</p>
+	 */
+	@Test
+	public void testRemovingListener() throws Exception {
+		final DitaUpdater ditaUpdater = Mockito.mock(DitaUpdater.class);
+		PrologUpdaterExtension extension = new PrologUpdaterExtension(){
+			@Override
+			protected DitaUpdater createDitaUpdater() {
+				return ditaUpdater;
+			}
+		};
+
+		final WSEditor editorAccess = Mockito.mock(WSEditor.class);
+		final List<WSEditorChangeListener> workspaceListeners = new ArrayList<WSEditorChangeListener>();
+		StandalonePluginWorkspace workspace = Mockito.mock(StandalonePluginWorkspace.class);
+		Mockito.doAnswer(new Answer<Object>() {
+			public Object answer(InvocationOnMock invocation) {
+				workspaceListeners.add((WSEditorChangeListener) invocation.getArguments()[0]);
+				return null;
+			}
+		}).when(workspace).addEditorChangeListener((WSEditorChangeListener) Mockito.anyObject(), Mockito.anyInt());
+		Mockito.when(workspace.getEditorAccess((URL) Mockito.anyObject(), Mockito.anyInt())).thenReturn(editorAccess);
+
+		extension.applicationStarted(workspace);
+		assertEquals(2, workspaceListeners.size());
+
+		// Open the same document in both editing areas.
+		URL location = new File("test/dummy.xml").toURI().toURL();
+		workspaceListeners.get(0).editorOpened(location);
+		workspaceListeners.get(1).editorOpened(location);
+		assertEquals(2, extension.getSessionRegistry().size());
+		Mockito.verify(editorAccess, Mockito.times(2)).addEditorListener((WSEditorListener) Mockito.anyObject());
+
+		// Close the document from the main editing area.
+		workspaceListeners.get(0).editorClosed(location);
+		assertEquals(1, extension.getSessionRegistry().size());
+		Mockito.verify(editorAccess, Mockito.times(1)).removeEditorListener((WSEditorListener) Mockito.anyObject());
+		Mockito.verify(ditaUpdater).editorClosed(location);
+
+		workspaceListeners.get(1).editorClosed(location);
+		assertEquals(0, extension.getSessionRegistry().size());
+	}
+
 }
@@ -0,0 +1,55 @@
+package com.oxygenxml.prolog.updater.prolog.content;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashMap;
+
+import org.junit.Test;
+
+import com.oxygenxml.prolog.updater.dita.editor.DocumentType;
+import com.oxygenxml.prolog.updater.utils.XMLFragmentUtils;
+
+import junit.framework.TestCase;
+
+/**
+ * Test the reuse of the content creators and of their fragments.
+ */
+public class PrologFragmentCacheTest extends TestCase {
+
+  @Override
+  protected void tearDown() throws Exception {
+    PrologFragmentCache.clear();
+  }
+
+  /**
+   * <p><b>Description:</b> The local date is today's date.</p>
+   */
+  @Test
+  public void testLocalDate() {
+    String expected = new SimpleDateFormat(XMLFragmentUtils.DATE_PATTERN).format(new Date());
+    String actual = PrologFragmentCache.getLocalDate();
+    // Around midnight the date could change between the two calls.
+    if (expected.equals(new SimpleDateFormat(XMLFragmentUtils.DATE_PATTERN).format(new Date()))) {
+      assertEquals(expected, actual);
+    }
+  }
+
+  /**
+   * <p><b>Description:</b> A content creator is reused for the same author and options, with the same fragments.</p>
+   */
+  @Test
+  public void testReuse() {
+    PrologOptions options = new PrologOptions(null, new HashMap<String, String>());
+    PrologContentCreator creator = PrologFragmentCache.getContentCreator("name", options);
+    assertSame(creator, PrologFragmentCache.getContentCreator("name", options));
+    assertSame(creator.getPrologFragment(false, DocumentType.TOPIC), creator.getPrologFragment(false, DocumentType.TOPIC));
+    assertTrue(creator.getPrologFragment(true, DocumentType.MAP).startsWith("<topicmeta><author type=\"creator\">name</author>"));
+
+    // Other author.
+    assertNotSame(creator, PrologFragmentCache.getContentCreator("other", options));
+    // Other options.
+    PrologContentCreator changed = PrologFragmentCache.getContentCreator("name", new PrologOptions(null, new HashMap<String, String>()));
+    assertNotSame(creator, changed);
+    assertEquals(creator.getPrologFragment(false, DocumentType.TOPIC), changed.getPrologFragment(false, DocumentType.TOPIC));
+  }
+}
@@ -0,0 +1,74 @@
+package com.oxygenxml.prolog.updater.prolog.content;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.oxygenxml.prolog.updater.tags.OptionKeys;
+
+import junit.framework.TestCase;
+
+/**
+ * Test the snapshot of the plugin options.
+ */
+public class PrologOptionsTest extends TestCase {
+
+  @Override
+  protected void tearDown() throws Exception {
+    WorkspacePrologOptions.invalidate();
+  }
+
+  /**
+   * <p><b>Description:</b> Only the options set to false are not selected.</p>
+   */
+  @Test
+  public void testSelectedOptions() {
+    Map<String, String> options = new HashMap<String, String>();
+    options.put(OptionKeys.TOPIC_SET_CREATOR, Boolean.FALSE.toString());
+    options.put(OptionKeys.MAP_SET_CREATOR, Boolean.TRUE.toString());
+    PrologOptions prologOptions = new PrologOptions("name", options);
+
+    assertEquals("name", prologOptions.getAuthorName());
+    assertFalse(prologOptions.isSelected(OptionKeys.TOPIC_SET_CREATOR));
+    assertTrue(prologOptions.isSelected(OptionKeys.MAP_SET_CREATOR));
+    assertTrue(prologOptions.isSelected(OptionKeys.TOPIC_UPDATE_REVISED_DATES));
+
+    // The snapshot doesn't see the later changes of the map.
+    options.put(OptionKeys.MAP_SET_CREATOR, Boolean.FALSE.toString());
+    assertTrue(prologOptions.isSelected(OptionKeys.MAP_SET_CREATOR));
+  }
+
+  /**
+   * <p><b>Description:</b> The size limits that are missing or invalid have the default values.</p>
+   */
+  @Test
+  public void testSizeLimits() {
+    Map<String, String> options = new HashMap<String, String>();
+    options.put(OptionKeys.SCHEMA_AWARE_SIZE_LIMIT, "512");
+    assertEquals(512, new PrologOptions(null, options).getSchemaAwareSizeLimit());
+
+    options.put(OptionKeys.SCHEMA_AWARE_SIZE_LIMIT, "-1");
+    assertEquals(PrologOptions.DEFAULT_SCHEMA_AWARE_SIZE_LIMIT,
+        new PrologOptions(null, options).getSchemaAwareSizeLimit());
+
+    options.put(OptionKeys.SCHEMA_AWARE_SIZE_LIMIT, "large");
+    assertEquals(PrologOptions.DEFAULT_SCHEMA_AWARE_SIZE_LIMIT,
+        new PrologOptions(null, options).getSchemaAwareSizeLimit());
+  }
+
+  /**
+   * <p><b>Description:</b> The current snapshot is reused until it's invalidated.</p>
+   */
+  @Test
+  public void testCurrentSnapshot() {
+    PrologOptions current = WorkspacePrologOptions.getCurrent();
+    assertSame(current, WorkspacePrologOptions.getCurrent());
+    // Without a workspace all the options are selected.
+    assertNull(current.getAuthorName());
+    assertTrue(current.isSelected(OptionKeys.TOPIC_ENABLE_UPDATE_ON_SAVE));
+
+    WorkspacePrologOptions.invalidate();
+    assertNotSame(current, WorkspacePrologOptions.getCurrent());
+  }
+}
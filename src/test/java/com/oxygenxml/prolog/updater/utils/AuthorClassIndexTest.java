@@ -0,0 +1,61 @@
+package com.oxygenxml.prolog.updater.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import junit.framework.TestCase;
+import ro.sync.ecss.extensions.api.node.AttrValue;
+import ro.sync.ecss.extensions.api.node.AuthorElement;
+import ro.sync.ecss.extensions.api.node.AuthorNode;
+
+/**
+ * Test the lookup of the author elements by class.
+ */
+public class AuthorClassIndexTest extends TestCase {
+
+  /**
+   * Create an element.
+   *
+   * @param classValue The value of the class attribute.
+   * @param parent The parent node or <code>null</code>.
+   * @param children The children of the element.
+   * @return The element.
+   */
+  private static AuthorElement createElement(String classValue, AuthorNode parent, List<AuthorNode> children) {
+    AuthorElement element = Mockito.mock(AuthorElement.class);
+    Mockito.when(element.getType()).thenReturn(AuthorNode.NODE_TYPE_ELEMENT);
+    Mockito.when(element.getAttribute(XmlElementsConstants.CLASS)).thenReturn(new AttrValue(classValue));
+    Mockito.when(element.getParent()).thenReturn(parent);
+    Mockito.when(element.getContentNodes()).thenReturn(children);
+    return element;
+  }
+
+  /**
+   * <p><b>Description:</b> The children are found by their class tokens and the forgotten nodes are indexed again.</p>
+   */
+  @Test
+  public void testLookup() {
+    List<AuthorNode> rootChildren = new ArrayList<AuthorNode>();
+    AuthorElement root = createElement("- topic/topic ", null, rootChildren);
+    List<AuthorNode> prologChildren = new ArrayList<AuthorNode>();
+    AuthorElement prolog = createElement("- topic/prolog ", root, prologChildren);
+    rootChildren.add(createElement("- topic/title ", root, new ArrayList<AuthorNode>()));
+    rootChildren.add(prolog);
+    prologChildren.add(createElement("- topic/author ", prolog, new ArrayList<AuthorNode>()));
+    prologChildren.add(createElement("- topic/author ", prolog, new ArrayList<AuthorNode>()));
+
+    AuthorClassIndex index = new AuthorClassIndex();
+    assertSame(prolog, index.getElement(root, XmlElementsConstants.PROLOG_CLASS));
+    assertEquals(2, index.getElements(prolog, XmlElementsConstants.PROLOG_AUTHOR_ELEMENT_CLASS).size());
+    assertNull(index.getElement(prolog, XmlElementsConstants.TOPIC_CRITDATES_CLASS));
+
+    // The children of the prolog are indexed again after the prolog is changed.
+    prologChildren.add(createElement("- topic/author ", prolog, new ArrayList<AuthorNode>()));
+    index.forget(prolog);
+    assertEquals(3, index.getElements(prolog, XmlElementsConstants.PROLOG_AUTHOR_ELEMENT_CLASS).size());
+    assertSame(prolog, index.getElement(root, XmlElementsConstants.PROLOG_CLASS));
+  }
+}
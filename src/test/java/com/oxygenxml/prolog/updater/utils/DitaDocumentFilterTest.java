@@ -0,0 +1,77 @@
+package com.oxygenxml.prolog.updater.utils;
+
+import java.io.File;
+
+import javax.swing.text.Document;
+import javax.swing.text.PlainDocument;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import junit.framework.TestCase;
+import ro.sync.exml.workspace.api.editor.WSEditor;
+import ro.sync.exml.workspace.api.editor.page.text.xml.WSXMLTextEditorPage;
+import ro.sync.exml.workspace.api.editor.page.text.xml.WSXMLTextNodeRange;
+
+/**
+ * Test the detection of the DITA documents.
+ */
+public class DitaDocumentFilterTest extends TestCase {
+
+  /**
+   * <p><b>Description:</b> The DITA files are recognized by their extension.</p>
+   */
+  @Test
+  public void testExtension() throws Exception {
+    assertTrue(DitaDocumentFilter.hasDitaExtension(new File("topic.dita").toURI().toURL()));
+    assertTrue(DitaDocumentFilter.hasDitaExtension(new File("MAP.DITAMAP").toURI().toURL()));
+    assertFalse(DitaDocumentFilter.hasDitaExtension(new File("topic.xml").toURI().toURL()));
+    assertFalse(DitaDocumentFilter.hasDitaExtension(null));
+  }
+
+  /**
+   * <p><b>Description:</b> The DITA documents are recognized by the DOCTYPE, the schema or the root element.</p>
+   */
+  @Test
+  public void testDitaText() {
+    assertTrue(DitaDocumentFilter.isDitaText("<?xml version=\"1.0\"?>\n"
+        + "<!DOCTYPE task PUBLIC \"-//ACME//DTD DITA Widget Task//EN\" \"widget.dtd\">\n<task id=\"t\"/>"));
+    assertTrue(DitaDocumentFilter.isDitaText("<concept xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\""
+        + " xsi:noNamespaceSchemaLocation=\"urn:oasis:names:tc:dita:xsd:concept.xsd\" id=\"c\"/>"));
+    assertTrue(DitaDocumentFilter.isDitaText("<!-- <log> --><widget class=\"- topic/topic widget/widget \" id=\"w\">"));
+    assertTrue(DitaDocumentFilter.isDitaText("<?xml version=\"1.0\"?>\n<map><topicref href=\"a.dita\"/></map>"));
+    // The root element is not in the text.
+    assertTrue(DitaDocumentFilter.isDitaText("<?xml version=\"1.0\"?>\n<!-- a long comment"));
+  }
+
+  /**
+   * <p><b>Description:</b> The other XML documents are rejected.</p>
+   */
+  @Test
+  public void testOtherText() {
+    assertFalse(DitaDocumentFilter.isDitaText("<?xml version=\"1.0\"?>\n"
+        + "<xsl:stylesheet xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\" version=\"2.0\">"
+        + "<xsl:template match=\"topic\"/>"));
+    assertFalse(DitaDocumentFilter.isDitaText("<!DOCTYPE log [<!ENTITY e \"<topic>\">]>\n<log level=\"a>b\"><topic/></log>"));
+  }
+
+  /**
+   * <p><b>Description:</b> A root that gets its DITA class from the grammar is recognized with an XPath.</p>
+   */
+  @Test
+  public void testGrammarClass() throws Exception {
+    Document document = new PlainDocument();
+    document.insertString(0, "<?xml version=\"1.0\"?>\n<!DOCTYPE widget SYSTEM \"widget.dtd\">\n<widget id=\"w\"/>", null);
+    WSXMLTextEditorPage page = Mockito.mock(WSXMLTextEditorPage.class);
+    Mockito.when(page.getDocument()).thenReturn(document);
+    WSEditor editor = Mockito.mock(WSEditor.class);
+    Mockito.when(editor.getEditorLocation()).thenReturn(new File("widget.xml").toURI().toURL());
+    Mockito.when(editor.getCurrentPage()).thenReturn(page);
+
+    Mockito.when(page.findElementsByXPath(ElementXPathConstants.ROOT_DITA_XPATH)).thenReturn(new WSXMLTextNodeRange[0]);
+    assertFalse(DitaDocumentFilter.isDitaDocument(editor));
+
+    Mockito.when(page.findElementsByXPath(ElementXPathConstants.ROOT_DITA_XPATH)).thenReturn(new WSXMLTextNodeRange[1]);
+    assertTrue(DitaDocumentFilter.isDitaDocument(editor));
+  }
+}
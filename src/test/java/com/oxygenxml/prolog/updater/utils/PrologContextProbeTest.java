@@ -0,0 +1,93 @@
+package com.oxygenxml.prolog.updater.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.oxygenxml.prolog.updater.dita.editor.DocumentType;
+
+import junit.framework.TestCase;
+import ro.sync.contentcompletion.xml.CIElement;
+
+/**
+ * Test the choice of the children probed when searching the location of the prolog element.
+ */
+public class PrologContextProbeTest extends TestCase {
+
+  /**
+   * Create the proposals of the schema.
+   *
+   * @param names The names of the proposed elements, in content-model order.
+   * @return The proposed elements.
+   */
+  private static List<CIElement> propose(String... names) {
+    List<CIElement> toReturn = new ArrayList<CIElement>();
+    for (String name : names) {
+      CIElement element = Mockito.mock(CIElement.class);
+      Mockito.when(element.getName()).thenReturn(name);
+      toReturn.add(element);
+    }
+    return toReturn;
+  }
+
+  /**
+   * <p><b>Description:</b> The probing of a bookmap stops after the first position where the bookmeta is allowed
+   * and the next child can't precede it.</p>
+   */
+  @Test
+  public void testBookmap() {
+    PrologContextProbe probe = new PrologContextProbe(DocumentType.BOOKMAP, "bookmap");
+    assertTrue(probe.shouldProbe("title", null));
+    assertTrue(probe.accept(propose("booktitle", "bookmeta", "frontmatter", "chapter")));
+    assertFalse(probe.isFinished());
+    assertFalse(probe.shouldProbe("chapter", null));
+    assertTrue(probe.isFinished());
+    assertFalse(probe.shouldProbe("chapter", null));
+  }
+
+  /**
+   * <p><b>Description:</b> The children proposed before the prolog element are probed, the comments are skipped.</p>
+   */
+  @Test
+  public void testTopic() {
+    PrologContextProbe probe = new PrologContextProbe(DocumentType.TOPIC, "topic");
+    assertTrue(probe.shouldProbe("title", null));
+    assertTrue(probe.accept(propose("titlealts", "mySummary", "prolog", "body")));
+    assertFalse(probe.shouldProbe(null, null));
+    assertTrue(probe.shouldProbe("mySummary", null));
+    assertTrue(probe.accept(propose("prolog", "body")));
+    assertTrue(probe.isFinished());
+  }
+
+  /**
+   * <p><b>Description:</b> The probing stops when the prolog element is no longer allowed.</p>
+   */
+  @Test
+  public void testPassedPosition() {
+    PrologContextProbe probe = new PrologContextProbe(DocumentType.MAP, "map");
+    assertTrue(probe.shouldProbe("title", null));
+    assertTrue(probe.accept(propose("anchor", "topicmeta", "topicref")));
+    assertTrue(probe.shouldProbe("anchor", null));
+    assertFalse(probe.accept(propose("topicref")));
+    assertTrue(probe.isFinished());
+  }
+
+  /**
+   * <p><b>Description:</b> The probing stops at the first child that can't precede the prolog element,
+   * even if the prolog element was not allowed yet.</p>
+   */
+  @Test
+  public void testOtherChild() {
+    PrologContextProbe probe = new PrologContextProbe(DocumentType.TOPIC, "topic");
+    assertFalse(probe.shouldProbe("body", "- topic/body "));
+    assertTrue(probe.isFinished());
+
+    probe = new PrologContextProbe(DocumentType.MAP, "myMap");
+    assertTrue(probe.shouldProbe("mapTitle", "- topic/title myMap/mapTitle "));
+    assertFalse(probe.accept(propose("title")));
+    assertFalse(probe.shouldProbe("topicref", "- map/topicref "));
+    assertTrue(probe.isFinished());
+  }
+}
@@ -0,0 +1,79 @@
+package com.oxygenxml.prolog.updater.utils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+/**
+ * Test the session cache of the prolog locations.
+ */
+public class PrologInsertionCacheTest extends TestCase {
+
+  @Override
+  protected void tearDown() throws Exception {
+    PrologInsertionCache.clear();
+  }
+
+  /**
+   * <p><b>Description:</b> The documents with the same grammar and leading root children share the location.</p>
+   */
+  @Test
+  public void testKeys() {
+    String grammar = "-//ACME//DTD Acme Topic//EN";
+    String xpath = "/*[1][contains(@class, ' topic/topic ')]/title";
+    List<String> children = Arrays.asList("title", "body");
+    assertNull(PrologInsertionCache.get(grammar, "topic", children));
+    // The search was finished at the body.
+    PrologInsertionCache.put(grammar, "topic", children, 2, true, xpath);
+    assertEquals(xpath, PrologInsertionCache.get(grammar, "topic", Arrays.asList("title", "body")));
+    // The children after the examined ones don't matter.
+    assertEquals(xpath, PrologInsertionCache.get(grammar, "topic", Arrays.asList("title", "body", "related-links")));
+
+    // Other leading children.
+    assertNull(PrologInsertionCache.get(grammar, "topic", Arrays.asList("title", "shortdesc", "body")));
+    // Other grammar.
+    assertNull(PrologInsertionCache.get("acme.dtd", "topic", children));
+
+    // The prolog is the first child.
+    PrologInsertionCache.put(grammar, "map", Arrays.asList("topicref"), 1, true, null);
+    assertEquals(PrologInsertionCache.FIRST_CHILD, PrologInsertionCache.get(grammar, "map", Arrays.asList("topicref", "topicref")));
+  }
+
+  /**
+   * <p><b>Description:</b> All the children are in the key when the search ended with them.
+   * The documents without a grammar are not cached.</p>
+   */
+  @Test
+  public void testNotCached() {
+    String grammar = "-//ACME//DTD Acme Topic//EN";
+    // The search ended with the children, more children could move the location.
+    PrologInsertionCache.put(grammar, "topic", Arrays.asList("title"), 1, false, "/*/title");
+    assertEquals("/*/title", PrologInsertionCache.get(grammar, "topic", Arrays.asList("title")));
+    assertNull(PrologInsertionCache.get(grammar, "topic", Arrays.asList("title", "mySummary")));
+
+    PrologInsertionCache.put(null, "topic", Arrays.asList("title"), 1, true, "/*/title");
+    assertNull(PrologInsertionCache.get(null, "topic", Arrays.asList("title")));
+
+    List<String> manyChildren = Collections.nCopies(PrologInsertionCache.MAX_KEY_CHILDREN + 1, "title");
+    PrologInsertionCache.put(grammar, "topic", manyChildren, manyChildren.size(), true, "/*/title");
+    assertNull(PrologInsertionCache.get(grammar, "topic", manyChildren));
+
+    PrologInsertionCache.clear();
+    assertNull(PrologInsertionCache.get(grammar, "topic", Arrays.asList("title")));
+  }
+
+  /**
+   * <p><b>Description:</b> The grammar of a text document is identified by the DOCTYPE declaration.</p>
+   */
+  @Test
+  public void testDoctypeId() {
+    assertEquals("-//OASIS//DTD DITA Topic//EN", TextPageDocumentUtil.getDoctypeId(
+        "<?xml version=\"1.0\"?>\n<!DOCTYPE topic PUBLIC \"-//OASIS//DTD DITA Topic//EN\" \"topic.dtd\">\n<topic/>"));
+    assertEquals("map.dtd", TextPageDocumentUtil.getDoctypeId("<!DOCTYPE map SYSTEM 'map.dtd' [ <!ENTITY a \"b\"> ]><map/>"));
+    assertNull(TextPageDocumentUtil.getDoctypeId("<topic/>"));
+  }
+}
@@ -0,0 +1,83 @@
+package com.oxygenxml.prolog.updater.utils;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import com.oxygenxml.prolog.updater.dita.editor.DocumentType;
+
+import junit.framework.TestCase;
+
+/**
+ * Test the location of the prolog element in the standard DITA types.
+ */
+public class PrologPlacementTableTest extends TestCase {
+
+  /**
+   * <p><b>Description:</b> Only the OASIS DITA grammars are known, in any version.</p>
+   */
+  @Test
+  public void testKnownGrammars() {
+    assertTrue(PrologPlacementTable.isKnownGrammar("-//OASIS//DTD DITA Topic//EN"));
+    assertTrue(PrologPlacementTable.isKnownGrammar("-//OASIS//DTD DITA 1.2 Concept//EN"));
+    assertTrue(PrologPlacementTable.isKnownGrammar("-//OASIS//DTD DITA 1.x BookMap//EN"));
+    assertFalse(PrologPlacementTable.isKnownGrammar("-//OASIS//DTD DITA DITAVAL//EN"));
+    assertFalse(PrologPlacementTable.isKnownGrammar("-//ACME//DTD DITA Topic//EN"));
+    assertFalse(PrologPlacementTable.isKnownGrammar("topic.dtd"));
+    assertFalse(PrologPlacementTable.isKnownGrammar(null));
+  }
+
+  /**
+   * <p><b>Description:</b> The prolog is placed after the last leading child allowed before it.</p>
+   */
+  @Test
+  public void testFindPredecessor() {
+    String topic = "-//OASIS//DTD DITA Topic//EN";
+    assertEquals("shortdesc", PrologPlacementTable.findPredecessor(topic, "topic", Arrays.asList("title", "shortdesc", "body")));
+    assertEquals("title", PrologPlacementTable.findPredecessor("-//OASIS//DTD DITA Task//EN", "task",
+        Arrays.asList("title", "taskbody", "shortdesc")));
+    assertEquals("booktitle", PrologPlacementTable.findPredecessor("-//OASIS//DTD DITA BookMap//EN", "bookmap",
+        Arrays.asList("title", "booktitle", "chapter")));
+    assertEquals("glossdef", PrologPlacementTable.findPredecessor("-//OASIS//DTD DITA Glossary//EN", "glossentry",
+        Arrays.asList("glossterm", "glossdef", "glossBody")));
+    assertEquals(PrologInsertionCache.FIRST_CHILD, PrologPlacementTable.findPredecessor("-//OASIS//DTD DITA Map//EN", "map",
+        Arrays.asList("topicref")));
+    assertEquals(PrologInsertionCache.FIRST_CHILD, PrologPlacementTable.findPredecessor(topic, "topic",
+        Collections.<String>emptyList()));
+
+    // Unknown grammar or root.
+    assertNull(PrologPlacementTable.findPredecessor("topic.dtd", "topic", Arrays.asList("title")));
+    assertNull(PrologPlacementTable.findPredecessor(topic, "myTopic", Arrays.asList("title")));
+  }
+
+  /**
+   * <p><b>Description:</b> The children before the prolog are recognized by the class when it's available,
+   * by the predecessors of the root otherwise.</p>
+   */
+  @Test
+  public void testIsPredecessor() {
+    assertTrue(PrologPlacementTable.isPredecessor(DocumentType.TOPIC, "concept", "shortdesc", null));
+    assertTrue(PrologPlacementTable.isPredecessor(DocumentType.TOPIC, "glossentry", "glossterm", null));
+    assertFalse(PrologPlacementTable.isPredecessor(DocumentType.TOPIC, "glossentry", "title", null));
+    assertTrue(PrologPlacementTable.isPredecessor(DocumentType.BOOKMAP, "bookmap", "booktitle", null));
+    assertFalse(PrologPlacementTable.isPredecessor(DocumentType.MAP, "map", "topicref", null));
+    // Specializations.
+    assertTrue(PrologPlacementTable.isPredecessor(DocumentType.TOPIC, "myTopic", "myTitle", "- topic/title myTopic/myTitle "));
+    assertTrue(PrologPlacementTable.isPredecessor(DocumentType.TOPIC, "myTopic", "abstract", null));
+    assertTrue(PrologPlacementTable.isPredecessor(DocumentType.MAP, "myMap", "mapTitle", "- topic/title myMap/mapTitle "));
+    assertFalse(PrologPlacementTable.isPredecessor(DocumentType.MAP, "myMap", "shortdesc", "- topic/shortdesc "));
+  }
+
+  /**
+   * <p><b>Description:</b> Only the standard roots have a document type.</p>
+   */
+  @Test
+  public void testDocumentType() {
+    assertEquals(DocumentType.TOPIC, PrologPlacementTable.getDocumentType("glossentry"));
+    assertEquals(DocumentType.MAP, PrologPlacementTable.getDocumentType("subjectScheme"));
+    assertEquals(DocumentType.BOOKMAP, PrologPlacementTable.getDocumentType("bookmap"));
+    assertNull(PrologPlacementTable.getDocumentType("html"));
+    assertNull(PrologPlacementTable.getDocumentType("dita"));
+  }
+}
@@ -0,0 +1,108 @@
+package com.oxygenxml.prolog.updater.utils;
+
+import javax.swing.text.Document;
+import javax.swing.text.PlainDocument;
+
+import org.junit.Test;
+
+import com.oxygenxml.prolog.updater.dita.editor.DocumentType;
+import com.oxygenxml.prolog.updater.prolog.edit.PrologStructureBuilder;
+
+import junit.framework.TestCase;
+
+/**
+ * Test the reuse of the prolog scan while the document is edited.
+ */
+public class PrologRegionTrackerTest extends TestCase {
+
+  /**
+   * A topic with a prolog.
+   */
+  private static final String TOPIC = "<topic id=\"t\"><title>Topic</title><prolog><author type=\"creator\">a</author></prolog>"
+      + "<body><p>text</p></body></topic>";
+
+  /**
+   * <p><b>Description:</b> The changes after the prolog keep the scan, the changes in the prolog
+   * or before it discard the scan.</p>
+   */
+  @Test
+  public void testInvalidation() throws Exception {
+    Document document = new PlainDocument();
+    document.insertString(0, TOPIC, null);
+
+    PrologRegionTracker tracker = PrologRegionTracker.getTracker(document);
+    assertSame(tracker, PrologRegionTracker.getTracker(document));
+    PrologStructureBuilder scan = tracker.getScan();
+    assertNotNull(scan.getStructure());
+    assertTrue(scan.getStructure().hasProlog());
+
+    // Edit the body.
+    document.insertString(TOPIC.indexOf("text"), "more ", null);
+    assertTrue(tracker.isValid());
+    assertSame(scan, tracker.getScan());
+
+    // Edit the title.
+    document.remove(TOPIC.indexOf("Topic"), 1);
+    assertFalse(tracker.isValid());
+    PrologStructureBuilder newScan = tracker.getScan();
+    assertNotSame(scan, newScan);
+    assertEquals(document.getText(0, document.getLength()).indexOf("<author"),
+        newScan.getStructure().getPrologFirstChildOffset());
+
+    // Edit the prolog.
+    document.insertString(newScan.getStructure().getPrologFirstChildOffset(), "<author>b</author>", null);
+    assertFalse(tracker.isValid());
+    assertEquals(2, tracker.getScan().getStructure().getAuthors().size());
+  }
+
+  /**
+   * <p><b>Description:</b> The document type is kept until the start tag of the root is changed.</p>
+   */
+  @Test
+  public void testDocumentType() throws Exception {
+    Document document = new PlainDocument();
+    document.insertString(0, TOPIC, null);
+
+    PrologRegionTracker tracker = PrologRegionTracker.getTracker(document);
+    tracker.setDocumentType(DocumentType.TOPIC);
+    assertNotNull(tracker.getScan());
+
+    // Edit the prolog and the body.
+    document.insertString(TOPIC.indexOf("<author"), "<author>b</author>", null);
+    document.insertString(document.getText(0, document.getLength()).indexOf("text"), "more ", null);
+    assertEquals(DocumentType.TOPIC, tracker.getDocumentType());
+
+    // Edit the root.
+    document.insertString(TOPIC.indexOf(">"), " xml:lang=\"en\"", null);
+    assertNull(tracker.getDocumentType());
+  }
+
+  /**
+   * <p><b>Description:</b> The state of the root is kept until the start tag of the root or the DOCTYPE
+   * declaration is changed, also when the document is not a DITA document.</p>
+   */
+  @Test
+  public void testRootState() throws Exception {
+    String widget = "<!DOCTYPE widget SYSTEM \"widget.dtd\">\n<widget id=\"w\"><part/></widget>";
+    Document document = new PlainDocument();
+    document.insertString(0, widget, null);
+
+    PrologRegionTracker tracker = PrologRegionTracker.getTracker(document);
+    Object state = tracker.getRootState();
+    assertNotNull(state);
+
+    // Edit the content of the root.
+    document.insertString(widget.indexOf("<part"), "<part/>", null);
+    assertSame(state, tracker.getRootState());
+
+    // Edit the DOCTYPE declaration.
+    document.remove(widget.indexOf("widget.dtd"), "widget".length());
+    Object newState = tracker.getRootState();
+    assertNotNull(newState);
+    assertNotSame(state, newState);
+
+    // Edit the start tag of the root.
+    document.insertString(document.getText(0, document.getLength()).indexOf(" id="), " class=\"- topic/topic \"", null);
+    assertNotSame(newState, tracker.getRootState());
+  }
+}
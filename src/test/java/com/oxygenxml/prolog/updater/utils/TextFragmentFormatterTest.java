@@ -0,0 +1,108 @@
+package com.oxygenxml.prolog.updater.utils;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.PlainDocument;
+
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+/**
+ * Test the formatting of the fragments inserted in the text documents.
+ */
+public class TextFragmentFormatterTest extends TestCase {
+
+  /**
+   * An indented topic.
+   */
+  private static final String TOPIC = "<topic id=\"t\">\n"
+      + "  <title>Topic</title>\n"
+      + "  <prolog>\n"
+      + "    <author type=\"creator\">a</author>\n"
+      + "    <critdates>\n"
+      + "      <created date=\"2017/01/01\"/>\n"
+      + "    </critdates>\n"
+      + "  </prolog>\n"
+      + "</topic>";
+
+  /**
+   * Insert a formatted fragment in a document.
+   *
+   * @param document The document.
+   * @param offset The insertion offset.
+   * @param fragment The compact fragment.
+   * @return The text of the document after the insertion.
+   * @throws BadLocationException If the offset is not in the document.
+   */
+  private static String insert(Document document, int offset, String fragment) throws BadLocationException {
+    document.insertString(offset, TextFragmentFormatter.getFormatter(document).formatAt(document, offset, fragment), null);
+    return document.getText(0, document.getLength());
+  }
+
+  /**
+   * Create a document.
+   *
+   * @param text The text of the document.
+   * @return The document.
+   * @throws BadLocationException If the text could not be inserted.
+   */
+  private static Document createDocument(String text) throws BadLocationException {
+    Document document = new PlainDocument();
+    document.insertString(0, text, null);
+    return document;
+  }
+
+  /**
+   * <p><b>Description:</b> The indent unit is inferred from the lines that start with markup.</p>
+   */
+  @Test
+  public void testInferIndentUnit() {
+    assertEquals("  ", TextFragmentFormatter.inferIndentUnit(TOPIC));
+    assertEquals("\t", TextFragmentFormatter.inferIndentUnit("<topic>\n\t<title/>\n</topic>"));
+    assertNull(TextFragmentFormatter.inferIndentUnit("<topic><title/></topic>"));
+  }
+
+  /**
+   * <p><b>Description:</b> The fragments get the indentation of the element that follows them or
+   * of the children of the element that ends after them.</p>
+   */
+  @Test
+  public void testFormatAt() throws Exception {
+    Document document = createDocument(TOPIC);
+
+    // After the last author.
+    String text = insert(document, TOPIC.indexOf("</author>") + "</author>".length(),
+        "<author type=\"contributor\">b</author>");
+    assertTrue(text, text.contains("a</author>\n    <author type=\"contributor\">b</author>\n    <critdates>"));
+
+    // Before the end tag of critdates.
+    int offset = text.indexOf("</critdates>");
+    text = insert(document, offset, "<!--b--><revised modified=\"2017/01/02\"/>");
+    assertTrue(text, text.contains("<created date=\"2017/01/01\"/>\n      <!--b-->\n      <revised modified=\"2017/01/02\"/>\n    </critdates>"));
+
+    // As the first child of the topic.
+    offset = text.indexOf("<title>") - 3;
+    text = insert(document, offset, "<prolog><author type=\"creator\">c</author><critdates><created date=\"2017/01/03\"/></critdates></prolog>");
+    assertTrue(text, text.startsWith("<topic id=\"t\">\n"
+        + "  <prolog>\n"
+        + "    <author type=\"creator\">c</author>\n"
+        + "    <critdates>\n"
+        + "      <created date=\"2017/01/03\"/>\n"
+        + "    </critdates>\n"
+        + "  </prolog>\n"
+        + "  <title>"));
+  }
+
+  /**
+   * <p><b>Description:</b> The fragments inserted in documents that are not formatted are not changed.</p>
+   */
+  @Test
+  public void testCompactDocument() throws Exception {
+    String topic = "<topic id=\"t\"><title>Topic</title><prolog></prolog></topic>";
+    Document document = createDocument(topic);
+    String fragment = "<critdates><created date=\"2017/01/01\"/></critdates>";
+    assertEquals(fragment, TextFragmentFormatter.getFormatter(document).formatAt(document, topic.indexOf("</prolog>"), fragment));
+    assertEquals(fragment, TextFragmentFormatter.getFormatter(document).format(fragment));
+  }
+}